@@ -13,7 +13,6 @@ import {
   Tag,
   Row,
   Col,
-  Pagination,
 } from 'antd';
 import {
   PlusOutlined,
@@ -28,7 +27,7 @@ import apiService from '../../services/api';
 import { Book } from '../../types';
 import styled from 'styled-components';
 
-const { Title } = Typography;
+const { Title, Text } = Typography;
 const { Search } = Input;
 
 const PageHeader = styled.div`
@@ -74,54 +73,57 @@ const BooksPage: React.FC = () => {
   const [loading, setLoading] = useState(false);
   const [searchTerm, setSearchTerm] = useState('');
   const [searchAuthor, setSearchAuthor] = useState('');
-  const [currentPage, setCurrent] = useState(1);
-  const [pageSize, setPageSize] = useState(10);
-  const [total, setTotal] = useState(0);
+  // Cursor của trang kế tiếp; undefined khi đã tải tới trang cuối
+  const [nextCursor, setNextCursor] = useState<string | undefined>();
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [total, setTotal] = useState<number | undefined>();
   const [selectedBook, setSelectedBook] = useState<Book | null>(null);
   const [isModalVisible, setIsModalVisible] = useState(false);
   const [isDetailModalVisible, setIsDetailModalVisible] = useState(false);
   const [form] = Form.useForm();
 
+  // Có điều kiện tìm thì lọc trên server, nếu không thì duyệt toàn bộ catalog theo trang
+  const fetchPage = useCallback((cursor?: string) => {
+    if (searchTerm || searchAuthor) {
+      return apiService.searchBooks({ title: searchTerm || undefined, author: searchAuthor || undefined }, cursor);
+    }
+    return apiService.getBooks(cursor);
+  }, [searchTerm, searchAuthor]);
+
   const loadBooks = useCallback(async () => {
     try {
       setLoading(true);
-      const response = await apiService.getBooks();
-      
-      if (Array.isArray(response)) {
-        // Filter data based on search terms
-        let filteredBooks = response;
-        
-        if (searchTerm) {
-          filteredBooks = filteredBooks.filter(book => 
-            book.title.toLowerCase().includes(searchTerm.toLowerCase())
-          );
-        }
-        
-        if (searchAuthor) {
-          filteredBooks = filteredBooks.filter(book => 
-            book.author.toLowerCase().includes(searchAuthor.toLowerCase())
-          );
-        }
-        
-        // Simple pagination
-        const startIndex = (currentPage - 1) * pageSize;
-        const endIndex = startIndex + pageSize;
-        const paginatedBooks = filteredBooks.slice(startIndex, endIndex);
-        
-        setBooks(paginatedBooks);
-        setTotal(filteredBooks.length);
-      } else {
-        // Paginated response
-        setBooks(response.content || response.data || []);
-        setTotal(response.totalElements || response.total || 0);
-      }
+      const [page, count] = await Promise.all([
+        fetchPage(),
+        searchTerm || searchAuthor ? Promise.resolve(undefined) : apiService.countBooks(),
+      ]);
+      setBooks(page.items);
+      setNextCursor(page.nextCursor);
+      setTotal(count);
     } catch (error) {
       console.error('Failed to load books:', error);
       message.error('Không thể tải danh sách sách');
     } finally {
       setLoading(false);
     }
-  }, [currentPage, pageSize, searchTerm, searchAuthor]);
+  }, [fetchPage, searchTerm, searchAuthor]);
+
+  const loadMoreBooks = async () => {
+    if (!nextCursor) {
+      return;
+    }
+    try {
+      setLoadingMore(true);
+      const page = await fetchPage(nextCursor);
+      setBooks(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error('Failed to load more books:', error);
+      message.error('Không thể tải thêm sách');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   useEffect(() => {
     loadBooks();
@@ -133,7 +135,6 @@ const BooksPage: React.FC = () => {
     } else {
       setSearchAuthor(value);
     }
-    setCurrent(1);
   };
 
   const handleCreate = () => {
@@ -316,21 +317,15 @@ const BooksPage: React.FC = () => {
           />
         </TableContainer>
 
-        <Row justify="end" style={{ marginTop: 16 }}>
-          <Pagination
-            current={currentPage}
-            pageSize={pageSize}
-            total={total}
-            showSizeChanger
-            showQuickJumper
-            showTotal={(total, range) =>
-              `${range[0]}-${range[1]} của ${total} sách`
-            }
-            onChange={(page, size) => {
-              setCurrent(page);
-              setPageSize(size || 10);
-            }}
-          />
+        <Row justify="space-between" align="middle" style={{ marginTop: 16 }}>
+          <Text type="secondary">
+            {total !== undefined ? `Đã tải ${books.length} / ${total} sách` : `Đã tải ${books.length} sách`}
+          </Text>
+          {nextCursor && (
+            <Button onClick={loadMoreBooks} loading={loadingMore}>
+              Tải thêm
+            </Button>
+          )}
         </Row>
       </Card>
 
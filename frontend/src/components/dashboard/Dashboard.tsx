@@ -71,8 +71,10 @@ const Dashboard: React.FC = () => {
       // Load data dựa trên role
       const promises = [];
       
-      // Tất cả users có thể xem sách
+      // Tất cả users có thể xem sách: trang đầu cho "sách mới", số liệu lấy từ endpoint đếm
       promises.push(apiService.getBooks());
+      promises.push(apiService.countBooks());
+      promises.push(apiService.countAvailableBooks());
       
       if (hasAnyRole(['USER', 'LIBRARIAN', 'ADMIN'])) {
         promises.push(apiService.getMyLoans());
@@ -91,13 +93,16 @@ const Dashboard: React.FC = () => {
       const results = await Promise.allSettled(promises);
       
       // Process results with type checking
-      const books = results[0].status === 'fulfilled' ? (results[0] as PromiseFulfilledResult<any>).value : [];
+      const books = results[0].status === 'fulfilled' ? (results[0] as PromiseFulfilledResult<any>).value.items : [];
       setRecentBooks(books.slice(0, 5));
+      const totalBooks = results[1].status === 'fulfilled' ? (results[1] as PromiseFulfilledResult<any>).value : 0;
+      const availableBooks = results[2].status === 'fulfilled' ? (results[2] as PromiseFulfilledResult<any>).value : 0;
+      setStats((prev: DashboardStats) => ({ ...prev, totalBooks, availableBooks }));
       
-      let resultIndex = 1;
+      let resultIndex = 3;
       
       if (hasAnyRole(['USER', 'LIBRARIAN', 'ADMIN'])) {
-        const loans = results[resultIndex].status === 'fulfilled' ? (results[resultIndex] as PromiseFulfilledResult<any>).value : [];
+        const loans = results[resultIndex].status === 'fulfilled' ? (results[resultIndex] as PromiseFulfilledResult<any>).value.items : [];
         setMyLoans(loans.slice(0, 5));
         resultIndex++;
       }
@@ -111,8 +116,6 @@ const Dashboard: React.FC = () => {
         
         setStats((prev: DashboardStats) => ({
           ...prev,
-          totalBooks: books.length,
-          availableBooks: books.filter((book: Book) => book.available).length,
           totalMembers: members.length,
           totalLoans: allLoans.length,
           overdueCount: overdue.length,
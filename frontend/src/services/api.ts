@@ -1,5 +1,5 @@
 import axios, { AxiosInstance, AxiosError } from 'axios';
-import { AuthResponse, RefreshTokenRequest } from '../types';
+import { AuthResponse, Book, CursorPage, Loan, Member, RefreshTokenRequest } from '../types';
 
 class ApiService {
   private api: AxiosInstance;
@@ -112,10 +112,25 @@ class ApiService {
     return response.data;
   }
 
+  // Một trang của endpoint phân trang keyset; trang kế tiếp chỉ được đọc khi người dùng cần (nextCursor)
+  private async getPage<T>(url: string, params: Record<string, any> = {}, cursor?: string): Promise<CursorPage<T>> {
+    const response = await this.api.get(url, { params: cursor ? { ...params, cursor } : params });
+    return { items: response.data, nextCursor: response.headers['x-next-cursor'] };
+  }
+
   // Books methods
-  async getBooks() {
-    const response = await this.api.get('/books');
-    return response.data;
+  async getBooks(cursor?: string) {
+    return this.getPage<Book>('/books', {}, cursor);
+  }
+
+  async countBooks(): Promise<number> {
+    const response = await this.api.get('/books/count');
+    return response.data.total;
+  }
+
+  async countAvailableBooks(): Promise<number> {
+    const response = await this.api.get('/books/available/count');
+    return response.data.available;
   }
 
   async getBook(id: number) {
@@ -138,14 +153,12 @@ class ApiService {
     return response.data;
   }
 
-  async searchBooks(params: { title?: string; author?: string; genre?: string }) {
-    const response = await this.api.get('/books/search', { params });
-    return response.data;
+  async searchBooks(params: { title?: string; author?: string; genre?: string }, cursor?: string) {
+    return this.getPage<Book>('/books/search', params, cursor);
   }
 
-  async getAvailableBooks() {
-    const response = await this.api.get('/books/available');
-    return response.data;
+  async getAvailableBooks(cursor?: string) {
+    return this.getPage<Book>('/books/available', {}, cursor);
   }
 
   // Members methods
@@ -174,9 +187,8 @@ class ApiService {
     return response.data;
   }
 
-  async searchMembers(params: { name?: string; email?: string }) {
-    const response = await this.api.get('/members/search', { params });
-    return response.data;
+  async searchMembers(params: { name?: string; email?: string }, cursor?: string) {
+    return this.getPage<Member>('/members/search', params, cursor);
   }
 
   // Loans methods
@@ -225,9 +237,8 @@ class ApiService {
     return response.data;
   }
 
-  async getMyLoans() {
-    const response = await this.api.get('/loans/my-loans');
-    return response.data;
+  async getMyLoans(cursor?: string) {
+    return this.getPage<Loan>('/loans/my-loans', {}, cursor);
   }
 
   // Admin methods
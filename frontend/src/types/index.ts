@@ -107,6 +107,12 @@ export interface ApiResponse<T> {
   success: boolean;
 }
 
+// Một trang của endpoint phân trang keyset; nextCursor lấy từ header X-Next-Cursor, không có ở trang cuối
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string;
+}
+
 export interface PaginatedResponse<T> {
   content: T[];
   totalElements: number;
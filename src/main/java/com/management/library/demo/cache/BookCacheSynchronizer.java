@@ -0,0 +1,44 @@
+package com.management.library.demo.cache;
+
+import com.management.library.demo.config.CacheConfig;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.CatalogImportedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Giữ cache "books" đồng bộ với database sau khi commit bằng cách evict entry của sách vừa đổi.
+ * Bắt cả các thay đổi availability do LoanService ghi trực tiếp qua BookRepository.
+ */
+@Component
+public class BookCacheSynchronizer {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public BookCacheSynchronizer(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOKS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        // Evict thay vì put: event.getBook() là entity managed của transaction vừa commit (có thể lazy-load,
+        // bị sửa tiếp, hoặc còn giữ giá trị cũ sau các UPDATE bulk của LoanService); lần đọc sau tự nạp lại
+        cache.evict(event.getBookId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogImported(CatalogImportedEvent event) {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOKS_CACHE);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.management.library.demo.cache;
+
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.CatalogImportedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ đếm thay đổi của toàn catalog, dùng làm ETag cho các danh sách sách.
+ *
+ * Tăng sau khi commit mỗi thay đổi sách (kể cả borrow/return) và mỗi lần import.
+ * Thời điểm khởi động được ghép vào giá trị để ETag không trùng sau khi restart.
+ * Bộ đếm nằm trong bộ nhớ của từng instance, giống search index và availability bitmap.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Đọc trước khi query danh sách, để ETag không bao giờ mới hơn dữ liệu trả về
+     */
+    public String current() {
+        return epoch + "-" + changes.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        changes.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogImported(CatalogImportedEvent event) {
+        changes.incrementAndGet();
+    }
+}
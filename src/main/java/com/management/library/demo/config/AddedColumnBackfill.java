@@ -0,0 +1,136 @@
+package com.management.library.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Điền giá trị cho các cột mà Hibernate (ddl-auto=update) thêm vào bảng đã có dữ liệu:
+ * cột @Version của books/members/loans được thêm dạng nullable nên dòng cũ được gán 0; loans.due_date của loan cũ
+ * được tính bằng borrow_date + library.loans.loan-period (như LoanService làm với loan mới).
+ *
+ * Trước khi Hibernate cập nhật schema, ghi lại những cột còn thiếu trên các bảng đã tồn tại; khi ứng dụng sẵn sàng
+ * chỉ backfill đúng các cột đó. Các lần khởi động sau cột đã có nên không câu lệnh nào phải quét bảng.
+ * due_date được điền theo batch keyset trên id; bean này chạy trước EntityManagerFactory nên không dùng
+ * transaction manager của JPA, mỗi batch tự commit.
+ */
+@Component
+public class AddedColumnBackfill implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AddedColumnBackfill.class);
+
+    private static final List<String> VERSIONED_TABLES = List.of("books", "members", "loans");
+
+    private static final int BATCH_SIZE = 1000;
+
+    private record Borrowed(long id, LocalDate borrowDate) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Period loanPeriod;
+    // Dạng "bảng.cột"
+    private final Set<String> added = new LinkedHashSet<>();
+
+    @Autowired
+    public AddedColumnBackfill(DataSource dataSource,
+                               @Value("${library.loans.loan-period:P14D}") Period loanPeriod) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.loanPeriod = loanPeriod;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (String table : VERSIONED_TABLES) {
+            recordIfMissing(table, "version");
+        }
+        recordIfMissing("loans", "due_date");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        for (String table : VERSIONED_TABLES) {
+            if (added.remove(table + ".version")) {
+                int rows = jdbcTemplate.update("UPDATE " + table + " SET version = 0 WHERE version IS NULL");
+                log.info("Backfilled version = 0 for {} existing rows of {}", rows, table);
+            }
+        }
+        if (added.remove("loans.due_date")) {
+            long rows = backfillDueDates();
+            log.info("Backfilled due_date = borrow_date + {} for {} existing loans", loanPeriod, rows);
+        }
+    }
+
+    private long backfillDueDates() {
+        long total = 0;
+        long afterId = 0;
+        while (true) {
+            List<Borrowed> batch = jdbcTemplate.query("SELECT id, borrow_date FROM loans WHERE due_date IS NULL " +
+                            "AND borrow_date IS NOT NULL AND id > ? ORDER BY id FETCH FIRST " + BATCH_SIZE + " ROWS ONLY",
+                    (rs, rowNum) -> new Borrowed(rs.getLong(1), rs.getObject(2, LocalDate.class)), afterId);
+            if (batch.isEmpty()) {
+                return total;
+            }
+            jdbcTemplate.batchUpdate("UPDATE loans SET due_date = ? WHERE id = ?", batch, BATCH_SIZE, (ps, loan) -> {
+                ps.setDate(1, Date.valueOf(loan.borrowDate().plus(loanPeriod)));
+                ps.setLong(2, loan.id());
+            });
+            total += batch.size();
+            afterId = batch.get(batch.size() - 1).id();
+        }
+    }
+
+    private void recordIfMissing(String table, String column) {
+        Set<String> columns = columnsOf(table);
+        if (columns != null && !columns.contains(column)) {
+            added.add(table + "." + column);
+        }
+    }
+
+    // null khi bảng chưa tồn tại: Hibernate sẽ tạo bảng cùng mọi cột nên không có gì để backfill
+    private Set<String> columnsOf(String table) {
+        try {
+            return jdbcTemplate.query("SELECT * FROM " + table + " WHERE 1 = 0", (ResultSet rs) -> {
+                ResultSetMetaData meta = rs.getMetaData();
+                Set<String> columns = new HashSet<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    columns.add(meta.getColumnName(i).toLowerCase(Locale.ROOT));
+                }
+                return columns;
+            });
+        } catch (BadSqlGrammarException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Bảo đảm việc ghi nhận cột còn thiếu chạy trước khi Hibernate cập nhật schema
+     */
+    @Configuration
+    static class EntityManagerFactoryDependsOnAddedColumnBackfill extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnAddedColumnBackfill() {
+            super("addedColumnBackfill");
+        }
+    }
+}
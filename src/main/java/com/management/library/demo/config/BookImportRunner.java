@@ -0,0 +1,57 @@
+package com.management.library.demo.config;
+
+import com.management.library.demo.dto.BookImportReport;
+import com.management.library.demo.service.BookImportReader;
+import com.management.library.demo.service.BookImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Import catalog từ dòng lệnh rồi thoát:
+ * java -jar app.jar --spring.main.web-application-type=none --import-books=/path/books.csv
+ * (.ndjson/.jsonl được đọc dạng NDJSON, còn lại là CSV)
+ */
+@Component
+public class BookImportRunner implements ApplicationRunner {
+
+    private static final String IMPORT_OPTION = "import-books";
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption(IMPORT_OPTION)) {
+            return;
+        }
+        int exitCode = 0;
+        for (String file : args.getOptionValues(IMPORT_OPTION)) {
+            Path path = Path.of(file);
+            try (InputStream input = Files.newInputStream(path)) {
+                BookImportReport report = bookImportService.importBooks(input, BookImportReader.Format.fromFileName(file));
+                System.out.println("📥 Imported " + path + ": " + report);
+                report.getErrors().forEach(error ->
+                        System.out.println("   line " + error.getLine() + ": " + error.getMessage()));
+                if (report.isErrorsTruncated()) {
+                    System.out.println("   ... more errors omitted");
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Failed to import " + path + ": " + e.getMessage());
+                exitCode = 1;
+            }
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -0,0 +1,15 @@
+package com.management.library.demo.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bật Spring Cache. Cache được cấu hình qua spring.cache.* (Caffeine, có giới hạn kích thước và TTL);
+ * các cache khai báo trong spring.cache.cache-names được tự động đăng ký metrics cho actuator.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String BOOKS_CACHE = "books";
+}
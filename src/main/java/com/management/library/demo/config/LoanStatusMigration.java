@@ -0,0 +1,91 @@
+package com.management.library.demo.config;
+
+import com.management.library.demo.entity.LoanStatus;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Chuyển cột status của loans (và loan_history) từ chuỗi tự do sang SMALLINT theo {@link LoanStatus}.
+ *
+ * Chạy trước khi Hibernate khởi tạo (ddl-auto=update không đổi kiểu cột đã có) và chỉ khi cột còn là
+ * kiểu chuỗi, nên các lần khởi động sau không làm gì. Mỗi bảng được đổi bằng một câu ALTER TABLE
+ * (ghi lại bảng một lần, giữ ACCESS EXCLUSIVE lock tới khi xong) trong cùng transaction với việc bỏ
+ * các partial index có điều kiện trên chuỗi; schema-postgresql.sql tạo lại chúng với mã số.
+ * Dòng cũ có status NULL được suy ra từ return_date.
+ */
+@Component
+public class LoanStatusMigration implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanStatusMigration.class);
+
+    private static final String STATUS_CODE_EXPRESSION =
+            "CASE WHEN upper(status) = 'RETURNED' OR (status IS NULL AND return_date IS NOT NULL) THEN "
+            + LoanStatus.RETURNED_CODE
+            + " WHEN upper(status) = 'OVERDUE' THEN " + LoanStatus.OVERDUE_CODE
+            + " ELSE " + LoanStatus.BORROWED_CODE + " END";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+
+    @Autowired
+    public LoanStatusMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Boolean postgres = jdbcTemplate.execute((Connection connection) -> connection.isWrapperFor(PGConnection.class));
+        if (!Boolean.TRUE.equals(postgres)) {
+            // Database khác (H2 khi test) được Hibernate tạo mới với kiểu SMALLINT
+            return;
+        }
+        migrate("loans", List.of("idx_loans_active_due", "idx_loans_returned"), "ck_loans_status");
+        migrate("loan_history", List.of(), "ck_loan_history_status");
+    }
+
+    private void migrate(String table, List<String> stringPredicateIndexes, String checkName) {
+        List<String> types = jdbcTemplate.queryForList(
+                "SELECT data_type FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = ? AND column_name = 'status'",
+                String.class, table);
+        if (types.isEmpty() || !types.get(0).startsWith("character")) {
+            return;
+        }
+        transaction.executeWithoutResult(status -> {
+            for (String index : stringPredicateIndexes) {
+                jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table +
+                    " ALTER COLUMN status TYPE SMALLINT USING " + STATUS_CODE_EXPRESSION + "," +
+                    " ALTER COLUMN status SET NOT NULL," +
+                    " ADD CONSTRAINT " + checkName + " CHECK (status IN (" + LoanStatus.BORROWED_CODE + ", " +
+                    LoanStatus.RETURNED_CODE + ", " + LoanStatus.OVERDUE_CODE + "))");
+        });
+        log.info("Migrated {}.status from {} to SMALLINT", table, types.get(0));
+    }
+
+    /**
+     * Bảo đảm migration chạy trước EntityManagerFactory
+     */
+    @Configuration
+    static class EntityManagerFactoryDependsOnLoanStatusMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnLoanStatusMigration() {
+            super("loanStatusMigration");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.management.library.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật các background job (@Scheduled).
+ * Tắt bằng library.scheduling.enabled=false, ví dụ khi test để job không chạy xen vào.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "library.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,78 @@
+package com.management.library.demo.config;
+
+import com.management.library.demo.search.TextFolding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Điền các cột không dấu (books.title_folded, books.author_folded, members.name_folded) cho dòng có từ trước khi
+ * có các cột này. Dòng mới được entity (@PrePersist/@PreUpdate) và BookImportService tự điền.
+ *
+ * Việc bỏ dấu cần {@link TextFolding} (H2 không có unaccent) nên chạy trong Java, theo batch keyset trên id,
+ * mỗi batch một transaction; khi không còn dòng nào thiếu thì chỉ tốn một câu SELECT cho mỗi bảng.
+ */
+@Component
+public class SearchFoldingBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchFoldingBackfill.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private record Pending(long id, String first, String second) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+
+    @Autowired
+    public SearchFoldingBackfill(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long books = backfill("SELECT id, title, author FROM books WHERE title_folded IS NULL AND id > ? " +
+                        "ORDER BY id FETCH FIRST " + BATCH_SIZE + " ROWS ONLY",
+                "UPDATE books SET title_folded = ?, author_folded = ? WHERE id = ?");
+        long members = backfill("SELECT id, name, NULL FROM members WHERE name_folded IS NULL AND name IS NOT NULL " +
+                        "AND id > ? ORDER BY id FETCH FIRST " + BATCH_SIZE + " ROWS ONLY",
+                "UPDATE members SET name_folded = ? WHERE id = ?");
+        if (books + members > 0) {
+            log.info("Backfilled accent-folded search columns for {} books and {} members", books, members);
+        }
+    }
+
+    private long backfill(String select, String update) {
+        long total = 0;
+        long afterId = 0;
+        while (true) {
+            List<Pending> batch = jdbcTemplate.query(select,
+                    (rs, rowNum) -> new Pending(rs.getLong(1), rs.getString(2), rs.getString(3)), afterId);
+            if (batch.isEmpty()) {
+                return total;
+            }
+            boolean twoColumns = update.startsWith("UPDATE books");
+            transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(update, batch, BATCH_SIZE,
+                    (ps, row) -> {
+                        int index = 1;
+                        ps.setString(index++, TextFolding.fold(row.first()));
+                        if (twoColumns) {
+                            ps.setString(index++, TextFolding.fold(row.second()));
+                        }
+                        ps.setLong(index, row.id());
+                    }));
+            total += batch.size();
+            afterId = batch.get(batch.size() - 1).id();
+        }
+    }
+}
@@ -86,7 +86,11 @@ public class SecurityConfig {
                 // Librarian và Admin có thể quản lý books, members, loans
                 .requestMatchers("/api/books/**").hasAnyRole("ADMIN", "LIBRARIAN", "USER") // Users có thể xem sách
                 .requestMatchers("/api/members/**").hasAnyRole("ADMIN", "LIBRARIAN")
+                .requestMatchers("/api/loans/my-loans").hasAnyRole("ADMIN", "LIBRARIAN", "USER") // Loans của chính user
                 .requestMatchers("/api/loans/**").hasAnyRole("ADMIN", "LIBRARIAN")
+                .requestMatchers("/api/reservations/**").hasAnyRole("ADMIN", "LIBRARIAN", "USER") // Giữ chỗ sách
+                .requestMatchers("/api/export/**").hasAnyRole("ADMIN", "LIBRARIAN")
+                .requestMatchers("/api/stream/**").hasAnyRole("ADMIN", "LIBRARIAN", "USER") // Change stream (SSE)
                 
                 // Tất cả request khác cần authentication
                 .anyRequest().authenticated()
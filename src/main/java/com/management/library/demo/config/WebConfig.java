@@ -0,0 +1,47 @@
+package com.management.library.demo.config;
+
+import com.management.library.demo.idempotency.IdempotencyInterceptor;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Đăng ký interceptor cho Spring MVC.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // Danh sách loan trả LoanView được dựng trong transaction của service, không cần (và không được dựa vào) open-in-view
+    private static final String[] LOAN_LISTINGS = {
+            "/api/loans", "/api/loans/member/*", "/api/loans/book/*", "/api/loans/overdue",
+            "/api/loans/my-loans", "/api/user/my-loans"
+    };
+
+    // Response chạy lâu (SSE, export stream) không giữ EntityManager suốt kết nối; export tự mở transaction đọc
+    private static final String[] LONG_RUNNING = {"/api/stream", "/api/export/**"};
+
+    @Autowired
+    private IdempotencyInterceptor idempotencyInterceptor;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Open-in-view của Boot bị tắt (spring.jpa.open-in-view=false) để có thể giữ nó cho các endpoint khác
+        // và chỉ bỏ ở danh sách loan
+        OpenEntityManagerInViewInterceptor openInView = new OpenEntityManagerInViewInterceptor();
+        openInView.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(openInView)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns(LOAN_LISTINGS)
+                .excludePathPatterns(LONG_RUNNING);
+
+        // Các request tạo/trả loan mà kiosk và web client retry khi timeout
+        registry.addInterceptor(idempotencyInterceptor)
+                .addPathPatterns("/api/loans", "/api/loans/*/return", "/api/loans/batch/**");
+    }
+}
@@ -130,6 +130,29 @@ public class AdminController {
         }
     }
 
+    /**
+     * Gắn user với member (thẻ thư viện) có sẵn sau khi nhân viên đã xác minh người dùng
+     */
+    @PutMapping("/users/{id}/member")
+    public ResponseEntity<?> linkUserMember(@PathVariable Long id, @RequestBody Map<String, Long> memberRequest) {
+        try {
+            Long memberId = memberRequest.get("memberId");
+            if (memberId == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "memberId is required");
+                return ResponseEntity.badRequest().body(error);
+            }
+            if (userService.findById(id).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(userService.linkMember(id, memberId));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to link member: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
     /**
      * Enable/Disable user
      */
@@ -1,35 +1,93 @@
 package com.management.library.demo.controller;
 
+import com.management.library.demo.cache.CatalogVersion;
+import com.management.library.demo.dto.BookCursor;
+import com.management.library.demo.dto.BookSearchCriteria;
+import com.management.library.demo.dto.CursorPage;
+import com.management.library.demo.dto.PopularBook;
+import com.management.library.demo.dto.RelatedBook;
 import com.management.library.demo.entity.Book;
+import com.management.library.demo.service.BookImportReader;
+import com.management.library.demo.service.BookImportService;
 import com.management.library.demo.service.BookService;
+import com.management.library.demo.service.PopularityService;
+import com.management.library.demo.service.RecommendationService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/books")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {BookController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG})
 public class BookController {
 
+    // Token của trang kế tiếp; vắng mặt nghĩa là đã hết dữ liệu
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private PopularityService popularityService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
     // Tất cả user đã đăng nhập có thể xem sách
     @GetMapping
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public List<Book> getAllBooks() {
-        return bookService.getAllBooks();
+    public ResponseEntity<List<Book>> getAllBooks(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer size,
+                                                  WebRequest request) {
+        BookCursor after;
+        try {
+            after = BookCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = ETags.catalog(catalogVersion.current());
+        if (request.checkNotModified(etag)) {
+            return ETags.notModified(etag);
+        }
+        return toResponse(bookService.getBooksPage(after, size), etag);
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<Book> getBookById(@PathVariable Long id) {
+    public ResponseEntity<Book> getBookById(@PathVariable Long id, WebRequest request) {
+        // Client đã có bản cũ: so version trước, chỉ load entity khi đã thay đổi
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = bookService.getBookVersion(id);
+            if (version.isPresent() && request.checkNotModified(ETags.book(id, version.get()))) {
+                return ETags.notModified(ETags.book(id, version.get()));
+            }
+        }
         Optional<Book> book = bookService.getBookById(id);
-        return book.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        if (book.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(ETags.REVALIDATE);
+        if (book.get().getVersion() != null) {
+            // ETag lấy từ chính bản được trả về (có thể đến từ cache) để không gắn version mới cho dữ liệu cũ
+            response.eTag(ETags.book(id, book.get().getVersion()));
+        }
+        return response.body(book.get());
     }
 
     @PostMapping
@@ -38,20 +96,28 @@ public class BookController {
         return bookService.saveBook(book);
     }
 
+    // Bulk import: body là CSV (text/csv) hoặc NDJSON (application/x-ndjson), được đọc dạng stream
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<?> importBooks(HttpServletRequest request) throws IOException {
+        try {
+            BookImportReader.Format format = BookImportReader.Format.fromContentType(request.getContentType());
+            return ResponseEntity.ok(bookImportService.importBooks(request.getInputStream(), format));
+        } catch (IllegalArgumentException e) {
+            // Lỗi cả file (header sai, không đọc được body): trả lý do để client sửa file
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
     public ResponseEntity<Book> updateBook(@PathVariable Long id, @RequestBody Book bookDetails) {
-        Optional<Book> optionalBook = bookService.getBookById(id);
-        if (optionalBook.isPresent()) {
-            Book book = optionalBook.get();
-            book.setTitle(bookDetails.getTitle());
-            book.setAuthor(bookDetails.getAuthor());
-            book.setGenre(bookDetails.getGenre());
-            book.setPublishedYear(bookDetails.getPublishedYear());
-            book.setAvailable(bookDetails.isAvailable());
-            return ResponseEntity.ok(bookService.saveBook(book));
+        if (bookService.getBookById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(bookService.updateBook(id, bookDetails));
     }
 
     @DeleteMapping("/{id}")
@@ -66,15 +132,107 @@ public class BookController {
 
     @GetMapping("/available")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public List<Book> getAvailableBooks() {
-        return bookService.getAvailableBooks();
+    public ResponseEntity<List<Book>> getAvailableBooks(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer size,
+                                                        WebRequest request) {
+        BookCursor after;
+        try {
+            after = BookCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = ETags.catalog(catalogVersion.current());
+        if (request.checkNotModified(etag)) {
+            return ETags.notModified(etag);
+        }
+        return toResponse(bookService.getAvailableBooksPage(after, size), etag);
     }
 
+    // Lọc theo tiêu chí, thứ tự (title, id) để phân trang bằng cursor; xếp hạng theo độ liên quan dùng /search/full-text
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public List<Book> searchBooks(@RequestParam(required = false) String title,
-                                 @RequestParam(required = false) String author,
-                                 @RequestParam(required = false) String genre) {
-        return bookService.searchBooks(title, author, genre);
+    public ResponseEntity<List<Book>> searchBooks(@RequestParam(required = false) String title,
+                                                  @RequestParam(required = false) String author,
+                                                  @RequestParam(required = false) String genre,
+                                                  @RequestParam(required = false) Integer yearFrom,
+                                                  @RequestParam(required = false) Integer yearTo,
+                                                  @RequestParam(required = false) Boolean available,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer size,
+                                                  WebRequest request) {
+        // Kiểm tra tham số trước ETag: cursor sai phải nhận 400 kể cả khi If-None-Match khớp
+        BookCursor after;
+        BookSearchCriteria criteria;
+        try {
+            after = BookCursor.decode(cursor);
+            criteria = new BookSearchCriteria(title, author, genre, yearFrom, yearTo, available);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = ETags.catalog(catalogVersion.current());
+        if (request.checkNotModified(etag)) {
+            return ETags.notModified(etag);
+        }
+        return toResponse(bookService.searchBooks(criteria, after, size), etag);
+    }
+
+    // Tìm kiếm full-text có xếp hạng, trả về top-N kết quả phù hợp nhất
+    @GetMapping("/search/full-text")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public List<Book> fullTextSearch(@RequestParam String q,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(defaultValue = "false") boolean availableOnly) {
+        return bookService.fullTextSearch(q, limit, availableOnly);
+    }
+
+    // Bảng xếp hạng sách được mượn nhiều: window = day ("đang hot"), week hoặc all-time
+    @GetMapping("/trending")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<List<PopularBook>> getTrendingBooks(@RequestParam(defaultValue = "day") String window,
+                                                              @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(popularityService.getPopularBooks(window, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Bạn đọc mượn cuốn này cũng mượn...: đọc từ chỉ mục đồng xuất hiện trong bộ nhớ
+    @GetMapping("/{id}/related")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<List<RelatedBook>> getRelatedBooks(@PathVariable Long id,
+                                                             @RequestParam(required = false) Integer limit) {
+        if (bookService.getBookById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(recommendationService.getRelatedBooks(id, limit));
+    }
+
+    // Thống kê cho dashboard, thay cho việc đọc hết danh sách chỉ để đếm
+    @GetMapping("/count")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public Map<String, Long> countBooks() {
+        return Map.of("total", bookService.countBooks());
+    }
+
+    @GetMapping("/available/count")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public Map<String, Long> countAvailableBooks() {
+        return Map.of("available", bookService.countAvailableBooks());
+    }
+
+    @GetMapping("/{id}/availability")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public Map<String, Object> getAvailability(@PathVariable Long id) {
+        return Map.of("bookId", id, "available", bookService.isBookAvailable(id));
+    }
+
+    // etag được đọc từ CatalogVersion trước khi query nên không bao giờ mới hơn dữ liệu trong page
+    private ResponseEntity<List<Book>> toResponse(CursorPage<Book> page, String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE);
+        if (page.hasNext()) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 }
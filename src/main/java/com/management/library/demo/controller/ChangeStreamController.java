@@ -0,0 +1,31 @@
+package com.management.library.demo.controller;
+
+import com.management.library.demo.stream.ChangeStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stream")
+@CrossOrigin(origins = "*")
+public class ChangeStreamController {
+
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    @Autowired
+    private ChangeStream changeStream;
+
+    // Event "book" (availability) cho mọi user; event "loan" chỉ cho LIBRARIAN và ADMIN
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public SseEmitter stream(@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId,
+                             Authentication authentication) {
+        boolean staff = authentication.getAuthorities().stream()
+                .anyMatch(authority -> authority.getAuthority().equals("ROLE_LIBRARIAN")
+                        || authority.getAuthority().equals("ROLE_ADMIN"));
+        return changeStream.subscribe(lastEventId, staff);
+    }
+}
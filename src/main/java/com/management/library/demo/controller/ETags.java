@@ -0,0 +1,47 @@
+package com.management.library.demo.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Strong ETag cho các GET có thể poll được.
+ *
+ * Response có ETag được gắn "Cache-Control: private, no-cache" thay cho no-store mặc định của Spring Security,
+ * để trình duyệt giữ lại bản cũ và tự gửi If-None-Match ở lần poll sau.
+ */
+final class ETags {
+
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ETags() {
+    }
+
+    static String book(Long id, Long version) {
+        return tag("b", id, version);
+    }
+
+    static String member(Long id, Long version) {
+        return tag("m", id, version);
+    }
+
+    static String loan(Long id, Long loanVersion, Long bookVersion, Long memberVersion) {
+        return tag("l", id, loanVersion, bookVersion, memberVersion);
+    }
+
+    static String catalog(String catalogVersion) {
+        return "\"c" + catalogVersion + "\"";
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    private static String tag(String prefix, Object... parts) {
+        StringBuilder etag = new StringBuilder("\"").append(prefix);
+        for (int i = 0; i < parts.length; i++) {
+            etag.append(i == 0 ? "" : "-").append(parts[i]);
+        }
+        return etag.append('"').toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.management.library.demo.controller;
+
+import com.management.library.demo.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export toàn bộ books, members, loans dạng NDJSON (mặc định) hoặc CSV.
+ * Dữ liệu được stream trực tiếp ra response, có thể nén gzip bằng ?gzip=true.
+ */
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+public class ExportController {
+
+    @FunctionalInterface
+    private interface Exporter {
+        void export(OutputStream output, ExportService.Format format) throws IOException;
+    }
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping("/books")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "ndjson") String format,
+                                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        return stream("books", format, gzip, exportService::exportBooks);
+    }
+
+    @GetMapping("/members")
+    public ResponseEntity<StreamingResponseBody> exportMembers(@RequestParam(defaultValue = "ndjson") String format,
+                                                               @RequestParam(defaultValue = "false") boolean gzip) {
+        return stream("members", format, gzip, exportService::exportMembers);
+    }
+
+    @GetMapping("/loans")
+    public ResponseEntity<StreamingResponseBody> exportLoans(@RequestParam(defaultValue = "ndjson") String format,
+                                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        return stream("loans", format, gzip, exportService::exportLoans);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, String format, boolean gzip, Exporter exporter) {
+        ExportService.Format exportFormat;
+        try {
+            exportFormat = ExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, 1 << 16);
+                exporter.export(compressed, exportFormat);
+                compressed.finish();
+            } else {
+                exporter.export(output, exportFormat);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType() + ";charset=UTF-8")
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + "." + exportFormat.getExtension() + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
@@ -1,36 +1,65 @@
 package com.management.library.demo.controller;
 
+import com.management.library.demo.dto.BatchCheckoutRequest;
+import com.management.library.demo.dto.BatchReturnRequest;
+import com.management.library.demo.dto.CursorPage;
+import com.management.library.demo.dto.LoanBatchResult;
+import com.management.library.demo.dto.LoanView;
 import com.management.library.demo.entity.Loan;
 import com.management.library.demo.entity.User;
+import com.management.library.demo.idempotency.IdempotencyInterceptor;
+import com.management.library.demo.repository.LoanRepository;
 import com.management.library.demo.service.LoanService;
+import com.management.library.demo.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/loans")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {HttpHeaders.ETAG, BookController.NEXT_CURSOR_HEADER,
+        IdempotencyInterceptor.REPLAYED_HEADER})
 public class LoanController {
 
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private UserService userService;
+
     // Chỉ LIBRARIAN và ADMIN có thể xem tất cả loans
     @GetMapping
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public List<Loan> getAllLoans() {
-        return loanService.getAllLoans();
+    public List<LoanView> getAllLoans() {
+        return loanService.getAllLoanViews();
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<Loan> getLoanById(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<Loan> getLoanById(@PathVariable Long id, Authentication authentication,
+                                            WebRequest request) {
         User currentUser = (User) authentication.getPrincipal();
+
+        // ETag gồm version của loan, book và member vì cả ba cùng nằm trong response
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<LoanRepository.LoanVersions> versions = loanService.getLoanVersions(id);
+            if (versions.isPresent()) {
+                String etag = ETags.loan(id, versions.get().getLoanVersion(),
+                        versions.get().getBookVersion(), versions.get().getMemberVersion());
+                if (request.checkNotModified(etag)) {
+                    return ETags.notModified(etag);
+                }
+            }
+        }
+
         Optional<Loan> loan = loanService.getLoanById(id);
         
         if (loan.isPresent()) {
@@ -39,7 +68,11 @@ public class LoanController {
                 // TODO: Kiểm tra xem loan này có phải của user hiện tại không
                 // Cần có mối liên hệ giữa User và Member/Loan
             }
-            return ResponseEntity.ok(loan.get());
+            Loan found = loan.get();
+            return ResponseEntity.ok()
+                    .eTag(ETags.loan(id, found.getVersion(), found.getBook().getVersion(), found.getMember().getVersion()))
+                    .cacheControl(ETags.REVALIDATE)
+                    .body(found);
         }
         return ResponseEntity.notFound().build();
     }
@@ -49,7 +82,13 @@ public class LoanController {
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
     public ResponseEntity<Loan> createLoan(@RequestBody Loan loan) {
         try {
-            Loan createdLoan = loanService.saveLoan(loan);
+            // Loan mượn mới đi qua borrowBook để giành sách một cách nguyên tử (sách phải đang available)
+            boolean newBorrow = loan.getId() == null && loan.getBook() != null && loan.getMember() != null
+                    && (loan.getStatus() == null || loan.getStatus() == LoanService.LOAN_STATUS_BORROWED);
+            Loan createdLoan = newBorrow
+                    ? loanService.borrowBook(loan.getBook().getId(), loan.getMember().getId(),
+                            loan.getBorrowDate() != null ? loan.getBorrowDate() : LocalDate.now())
+                    : loanService.saveLoan(loan);
             return ResponseEntity.ok(createdLoan);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
@@ -59,15 +98,11 @@ public class LoanController {
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
     public ResponseEntity<Loan> updateLoan(@PathVariable Long id, @RequestBody Loan loanDetails) {
-        Optional<Loan> optionalLoan = loanService.getLoanById(id);
-        if (optionalLoan.isPresent()) {
-            Loan loan = optionalLoan.get();
-            loan.setBorrowDate(loanDetails.getBorrowDate());
-            loan.setReturnDate(loanDetails.getReturnDate());
-            loan.setStatus(loanDetails.getStatus());
-            return ResponseEntity.ok(loanService.saveLoan(loan));
+        try {
+            return ResponseEntity.ok(loanService.updateLoan(id, loanDetails));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
@@ -83,7 +118,9 @@ public class LoanController {
     // USER có thể xem loans của chính mình, LIBRARIAN và ADMIN xem được của tất cả members
     @GetMapping("/member/{memberId}")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public List<Loan> getLoansByMember(@PathVariable Long memberId, Authentication authentication) {
+    public List<LoanView> getLoansByMember(@PathVariable Long memberId,
+                                           @RequestParam(defaultValue = "false") boolean history,
+                                           Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
         
         // Nếu là USER, chỉ cho phép xem loans của chính mình
@@ -91,21 +128,23 @@ public class LoanController {
             // TODO: Kiểm tra xem memberId này có phải của user hiện tại không
         }
         
-        return loanService.getLoansByMemberId(memberId);
+        // history=true: gộp cả loan đã lưu trữ
+        return loanService.findLoansByMember(memberId, history);
     }
 
     // Chỉ LIBRARIAN và ADMIN có thể xem loans theo book
     @GetMapping("/book/{bookId}")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public List<Loan> getLoansByBook(@PathVariable Long bookId) {
-        return loanService.getLoansByBookId(bookId);
+    public List<LoanView> getLoansByBook(@PathVariable Long bookId,
+                                         @RequestParam(defaultValue = "false") boolean history) {
+        return loanService.findLoansByBook(bookId, history);
     }
 
     // Chỉ LIBRARIAN và ADMIN có thể xem overdue loans
     @GetMapping("/overdue")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public List<Loan> getOverdueLoans() {
-        return loanService.getOverdueLoans();
+    public List<LoanView> getOverdueLoans() {
+        return loanService.getOverdueLoanViews();
     }
 
     // LIBRARIAN và ADMIN có thể process return, USER có thể return sách của mình
@@ -127,13 +166,49 @@ public class LoanController {
         }
     }
 
+    // Quầy thủ thư: mượn nhiều sách cho một member trong một request, kết quả theo từng cuốn
+    @PostMapping("/batch/checkout")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<LoanBatchResult> batchCheckout(@RequestBody BatchCheckoutRequest request) {
+        try {
+            return ResponseEntity.ok(loanService.borrowBooks(request.getMemberId(), request.getBookIds()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Quầy thủ thư: trả nhiều sách theo id loan hoặc id sách, kết quả theo từng item
+    @PostMapping("/batch/return")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<LoanBatchResult> batchReturn(@RequestBody BatchReturnRequest request) {
+        try {
+            return ResponseEntity.ok(loanService.returnBooks(request.getLoanIds(), request.getBookIds()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Endpoint để USER xem lịch sử mượn sách của chính mình
     @GetMapping("/my-loans")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public List<Loan> getMyLoans(Authentication authentication) {
+    public ResponseEntity<List<LoanView>> getMyLoans(@RequestParam(required = false) String status,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size,
+                                                     Authentication authentication) {
         User currentUser = (User) authentication.getPrincipal();
-        // TODO: Implement logic để tìm loans của user hiện tại
-        // Cần có mối liên hệ giữa User và Member/Loan
-        return List.of(); // Placeholder
+        Optional<Long> memberId = userService.findMemberId(currentUser);
+        if (memberId.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        try {
+            CursorPage<LoanView> page = loanService.getLoanViewsPageByMemberId(memberId.get(), status, cursor, size);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.hasNext()) {
+                response.header(BookController.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 }
@@ -1,20 +1,23 @@
 package com.management.library.demo.controller;
 
+import com.management.library.demo.dto.CursorPage;
 import com.management.library.demo.entity.Member;
 import com.management.library.demo.entity.User;
 import com.management.library.demo.service.MemberService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/members")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {BookController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG})
 public class MemberController {
 
     @Autowired
@@ -30,7 +33,8 @@ public class MemberController {
     // USER có thể xem thông tin của chính mình, LIBRARIAN và ADMIN xem được tất cả
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<Member> getMemberById(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<Member> getMemberById(@PathVariable Long id, Authentication authentication,
+                                                WebRequest request) {
         User currentUser = (User) authentication.getPrincipal();
         
         // Nếu là USER, chỉ cho phép xem thông tin của chính mình
@@ -40,8 +44,23 @@ public class MemberController {
             // Tạm thời cho phép xem tất cả cho demo
         }
         
+        // Client đã có bản cũ: so version trước, chỉ load entity khi đã thay đổi
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = memberService.getMemberVersion(id);
+            if (version.isPresent() && request.checkNotModified(ETags.member(id, version.get()))) {
+                return ETags.notModified(ETags.member(id, version.get()));
+            }
+        }
+
         Optional<Member> member = memberService.getMemberById(id);
-        return member.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        if (member.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(ETags.REVALIDATE);
+        if (member.get().getVersion() != null) {
+            response.eTag(ETags.member(id, member.get().getVersion()));
+        }
+        return response.body(member.get());
     }
 
     @PostMapping
@@ -74,11 +93,36 @@ public class MemberController {
         return ResponseEntity.notFound().build();
     }
 
+    // Tìm theo tên hoặc email (q), khớp nhất trước; name/email là tên cũ của q.
+    // Trang kế tiếp: gửi lại cursor từ header X-Next-Cursor
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
-    public List<Member> searchMembers(@RequestParam(required = false) String name,
-                                     @RequestParam(required = false) String email) {
-        return memberService.searchMembers(name, email);
+    public ResponseEntity<List<Member>> searchMembers(@RequestParam(required = false) String q,
+                                                      @RequestParam(required = false) String name,
+                                                      @RequestParam(required = false) String email,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer size) {
+        String query = firstNonBlank(q, name, email);
+        CursorPage<Member> page;
+        try {
+            page = memberService.searchMembers(query, cursor, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            response.header(BookController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                return value;
+            }
+        }
+        return null;
     }
 
     // Endpoint để USER xem thông tin profile của chính mình
@@ -0,0 +1,92 @@
+package com.management.library.demo.controller;
+
+import com.management.library.demo.dto.ReservationRequest;
+import com.management.library.demo.dto.ReservationView;
+import com.management.library.demo.entity.User;
+import com.management.library.demo.service.ReservationService;
+import com.management.library.demo.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/reservations")
+@CrossOrigin(origins = "*")
+public class ReservationController {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private UserService userService;
+
+    // USER giữ chỗ cho chính mình, LIBRARIAN và ADMIN giữ chỗ hộ member
+    @PostMapping
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<ReservationView> reserve(@RequestBody ReservationRequest request,
+                                                   Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        Long memberId = request.getMemberId();
+        if (currentUser.getRole() == User.Role.USER) {
+            Optional<Long> own = userService.findMemberId(currentUser);
+            if (own.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            memberId = own.get();
+        }
+        try {
+            return ResponseEntity.ok(reservationService.reserve(request.getBookId(), memberId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Reservation còn hiệu lực của user hiện tại, kèm vị trí trong hàng đợi
+    @GetMapping("/my")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public List<ReservationView> getMyReservations(Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        return userService.findMemberId(currentUser)
+                .map(reservationService::getReservationsByMember)
+                .orElse(List.of());
+    }
+
+    // Chỉ LIBRARIAN và ADMIN xem được hàng đợi của một cuốn sách
+    @GetMapping("/book/{bookId}")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public List<ReservationView> getQueue(@PathVariable Long bookId) {
+        return reservationService.getQueue(bookId);
+    }
+
+    @GetMapping("/member/{memberId}")
+    @PreAuthorize("hasAnyRole('LIBRARIAN', 'ADMIN')")
+    public List<ReservationView> getReservationsByMember(@PathVariable Long memberId) {
+        return reservationService.getReservationsByMember(memberId);
+    }
+
+    // USER chỉ hủy được reservation của mình
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
+    public ResponseEntity<Void> cancel(@PathVariable Long id, Authentication authentication) {
+        User currentUser = (User) authentication.getPrincipal();
+        Long memberId = null;
+        if (currentUser.getRole() == User.Role.USER) {
+            Optional<Long> own = userService.findMemberId(currentUser);
+            if (own.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            memberId = own.get();
+        }
+        try {
+            reservationService.cancel(id, memberId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
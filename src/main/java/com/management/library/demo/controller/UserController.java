@@ -1,6 +1,7 @@
 package com.management.library.demo.controller;
 
-import com.management.library.demo.entity.Loan;
+import com.management.library.demo.dto.CursorPage;
+import com.management.library.demo.dto.LoanView;
 import com.management.library.demo.entity.User;
 import com.management.library.demo.service.LoanService;
 import com.management.library.demo.service.UserService;
@@ -14,13 +15,14 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * User Controller để USER quản lý profile của chính mình
  */
 @RestController
 @RequestMapping("/api/user")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = BookController.NEXT_CURSOR_HEADER)
 public class UserController {
 
     @Autowired
@@ -178,11 +180,25 @@ public class UserController {
      */
     @GetMapping("/my-loans")
     @PreAuthorize("hasAnyRole('USER', 'LIBRARIAN', 'ADMIN')")
-    public ResponseEntity<List<Loan>> getMyLoans(Authentication authentication) {
+    public ResponseEntity<List<LoanView>> getMyLoans(@RequestParam(required = false) String status,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size,
+                                                     Authentication authentication) {
         try {
             User currentUser = (User) authentication.getPrincipal();
-            List<Loan> loans = loanService.getLoansByUserId(currentUser.getId());
-            return ResponseEntity.ok(loans);
+            Optional<Long> memberId = userService.findMemberId(currentUser);
+            if (memberId.isEmpty()) {
+                return ResponseEntity.ok(List.of());
+            }
+            // Phân trang keyset: trang kế tiếp lấy bằng ?cursor=<giá trị header X-Next-Cursor>
+            CursorPage<LoanView> page = loanService.getLoanViewsPageByMemberId(memberId.get(), status, cursor, size);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.hasNext()) {
+                response.header(BookController.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
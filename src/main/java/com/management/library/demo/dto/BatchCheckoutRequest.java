@@ -0,0 +1,34 @@
+package com.management.library.demo.dto;
+
+import java.util.List;
+
+/**
+ * Mượn nhiều sách cho một member trong một request (quầy thủ thư)
+ */
+public class BatchCheckoutRequest {
+    private Long memberId;
+    private List<Long> bookIds;
+
+    public BatchCheckoutRequest() {}
+
+    public BatchCheckoutRequest(Long memberId, List<Long> bookIds) {
+        this.memberId = memberId;
+        this.bookIds = bookIds;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(Long memberId) {
+        this.memberId = memberId;
+    }
+
+    public List<Long> getBookIds() {
+        return bookIds;
+    }
+
+    public void setBookIds(List<Long> bookIds) {
+        this.bookIds = bookIds;
+    }
+}
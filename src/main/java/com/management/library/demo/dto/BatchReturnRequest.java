@@ -0,0 +1,34 @@
+package com.management.library.demo.dto;
+
+import java.util.List;
+
+/**
+ * Trả nhiều sách trong một request: theo id loan, hoặc theo id sách (loan chưa trả của cuốn đó), hoặc cả hai
+ */
+public class BatchReturnRequest {
+    private List<Long> loanIds;
+    private List<Long> bookIds;
+
+    public BatchReturnRequest() {}
+
+    public BatchReturnRequest(List<Long> loanIds, List<Long> bookIds) {
+        this.loanIds = loanIds;
+        this.bookIds = bookIds;
+    }
+
+    public List<Long> getLoanIds() {
+        return loanIds;
+    }
+
+    public void setLoanIds(List<Long> loanIds) {
+        this.loanIds = loanIds;
+    }
+
+    public List<Long> getBookIds() {
+        return bookIds;
+    }
+
+    public void setBookIds(List<Long> bookIds) {
+        this.bookIds = bookIds;
+    }
+}
@@ -0,0 +1,56 @@
+package com.management.library.demo.dto;
+
+import com.management.library.demo.entity.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Vị trí keyset (title, id) của cuốn sách cuối cùng trong trang trước.
+ * Được mã hóa thành token base64url "mờ" để client chỉ cần gửi lại nguyên văn.
+ */
+public class BookCursor {
+
+    /** Vị trí trước cuốn sách đầu tiên: mọi title đều >= "" và mọi id đều > 0 */
+    public static final BookCursor START = new BookCursor("", 0L);
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final String title;
+    private final Long id;
+
+    public BookCursor(String title, Long id) {
+        this.title = title;
+        this.id = id;
+    }
+
+    public static BookCursor after(Book book) {
+        return new BookCursor(book.getTitle(), book.getId());
+    }
+
+    public static BookCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(SEPARATOR);
+            return new BookCursor(raw.substring(0, sep), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String raw = title + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
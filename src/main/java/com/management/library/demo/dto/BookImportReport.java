@@ -0,0 +1,103 @@
+package com.management.library.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kết quả một lần import sách: số dòng đã đọc/bị loại/được ghi và lỗi theo từng dòng
+ */
+public class BookImportReport {
+
+    /** Giới hạn số lỗi giữ lại để báo cáo không phình theo kích thước file */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long rowsRead;
+    private long rowsRejected;
+    private long inserted;
+    private long updated;
+    private long durationMs;
+    private boolean errorsTruncated;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void addError(long line, String message) {
+        rowsRejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    public void incrementRowsRead() {
+        rowsRead++;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "BookImportReport{" +
+                "rowsRead=" + rowsRead +
+                ", rowsRejected=" + rowsRejected +
+                ", inserted=" + inserted +
+                ", updated=" + updated +
+                ", durationMs=" + durationMs +
+                '}';
+    }
+
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.management.library.demo.dto;
+
+/**
+ * Các tiêu chí tìm sách; mọi tiêu chí khác null được kết hợp bằng AND trong cùng một câu SQL
+ */
+public class BookSearchCriteria {
+    private String title;
+    private String author;
+    private String genre;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Boolean available;
+
+    public BookSearchCriteria() {}
+
+    public BookSearchCriteria(String title, String author, String genre,
+                              Integer yearFrom, Integer yearTo, Boolean available) {
+        this.title = title;
+        this.author = author;
+        this.genre = genre;
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+        this.available = available;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public void setYearFrom(Integer yearFrom) {
+        this.yearFrom = yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    public void setYearTo(Integer yearTo) {
+        this.yearTo = yearTo;
+    }
+
+    public Boolean getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(Boolean available) {
+        this.available = available;
+    }
+}
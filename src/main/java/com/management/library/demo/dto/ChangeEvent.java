@@ -0,0 +1,79 @@
+package com.management.library.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.management.library.demo.entity.LoanStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Payload gọn của một event trên change stream (/api/stream): chỉ đủ để dashboard cập nhật dòng tương ứng,
+ * client cần chi tiết thì gọi lại API của book/loan. Field null không được ghi ra JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+    private final String type;
+    private final Long bookId;
+    private final Boolean available;
+    private final Long loanId;
+    private final Long memberId;
+    private final LoanStatus status;
+    private final LocalDate dueDate;
+    private final LocalDate returnDate;
+
+    private ChangeEvent(String type, Long bookId, Boolean available, Long loanId, Long memberId,
+                        LoanStatus status, LocalDate dueDate, LocalDate returnDate) {
+        this.type = type;
+        this.bookId = bookId;
+        this.available = available;
+        this.loanId = loanId;
+        this.memberId = memberId;
+        this.status = status;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+    }
+
+    /**
+     * available null khi sách bị xóa (type DELETED)
+     */
+    public static ChangeEvent book(String type, Long bookId, Boolean available) {
+        return new ChangeEvent(type, bookId, available, null, null, null, null, null);
+    }
+
+    public static ChangeEvent loan(String type, Long loanId, Long bookId, Long memberId, LoanStatus status,
+                                   LocalDate dueDate, LocalDate returnDate) {
+        return new ChangeEvent(type, bookId, null, loanId, memberId, status, dueDate, returnDate);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Boolean getAvailable() {
+        return available;
+    }
+
+    public Long getLoanId() {
+        return loanId;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public LoanStatus getStatus() {
+        return status;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public LocalDate getReturnDate() {
+        return returnDate;
+    }
+}
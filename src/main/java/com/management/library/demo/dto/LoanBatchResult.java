@@ -0,0 +1,74 @@
+package com.management.library.demo.dto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kết quả mượn/trả theo batch: mỗi phần tử của request có một item, theo đúng thứ tự gửi lên.
+ * Item lỗi không làm hỏng các item còn lại.
+ */
+public class LoanBatchResult {
+
+    private int succeeded;
+    private int failed;
+    private final List<Item> items = new ArrayList<>();
+
+    public void addSuccess(Long bookId, Long loanId, LocalDate dueDate) {
+        succeeded++;
+        items.add(new Item(bookId, loanId, dueDate, true, null));
+    }
+
+    public void addFailure(Long bookId, Long loanId, String error) {
+        failed++;
+        items.add(new Item(bookId, loanId, null, false, error));
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public static class Item {
+        private final Long bookId;
+        private final Long loanId;
+        private final LocalDate dueDate;
+        private final boolean success;
+        private final String error;
+
+        public Item(Long bookId, Long loanId, LocalDate dueDate, boolean success, String error) {
+            this.bookId = bookId;
+            this.loanId = loanId;
+            this.dueDate = dueDate;
+            this.success = success;
+            this.error = error;
+        }
+
+        public Long getBookId() {
+            return bookId;
+        }
+
+        public Long getLoanId() {
+            return loanId;
+        }
+
+        public LocalDate getDueDate() {
+            return dueDate;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.management.library.demo.dto;
+
+import com.management.library.demo.entity.LoanStatus;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Loan dạng phẳng cho các danh sách, được dựng trực tiếp từ một câu JPQL (constructor expression)
+ * nên không load entity Book/Member và không bao giờ chứa password của member.
+ *
+ * JSON giữ dạng book {...} và member {...} như entity Loan để frontend không phải đổi.
+ */
+public class LoanView {
+
+    private final Long id;
+    private final LocalDate borrowDate;
+    private final LocalDate dueDate;
+    private final LocalDate returnDate;
+    private final LoanStatus status;
+    private final BookSummary book;
+    private final MemberSummary member;
+
+    public LoanView(Long id, LocalDate borrowDate, LocalDate dueDate, LocalDate returnDate, LoanStatus status,
+                    Long bookId, String bookTitle, String bookAuthor, String bookGenre,
+                    Long memberId, String memberName, String memberEmail) {
+        this.id = id;
+        this.borrowDate = borrowDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.status = status;
+        this.book = new BookSummary(bookId, bookTitle, bookAuthor, bookGenre);
+        this.member = new MemberSummary(memberId, memberName, memberEmail);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBookId() {
+        return book.getId();
+    }
+
+    public Long getMemberId() {
+        return member.getId();
+    }
+
+    public LocalDate getBorrowDate() {
+        return borrowDate;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    /**
+     * Số ngày quá hạn tính đến ngày trả (hoặc hôm nay nếu chưa trả); 0 nếu chưa quá hạn, null nếu không có dueDate
+     */
+    public Long getDaysOverdue() {
+        if (dueDate == null) {
+            return null;
+        }
+        LocalDate until = returnDate != null ? returnDate : LocalDate.now();
+        return Math.max(0, ChronoUnit.DAYS.between(dueDate, until));
+    }
+
+    public LocalDate getReturnDate() {
+        return returnDate;
+    }
+
+    public LoanStatus getStatus() {
+        return status;
+    }
+
+    public BookSummary getBook() {
+        return book;
+    }
+
+    public MemberSummary getMember() {
+        return member;
+    }
+
+    public static class BookSummary {
+        private final Long id;
+        private final String title;
+        private final String author;
+        private final String genre;
+
+        public BookSummary(Long id, String title, String author, String genre) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+            this.genre = genre;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public String getGenre() {
+            return genre;
+        }
+    }
+
+    public static class MemberSummary {
+        private final Long id;
+        private final String name;
+        private final String email;
+
+        public MemberSummary(Long id, String name, String email) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+    }
+}
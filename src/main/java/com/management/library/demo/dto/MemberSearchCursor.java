@@ -0,0 +1,50 @@
+package com.management.library.demo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Vị trí keyset (score, id) của member cuối cùng trong trang kết quả tìm kiếm trước.
+ * Score là giá trị REAL do database tính nên được giữ nguyên dạng float để so sánh bằng chính xác ở trang sau.
+ */
+public class MemberSearchCursor {
+
+    /** Vị trí trước kết quả đầu tiên: mọi score đều <= 1 và mọi id đều > 0 */
+    public static final MemberSearchCursor START = new MemberSearchCursor(2f, 0L);
+
+    private static final char SEPARATOR = ':';
+
+    private final float score;
+    private final Long id;
+
+    public MemberSearchCursor(float score, Long id) {
+        this.score = score;
+        this.id = id;
+    }
+
+    public static MemberSearchCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(SEPARATOR);
+            return new MemberSearchCursor(Float.parseFloat(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String raw = Float.toString(score) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,48 @@
+package com.management.library.demo.dto;
+
+/**
+ * Một dòng của bảng xếp hạng sách được mượn nhiều. score là số lượt mượn (đã giảm theo thời gian với cửa sổ
+ * day/week), error là mức ước lượng dư tối đa của sketch: số lượt thật nằm trong [score - error, score].
+ */
+public class PopularBook {
+
+    private final Long bookId;
+    private final String title;
+    private final String author;
+    private final boolean available;
+    private final double score;
+    private final double error;
+
+    public PopularBook(Long bookId, String title, String author, boolean available, double score, double error) {
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.available = available;
+        this.score = score;
+        this.error = error;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public double getError() {
+        return error;
+    }
+}
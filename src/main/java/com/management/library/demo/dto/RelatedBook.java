@@ -0,0 +1,35 @@
+package com.management.library.demo.dto;
+
+/**
+ * Một cuốn hay được mượn cùng cuốn đang xem (/api/books/{id}/related), xếp theo số bạn đọc đã mượn cả hai
+ */
+public class RelatedBook {
+
+    private final Long bookId;
+    private final String title;
+    private final String author;
+    private final boolean available;
+
+    public RelatedBook(Long bookId, String title, String author, boolean available) {
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.available = available;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+}
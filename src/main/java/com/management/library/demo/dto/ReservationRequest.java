@@ -0,0 +1,32 @@
+package com.management.library.demo.dto;
+
+/**
+ * Đặt giữ chỗ một cuốn sách. memberId chỉ dùng khi thủ thư đặt hộ; USER luôn đặt cho member của chính mình.
+ */
+public class ReservationRequest {
+    private Long bookId;
+    private Long memberId;
+
+    public ReservationRequest() {}
+
+    public ReservationRequest(Long bookId, Long memberId) {
+        this.bookId = bookId;
+        this.memberId = memberId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(Long memberId) {
+        this.memberId = memberId;
+    }
+}
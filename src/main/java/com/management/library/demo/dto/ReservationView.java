@@ -0,0 +1,81 @@
+package com.management.library.demo.dto;
+
+import com.management.library.demo.entity.Reservation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reservation dạng phẳng, dựng trực tiếp từ JPQL (constructor expression).
+ * position là thứ tự trong hàng đợi (1 = kế tiếp được giữ sách), chỉ có khi status = WAITING.
+ */
+public class ReservationView {
+
+    private final Long id;
+    private final Long bookId;
+    private final String bookTitle;
+    private final Long memberId;
+    private final String memberName;
+    private final Reservation.Status status;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime readyAt;
+    private final LocalDateTime expiresAt;
+    private Integer position;
+
+    public ReservationView(Long id, Long bookId, String bookTitle, Long memberId, String memberName,
+                           Reservation.Status status, LocalDateTime createdAt, LocalDateTime readyAt,
+                           LocalDateTime expiresAt) {
+        this.id = id;
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+        this.memberId = memberId;
+        this.memberName = memberName;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.readyAt = readyAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public String getMemberName() {
+        return memberName;
+    }
+
+    public Reservation.Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getReadyAt() {
+        return readyAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Integer getPosition() {
+        return position;
+    }
+
+    public void setPosition(Integer position) {
+        this.position = position;
+    }
+}
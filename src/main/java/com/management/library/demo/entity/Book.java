@@ -1,25 +1,50 @@
 package com.management.library.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.management.library.demo.search.TextFolding;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_title_id", columnList = "title, id"),
+        @Index(name = "idx_books_available_title_id", columnList = "available, title, id"),
+        @Index(name = "idx_books_year_title_id", columnList = "publishedYear, title, id")
+})
 public class Book {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(nullable = false)
     private String title;
     private String author;
     private String genre;
     private int publishedYear;
     private boolean available;
 
+    // Tăng mỗi lần cập nhật; dùng cho optimistic locking và ETag
+    @Version
+    private Long version;
+
+    // Bản không dấu, chữ thường của title/author (TextFolding) cho tìm kiếm không dấu; GIN trigram trên PostgreSQL
+    @JsonIgnore
+    @Column(name = "title_folded")
+    private String titleFolded;
+
+    @JsonIgnore
+    @Column(name = "author_folded")
+    private String authorFolded;
+
     // Constructors
     public Book() {
     }
@@ -81,6 +106,29 @@ public class Book {
         this.available = available;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getTitleFolded() {
+        return titleFolded;
+    }
+
+    public String getAuthorFolded() {
+        return authorFolded;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void foldSearchColumns() {
+        titleFolded = TextFolding.fold(title);
+        authorFolded = TextFolding.fold(author);
+    }
+
     @Override
     public String toString() {
         return "Book{" +
@@ -92,4 +140,4 @@ public class Book {
                 ", available=" + available +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -1,39 +1,56 @@
 package com.management.library.demo.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Check;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "loans")
+@Table(name = "loans", indexes = {
+        // Lịch sử mượn của một member, mới nhất trước (keyset trên id)
+        @Index(name = "idx_loans_member_id_id", columnList = "member_id, id"),
+        // Loan theo trạng thái của một member, ví dụ các sách đang mượn
+        @Index(name = "idx_loans_member_status_id", columnList = "member_id, status, id")
+})
 public class Loan {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "member_id", nullable = false)
     private Member member;
 
     private LocalDate borrowDate;
+    private LocalDate dueDate;
     private LocalDate returnDate;
-    private String status; // e.g., BORROWED, RETURNED, OVERDUE
+    // SMALLINT (LoanStatusConverter), chỉ nhận các mã đã định nghĩa
+    @Column(nullable = false)
+    @Check(name = "ck_loans_status", constraints = "status IN (1, 2, 3)")
+    private LoanStatus status;
+
+    @Version
+    private Long version;
 
     // Constructors
     public Loan() {
     }
 
-    public Loan(Book book, Member member, LocalDate borrowDate, String status) {
+    public Loan(Book book, Member member, LocalDate borrowDate, LoanStatus status) {
         this.book = book;
         this.member = member;
         this.borrowDate = borrowDate;
@@ -73,6 +90,14 @@ public class Loan {
         this.borrowDate = borrowDate;
     }
 
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(LocalDate dueDate) {
+        this.dueDate = dueDate;
+    }
+
     public LocalDate getReturnDate() {
         return returnDate;
     }
@@ -81,14 +106,22 @@ public class Loan {
         this.returnDate = returnDate;
     }
 
-    public String getStatus() {
+    public LoanStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(LoanStatus status) {
         this.status = status;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Loan{" +
@@ -96,6 +129,7 @@ public class Loan {
                 ", book=" + (book != null ? book.getId() : null) +
                 ", member=" + (member != null ? member.getId() : null) +
                 ", borrowDate=" + borrowDate +
+                ", dueDate=" + dueDate +
                 ", returnDate=" + returnDate +
                 ", status='" + status + "'" +
                 '}';
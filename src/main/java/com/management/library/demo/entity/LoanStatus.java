@@ -0,0 +1,43 @@
+package com.management.library.demo.entity;
+
+/**
+ * Trạng thái loan, lưu trong database dưới dạng SMALLINT (xem {@link LoanStatusConverter}).
+ * Mã số là cố định và được dùng trực tiếp trong native query, partial index và CHECK constraint:
+ * chỉ được thêm mã mới, không đổi mã đã có.
+ */
+public enum LoanStatus {
+    BORROWED(1),
+    RETURNED(2),
+    OVERDUE(3);
+
+    // Mã dùng trong SQL viết tay
+    public static final int BORROWED_CODE = 1;
+    public static final int RETURNED_CODE = 2;
+    public static final int OVERDUE_CODE = 3;
+
+    private final short code;
+
+    LoanStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Loan chưa trả (đang mượn hoặc quá hạn)
+     */
+    public boolean isActive() {
+        return this != RETURNED;
+    }
+
+    public static LoanStatus fromCode(short code) {
+        for (LoanStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown loan status code: " + code);
+    }
+}
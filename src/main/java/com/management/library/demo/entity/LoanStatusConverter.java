@@ -0,0 +1,21 @@
+package com.management.library.demo.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Lưu {@link LoanStatus} bằng mã SMALLINT cố định thay vì ordinal/tên
+ */
+@Converter(autoApply = true)
+public class LoanStatusConverter implements AttributeConverter<LoanStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(LoanStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public LoanStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : LoanStatus.fromCode(code);
+    }
+}
@@ -1,13 +1,23 @@
 package com.management.library.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.management.library.demo.search.TextFolding;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "members")
+@Table(name = "members", indexes = {
+        @Index(name = "idx_members_email", columnList = "email")
+})
 public class Member {
 
     @Id
@@ -16,8 +26,18 @@ public class Member {
 
     private String name;
     private String email;
+    // Chỉ nhận khi ghi (tạo/cập nhật member), không bao giờ xuất ra JSON
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password; // Consider hashing this in a real application
 
+    @Version
+    private Long version;
+
+    // Bản không dấu, chữ thường của name (TextFolding) cho tìm kiếm không dấu; GIN trigram trên PostgreSQL
+    @JsonIgnore
+    @Column(name = "name_folded")
+    private String nameFolded;
+
     // Constructors
     public Member() {
     }
@@ -61,6 +81,24 @@ public class Member {
         this.password = password;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getNameFolded() {
+        return nameFolded;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void foldSearchColumns() {
+        nameFolded = TextFolding.fold(name);
+    }
+
     @Override
     public String toString() {
         return "Member{" +
@@ -0,0 +1,112 @@
+package com.management.library.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+/**
+ * Dấu vết một reminder/expiry đã được bắn từ timing wheel.
+ * Unique (kind, subject_id, deadline) bảo đảm mỗi mốc chỉ được xử lý một lần, kể cả sau restart
+ * hay khi nhiều instance cùng chạy; deadline đổi (ví dụ gia hạn) là một mốc mới.
+ */
+@Entity
+@Table(name = "reminder_deliveries",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reminder_deliveries_kind_subject_deadline",
+                columnNames = {"kind", "subject_id", "deadline"}),
+        indexes = @Index(name = "idx_reminder_deliveries_deadline", columnList = "deadline"))
+public class ReminderDelivery {
+
+    public enum Kind {
+        // Nhắc trước hạn trả và đúng ngày hạn trả của một loan (subject là loan id)
+        LOAN_DUE_SOON, LOAN_DUE,
+        // Hết hạn giữ sách cho một reservation READY (subject là reservation id)
+        HOLD_EXPIRES
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Kind kind;
+
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+
+    @Column(nullable = false)
+    private LocalDateTime deadline;
+
+    @Column(name = "fired_at", nullable = false)
+    private LocalDateTime firedAt = LocalDateTime.now();
+
+    // Constructors
+    public ReminderDelivery() {
+    }
+
+    public ReminderDelivery(Kind kind, Long subjectId, LocalDateTime deadline) {
+        this.kind = kind;
+        this.subjectId = subjectId;
+        this.deadline = deadline;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    public void setSubjectId(Long subjectId) {
+        this.subjectId = subjectId;
+    }
+
+    public LocalDateTime getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(LocalDateTime deadline) {
+        this.deadline = deadline;
+    }
+
+    public LocalDateTime getFiredAt() {
+        return firedAt;
+    }
+
+    public void setFiredAt(LocalDateTime firedAt) {
+        this.firedAt = firedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ReminderDelivery{" +
+                "id=" + id +
+                ", kind=" + kind +
+                ", subjectId=" + subjectId +
+                ", deadline=" + deadline +
+                ", firedAt=" + firedAt +
+                '}';
+    }
+}
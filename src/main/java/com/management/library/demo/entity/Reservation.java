@@ -0,0 +1,145 @@
+package com.management.library.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import java.time.LocalDateTime;
+
+/**
+ * Lượt giữ chỗ một cuốn sách đang được mượn. Hàng đợi của mỗi cuốn là các reservation WAITING theo thứ tự id (FIFO);
+ * khi sách được trả, reservation đầu hàng đợi chuyển sang READY và sách được giữ cho member đó tới expiresAt.
+ */
+@Entity
+@Table(name = "reservations", indexes = {
+        // Đầu hàng đợi của một cuốn sách
+        @Index(name = "idx_reservations_book_status_id", columnList = "book_id, status, id"),
+        // Các reservation của một member
+        @Index(name = "idx_reservations_member_status_id", columnList = "member_id, status, id")
+})
+public class Reservation {
+
+    public enum Status {
+        WAITING, READY, FULFILLED, CANCELLED, EXPIRED;
+
+        /**
+         * Còn trong hàng đợi hoặc đang được giữ sách
+         */
+        public boolean isActive() {
+            return this == WAITING || this == READY;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id", nullable = false)
+    private Book book;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "member_id", nullable = false)
+    private Member member;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Thời điểm sách được giữ cho member và hạn đến lấy (chỉ có khi READY)
+    @Column(name = "ready_at")
+    private LocalDateTime readyAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Version
+    private Long version;
+
+    // Constructors
+    public Reservation() {
+    }
+
+    public Reservation(Book book, Member member) {
+        this.book = book;
+        this.member = member;
+        this.status = Status.WAITING;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+
+    public Member getMember() {
+        return member;
+    }
+
+    public void setMember(Member member) {
+        this.member = member;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getReadyAt() {
+        return readyAt;
+    }
+
+    public void setReadyAt(LocalDateTime readyAt) {
+        this.readyAt = readyAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
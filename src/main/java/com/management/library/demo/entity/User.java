@@ -39,6 +39,10 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Role role = Role.USER;
 
+    // Member (thẻ thư viện) của user; unique nên có index, dùng cho "my loans"
+    @Column(name = "member_id", unique = true)
+    private Long memberId;
+
     @Column(name = "account_non_expired")
     private boolean accountNonExpired = true;
 
@@ -134,6 +138,14 @@ public class User implements UserDetails {
         this.password = password;
     }
 
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(Long memberId) {
+        this.memberId = memberId;
+    }
+
     public String getFirstName() {
         return firstName;
     }
@@ -0,0 +1,52 @@
+package com.management.library.demo.event;
+
+import com.management.library.demo.entity.Book;
+
+/**
+ * Phát ra khi một cuốn sách được tạo/cập nhật hoặc bị xóa.
+ * Listener nên dùng @TransactionalEventListener để chỉ xử lý sau khi commit.
+ */
+public class BookChangedEvent {
+
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    private final Type type;
+    private final Long bookId;
+    private final Book book;
+
+    private BookChangedEvent(Type type, Long bookId, Book book) {
+        this.type = type;
+        this.bookId = bookId;
+        this.book = book;
+    }
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(Type.SAVED, book.getId(), book);
+    }
+
+    public static BookChangedEvent deleted(Long bookId) {
+        return new BookChangedEvent(Type.DELETED, bookId, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    /**
+     * Trạng thái sách tại thời điểm phát event, null nếu type = DELETED
+     */
+    public Book getBook() {
+        return book;
+    }
+
+    @Override
+    public String toString() {
+        return "BookChangedEvent{type=" + type + ", bookId=" + bookId + '}';
+    }
+}
@@ -0,0 +1,23 @@
+package com.management.library.demo.event;
+
+/**
+ * Phát ra sau một lần bulk import catalog. Import ghi set-based bằng SQL nên không có
+ * BookChangedEvent cho từng cuốn; các bản sao trong bộ nhớ cần được dựng lại hoặc xóa.
+ */
+public class CatalogImportedEvent {
+
+    private final long mergedRows;
+
+    public CatalogImportedEvent(long mergedRows) {
+        this.mergedRows = mergedRows;
+    }
+
+    public long getMergedRows() {
+        return mergedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogImportedEvent{mergedRows=" + mergedRows + '}';
+    }
+}
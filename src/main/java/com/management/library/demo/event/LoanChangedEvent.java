@@ -0,0 +1,60 @@
+package com.management.library.demo.event;
+
+import com.management.library.demo.entity.Loan;
+
+/**
+ * Phát ra khi một loan được tạo, trả sách, cập nhật hoặc bị xóa.
+ * Listener nên dùng @TransactionalEventListener để chỉ xử lý sau khi commit.
+ */
+public class LoanChangedEvent {
+
+    public enum Type {
+        BORROWED, RETURNED, SAVED, DELETED
+    }
+
+    private final Type type;
+    private final Long loanId;
+    private final Loan loan;
+
+    private LoanChangedEvent(Type type, Long loanId, Loan loan) {
+        this.type = type;
+        this.loanId = loanId;
+        this.loan = loan;
+    }
+
+    public static LoanChangedEvent borrowed(Loan loan) {
+        return new LoanChangedEvent(Type.BORROWED, loan.getId(), loan);
+    }
+
+    public static LoanChangedEvent returned(Loan loan) {
+        return new LoanChangedEvent(Type.RETURNED, loan.getId(), loan);
+    }
+
+    public static LoanChangedEvent saved(Loan loan) {
+        return new LoanChangedEvent(Type.SAVED, loan.getId(), loan);
+    }
+
+    public static LoanChangedEvent deleted(Long loanId) {
+        return new LoanChangedEvent(Type.DELETED, loanId, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getLoanId() {
+        return loanId;
+    }
+
+    /**
+     * Trạng thái loan tại thời điểm phát event, null nếu type = DELETED
+     */
+    public Loan getLoan() {
+        return loan;
+    }
+
+    @Override
+    public String toString() {
+        return "LoanChangedEvent{type=" + type + ", loanId=" + loanId + '}';
+    }
+}
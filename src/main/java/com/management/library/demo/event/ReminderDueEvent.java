@@ -0,0 +1,40 @@
+package com.management.library.demo.event;
+
+import com.management.library.demo.entity.ReminderDelivery;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phát ra khi timing wheel bắn một reminder/expiry, bên trong transaction ghi ReminderDelivery.
+ * Listener dùng @EventListener để phần việc bền vững (ghi notification, outbox...) commit cùng dấu
+ * "đã bắn": restart không làm mất hay lặp lại mốc.
+ */
+public class ReminderDueEvent {
+
+    private final ReminderDelivery.Kind kind;
+    private final Long subjectId;
+    private final LocalDateTime deadline;
+
+    public ReminderDueEvent(ReminderDelivery.Kind kind, Long subjectId, LocalDateTime deadline) {
+        this.kind = kind;
+        this.subjectId = subjectId;
+        this.deadline = deadline;
+    }
+
+    public ReminderDelivery.Kind getKind() {
+        return kind;
+    }
+
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    public LocalDateTime getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public String toString() {
+        return "ReminderDueEvent{kind=" + kind + ", subjectId=" + subjectId + ", deadline=" + deadline + '}';
+    }
+}
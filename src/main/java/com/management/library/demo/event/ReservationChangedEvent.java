@@ -0,0 +1,56 @@
+package com.management.library.demo.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phát ra khi một reservation vào hàng đợi, được giữ sách, được mượn, bị hủy hoặc hết hạn giữ.
+ * Listener nên dùng @TransactionalEventListener để chỉ xử lý sau khi commit.
+ */
+public class ReservationChangedEvent {
+
+    public enum Type {
+        QUEUED, READY, FULFILLED, CANCELLED, EXPIRED
+    }
+
+    private final Type type;
+    private final Long reservationId;
+    private final Long bookId;
+    private final Long memberId;
+    private final LocalDateTime expiresAt;
+
+    public ReservationChangedEvent(Type type, Long reservationId, Long bookId, Long memberId, LocalDateTime expiresAt) {
+        this.type = type;
+        this.reservationId = reservationId;
+        this.bookId = bookId;
+        this.memberId = memberId;
+        this.expiresAt = expiresAt;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    /**
+     * Hạn đến lấy sách, chỉ có khi type = READY
+     */
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationChangedEvent{type=" + type + ", reservationId=" + reservationId + ", bookId=" + bookId + '}';
+    }
+}
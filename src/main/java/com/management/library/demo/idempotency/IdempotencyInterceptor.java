@@ -0,0 +1,118 @@
+package com.management.library.demo.idempotency;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Idempotency-Key cho các request tạo/trả loan (đăng ký path trong WebConfig).
+ *
+ * Key được tính riêng theo user, method và path, nên hai user dùng trùng key không thấy response của nhau.
+ * Lần đầu: controller chạy bình thường, response (trừ 5xx) được lưu. Lần sau với cùng body: phát lại response đã lưu
+ * kèm header Idempotent-Replayed; khác body: 422; request đầu tiên chưa xong (ở instance khác, hoặc quá wait-timeout): 409.
+ * Request không có header thì đi thẳng như cũ.
+ */
+@Component
+public class IdempotencyInterceptor implements HandlerInterceptor {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String CLAIM_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".claim";
+
+    private record ClaimedKey(String key, String requestHash) {
+    }
+
+    private final IdempotencyStore store;
+
+    @Autowired
+    public IdempotencyInterceptor(IdempotencyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        String idempotencyKey = request.getHeader(HEADER);
+        if (!"POST".equals(request.getMethod()) || idempotencyKey == null) {
+            return true;
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return false;
+        }
+        IdempotencyFilter.CachedBodyRequest body =
+                WebUtils.getNativeRequest(request, IdempotencyFilter.CachedBodyRequest.class);
+        if (body == null || WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class) == null) {
+            // IdempotencyFilter không chạy (ví dụ bị tắt): không lưu được response nên xử lý như request thường
+            return true;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String user = authentication == null ? "" : authentication.getName();
+        String key = sha256((user + '\n' + request.getMethod() + '\n' + request.getRequestURI() + '\n' + idempotencyKey)
+                .getBytes(StandardCharsets.UTF_8));
+        String requestHash = sha256(body.getBody());
+
+        IdempotencyStore.Claim claim = store.claim(key, requestHash);
+        switch (claim.outcome()) {
+            case PROCEED -> {
+                request.setAttribute(CLAIM_ATTRIBUTE, new ClaimedKey(key, requestHash));
+                return true;
+            }
+            case REPLAY -> {
+                IdempotencyStore.StoredResponse stored = claim.response();
+                response.setStatus(stored.status());
+                if (stored.contentType() != null) {
+                    response.setContentType(stored.contentType());
+                }
+                response.setHeader(REPLAYED_HEADER, "true");
+                response.getOutputStream().write(stored.body());
+            }
+            case MISMATCH -> response.setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+            case IN_PROGRESS -> {
+                response.setStatus(HttpStatus.CONFLICT.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(request.getAttribute(CLAIM_ATTRIBUTE) instanceof ClaimedKey claimed)) {
+            return;
+        }
+        ContentCachingResponseWrapper captured = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (ex != null || captured == null || captured.getStatus() >= 500) {
+            store.release(claimed.key());
+        } else {
+            store.complete(claimed.key(), claimed.requestHash(), captured.getStatus(), captured.getContentType(),
+                    captured.getContentAsByteArray());
+        }
+    }
+
+    private static String sha256(byte[] input) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(input));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.management.library.demo.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.management.library.demo.entity.IdempotencyRecord;
+import com.management.library.demo.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lưu response theo Idempotency-Key: cache trong bộ nhớ (Caffeine, giới hạn số key, hết hạn sau ttl),
+ * database (idempotency_keys) làm nguồn chung giữa các instance và sau khi khởi động lại.
+ *
+ * Request trùng key đến khi request đầu tiên còn đang chạy trên cùng instance thì chờ kết quả của request đó
+ * (tối đa wait-timeout) rồi phát lại; trên instance khác thì nhận IN_PROGRESS. Response 5xx và exception
+ * không được lưu để client retry được.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public enum Outcome {
+        // Request đầu tiên với key này: xử lý rồi gọi complete/release
+        PROCEED,
+        // Đã có response: phát lại
+        REPLAY,
+        // Cùng key nhưng khác request body
+        MISMATCH,
+        // Request đầu tiên vẫn đang chạy
+        IN_PROGRESS
+    }
+
+    public record StoredResponse(String requestHash, int status, String contentType, byte[] body) {
+    }
+
+    public record Claim(Outcome outcome, StoredResponse response) {
+
+        static final Claim PROCEED = new Claim(Outcome.PROCEED, null);
+        static final Claim IN_PROGRESS = new Claim(Outcome.IN_PROGRESS, null);
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate writeTransaction;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration lockTimeout;
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyStore(IdempotencyRecordRepository repository, PlatformTransactionManager transactionManager,
+                            @Value("${library.idempotency.ttl:PT24H}") Duration ttl,
+                            @Value("${library.idempotency.cache-size:10000}") long cacheSize,
+                            @Value("${library.idempotency.wait-timeout:PT10S}") Duration waitTimeout,
+                            @Value("${library.idempotency.lock-timeout:PT2M}") Duration lockTimeout) {
+        this.repository = repository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.lockTimeout = lockTimeout;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Giành key cho request. Outcome PROCEED thì bên gọi phải kết thúc bằng complete hoặc release.
+     */
+    public Claim claim(String key, String requestHash) {
+        while (true) {
+            StoredResponse cached = responses.getIfPresent(key);
+            if (cached != null) {
+                return replay(cached, requestHash);
+            }
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                Optional<StoredResponse> result = await(running);
+                if (result == null) {
+                    return Claim.IN_PROGRESS;
+                }
+                if (result.isPresent()) {
+                    return replay(result.get(), requestHash);
+                }
+                // Request đầu tiên không để lại response (5xx, exception, hoặc đang chạy ở instance khác): thử lại
+                continue;
+            }
+            Claim claim;
+            try {
+                claim = claimInDatabase(key, requestHash);
+            } catch (RuntimeException e) {
+                finish(key, mine, null);
+                throw e;
+            }
+            if (claim.outcome() == Outcome.REPLAY) {
+                finish(key, mine, claim.response());
+                return replay(claim.response(), requestHash);
+            }
+            if (claim.outcome() != Outcome.PROCEED) {
+                finish(key, mine, null);
+            }
+            return claim;
+        }
+    }
+
+    /**
+     * Lưu response của request đã giành key và đánh thức các request trùng đang chờ.
+     */
+    public void complete(String key, String requestHash, int status, String contentType, byte[] body) {
+        try {
+            String text = new String(body, StandardCharsets.UTF_8);
+            writeTransaction.executeWithoutResult(tx -> repository.complete(key, status, contentType, text));
+        } catch (RuntimeException e) {
+            // Không lưu được xuống database thì vẫn phát lại được từ bộ nhớ của instance này
+            log.warn("Could not persist idempotent response for key {}: {}", key, e.getMessage());
+        }
+        StoredResponse response = new StoredResponse(requestHash, status, contentType, body);
+        responses.put(key, response);
+        finish(key, inFlight.get(key), response);
+    }
+
+    /**
+     * Bỏ key của request không thành công (5xx hoặc exception) để lần retry được xử lý lại từ đầu.
+     */
+    public void release(String key) {
+        try {
+            writeTransaction.executeWithoutResult(tx -> repository.release(key));
+        } finally {
+            finish(key, inFlight.get(key), null);
+        }
+    }
+
+    @Scheduled(cron = "${library.idempotency.purge-cron:0 45 3 * * *}")
+    public void purgeExpired() {
+        Integer purged = writeTransaction.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    // Bỏ cache trong bộ nhớ, lần đọc sau đi xuống database (dùng khi test)
+    void evictAll() {
+        responses.invalidateAll();
+    }
+
+    private Claim claimInDatabase(String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+        try {
+            writeTransaction.executeWithoutResult(tx -> repository.claim(key, requestHash, now, expiresAt));
+            return Claim.PROCEED;
+        } catch (DataIntegrityViolationException e) {
+            // Key đã có: xem là response đã lưu, request đang chạy, hay dòng cũ giành lại được
+        }
+        Claim claim = writeTransaction.execute(tx -> {
+            if (repository.reclaim(key, requestHash, now, expiresAt, now.minus(lockTimeout)) > 0) {
+                return Claim.PROCEED;
+            }
+            return repository.findById(key)
+                    .map(record -> {
+                        if (record.getStatusCode() == null) {
+                            return requestHash.equals(record.getRequestHash()) ? Claim.IN_PROGRESS
+                                    : new Claim(Outcome.MISMATCH, null);
+                        }
+                        return new Claim(Outcome.REPLAY, toResponse(record));
+                    })
+                    // Dòng vừa bị release/purge giữa hai câu lệnh: coi như đang chạy, client retry
+                    .orElse(Claim.IN_PROGRESS);
+        });
+        if (claim.outcome() == Outcome.REPLAY) {
+            responses.put(key, claim.response());
+        }
+        return claim;
+    }
+
+    private static Claim replay(StoredResponse response, String requestHash) {
+        if (response.requestHash() != null && !response.requestHash().equals(requestHash)) {
+            return new Claim(Outcome.MISMATCH, null);
+        }
+        return new Claim(Outcome.REPLAY, response);
+    }
+
+    // null: hết thời gian chờ; Optional.empty(): request đầu tiên kết thúc mà không có response để phát lại
+    private Optional<StoredResponse> await(CompletableFuture<StoredResponse> running) {
+        try {
+            return Optional.ofNullable(running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void finish(String key, CompletableFuture<StoredResponse> running, StoredResponse response) {
+        if (running != null) {
+            inFlight.remove(key, running);
+            running.complete(response);
+        }
+    }
+
+    private static StoredResponse toResponse(IdempotencyRecord record) {
+        byte[] body = record.getBody() == null ? new byte[0] : record.getBody().getBytes(StandardCharsets.UTF_8);
+        return new StoredResponse(record.getRequestHash(), record.getStatusCode(), record.getContentType(), body);
+    }
+}
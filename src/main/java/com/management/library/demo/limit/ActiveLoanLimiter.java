@@ -0,0 +1,340 @@
+package com.management.library.demo.limit;
+
+import com.management.library.demo.entity.User;
+import com.management.library.demo.repository.LoanLimitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Giới hạn số sách một member được mượn cùng lúc, theo role của user gắn với member (member không có user
+ * dùng library.loans.limit.member; giới hạn 0 = không giới hạn).
+ *
+ * Số loan chưa trả của mỗi member nằm trong bộ nhớ, chia thành STRIPES stripe theo member id, mỗi stripe một lock,
+ * nên kiểm tra giới hạn khi mượn không tốn round trip nào tới database. Mỗi member có hai con số: active là số loan
+ * đã commit, reserved là số lượt mượn đang chạy trong transaction chưa commit. Lượt mượn giữ chỗ trong reserved
+ * trước khi insert; sau khi commit chuyển sang active, rollback thì trả lại. Trả sách chỉ trừ active sau khi commit.
+ *
+ * Lúc khởi động đọc số loan chưa trả của mọi member từ loans. Trong lúc đang đọc, giới hạn được kiểm tra bằng
+ * một câu COUNT (không chặn được hai lượt mượn đồng thời của cùng member), và member có loan thay đổi trong lúc
+ * đó được đánh dấu stale. Member stale (kể cả sau khi sửa loan trực tiếp hay đổi role) được đếm lại từ database
+ * ở lượt mượn kế tiếp.
+ */
+@Component
+public class ActiveLoanLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveLoanLimiter.class);
+
+    private static final int STRIPES = 64;
+
+    // Đếm lại bị bỏ nếu bộ đếm thay đổi trong lúc query; sau vài lần thì dùng bộ đếm hiện có
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+
+    private final LoanLimitRepository loanLimitRepository;
+    private final TransactionTemplate readTransaction;
+    private final int memberLimit;
+    private final Map<User.Role, Integer> roleLimits = new EnumMap<>(User.Role.class);
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    // Chỉ ghi khi giữ lock this
+    private volatile boolean loaded;
+    private final Set<Long> touchedWhileLoading = new HashSet<>();
+
+    @Autowired
+    public ActiveLoanLimiter(LoanLimitRepository loanLimitRepository, PlatformTransactionManager transactionManager,
+                             @Value("${library.loans.limit.member:5}") int memberLimit,
+                             @Value("${library.loans.limit.user:5}") int userLimit,
+                             @Value("${library.loans.limit.librarian:10}") int librarianLimit,
+                             @Value("${library.loans.limit.admin:0}") int adminLimit) {
+        this.loanLimitRepository = loanLimitRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.memberLimit = memberLimit;
+        roleLimits.put(User.Role.USER, userLimit);
+        roleLimits.put(User.Role.LIBRARIAN, librarianLimit);
+        roleLimits.put(User.Role.ADMIN, adminLimit);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        Map<Long, Counter> snapshot = new HashMap<>();
+        readTransaction.executeWithoutResult(status -> {
+            loanLimitRepository.streamMemberRoles((memberId, role) ->
+                    snapshot.computeIfAbsent(memberId, id -> new Counter()).role = parseRole(role));
+            loanLimitRepository.streamActiveCounts((memberId, active) ->
+                    snapshot.computeIfAbsent(memberId, id -> new Counter()).active = active);
+        });
+        synchronized (this) {
+            for (Map.Entry<Long, Counter> entry : snapshot.entrySet()) {
+                Stripe stripe = stripeOf(entry.getKey());
+                synchronized (stripe) {
+                    stripe.members.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (Long memberId : touchedWhileLoading) {
+                markStale(memberId);
+            }
+            touchedWhileLoading.clear();
+            loaded = true;
+        }
+        log.info("Active loan counters loaded for {} members in {} ms", snapshot.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Giữ chỗ tối đa requested lượt mượn cho member trong transaction hiện tại; trả về số lượt được phép
+     * (0 nếu đã chạm giới hạn). Bên gọi dùng ít hơn thì trả phần thừa bằng {@link #release(long, int)}.
+     */
+    public int reserve(long memberId, int requested) {
+        TransactionState transaction = currentTransaction();
+        Delta delta = transaction.delta(memberId);
+        int granted;
+        if (!transaction.loadedAtStart) {
+            int limit = limitFor(loanLimitRepository.findRole(memberId).map(ActiveLoanLimiter::parseRole).orElse(null));
+            granted = grant(requested, limit, loanLimitRepository.countActive(memberId));
+        } else {
+            Stripe stripe = stripeOf(memberId);
+            refreshIfStale(memberId, stripe, delta);
+            synchronized (stripe) {
+                Counter counter = stripe.members.computeIfAbsent(memberId, id -> new Counter());
+                granted = grant(requested, limitFor(counter.role), counter.active + counter.reserved);
+                counter.reserved += granted;
+            }
+        }
+        delta.reserved += granted;
+        return granted;
+    }
+
+    /**
+     * Trả lại count lượt đã giữ chỗ nhưng không dùng (sách không mượn được)
+     */
+    public void release(long memberId, int count) {
+        TransactionState transaction = currentTransaction();
+        if (count <= 0) {
+            return;
+        }
+        transaction.delta(memberId).reserved -= count;
+        if (transaction.loadedAtStart) {
+            Stripe stripe = stripeOf(memberId);
+            synchronized (stripe) {
+                Counter counter = stripe.members.get(memberId);
+                if (counter != null) {
+                    counter.reserved -= count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ghi nhận count loan của member đã được trả trong transaction hiện tại; trừ vào bộ đếm sau khi commit
+     */
+    public void returned(long memberId, int count) {
+        currentTransaction().delta(memberId).returned += count;
+    }
+
+    /**
+     * Loan của member bị sửa hoặc xóa trực tiếp (không qua mượn/trả): đếm lại sau khi commit
+     */
+    public void changed(long memberId) {
+        currentTransaction().delta(memberId).changed = true;
+    }
+
+    /**
+     * Role của user gắn với member đã đổi (hoặc user vừa được gắn member): đọc lại role sau khi commit
+     */
+    public void roleChanged(long memberId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markStaleOrTouch(memberId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    markStaleOrTouch(memberId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Số loan chưa trả đã commit của member theo bộ đếm trong bộ nhớ
+     */
+    public int activeLoans(long memberId) {
+        Stripe stripe = stripeOf(memberId);
+        synchronized (stripe) {
+            Counter counter = stripe.members.get(memberId);
+            return counter == null ? 0 : counter.active;
+        }
+    }
+
+    private int limitFor(User.Role role) {
+        return role == null ? memberLimit : roleLimits.get(role);
+    }
+
+    private static int grant(int requested, int limit, int used) {
+        return limit <= 0 ? requested : Math.max(0, Math.min(requested, limit - used));
+    }
+
+    // Đếm lại ngoài lock; chỉ ghi đè nếu không có commit nào của member xen vào giữa lúc đó
+    private void refreshIfStale(long memberId, Stripe stripe, Delta delta) {
+        for (int attempt = 1; attempt <= MAX_REFRESH_ATTEMPTS; attempt++) {
+            long version;
+            synchronized (stripe) {
+                Counter counter = stripe.members.get(memberId);
+                if (counter == null || !counter.stale) {
+                    return;
+                }
+                version = counter.version;
+            }
+            User.Role role = loanLimitRepository.findRole(memberId).map(ActiveLoanLimiter::parseRole).orElse(null);
+            // COUNT trong transaction hiện tại thấy cả loan transaction này đã mượn/trả mà chưa commit
+            int active = loanLimitRepository.countActive(memberId) - delta.reserved + delta.returned;
+            synchronized (stripe) {
+                Counter counter = stripe.members.get(memberId);
+                if (counter != null && counter.version == version) {
+                    counter.active = Math.max(0, active);
+                    counter.role = role;
+                    counter.stale = false;
+                    return;
+                }
+            }
+        }
+        log.warn("Active loan counter for member {} kept changing during refresh, using in-memory value", memberId);
+    }
+
+    private void markStaleOrTouch(long memberId) {
+        synchronized (this) {
+            if (!loaded) {
+                touchedWhileLoading.add(memberId);
+                return;
+            }
+        }
+        markStale(memberId);
+    }
+
+    private void markStale(long memberId) {
+        Stripe stripe = stripeOf(memberId);
+        synchronized (stripe) {
+            Counter counter = stripe.members.computeIfAbsent(memberId, id -> new Counter());
+            counter.stale = true;
+            counter.version++;
+        }
+    }
+
+    private void complete(TransactionState transaction, boolean committed) {
+        for (Map.Entry<Long, Delta> entry : transaction.deltas.entrySet()) {
+            long memberId = entry.getKey();
+            Delta delta = entry.getValue();
+            if (!transaction.loadedAtStart) {
+                // Bản đọc lúc khởi động có thể đã hoặc chưa thấy thay đổi này
+                if (committed) {
+                    markStaleOrTouch(memberId);
+                }
+                continue;
+            }
+            Stripe stripe = stripeOf(memberId);
+            synchronized (stripe) {
+                Counter counter = stripe.members.computeIfAbsent(memberId, id -> new Counter());
+                counter.reserved -= delta.reserved;
+                if (committed) {
+                    counter.active += delta.reserved - delta.returned;
+                    counter.version++;
+                    if (delta.changed || counter.active < 0) {
+                        counter.active = Math.max(0, counter.active);
+                        counter.stale = true;
+                    }
+                }
+                if (counter.isEmpty()) {
+                    stripe.members.remove(memberId);
+                }
+            }
+        }
+    }
+
+    private TransactionState currentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Loan limits must be checked inside a transaction");
+        }
+        TransactionState transaction = (TransactionState) TransactionSynchronizationManager.getResource(this);
+        if (transaction == null) {
+            transaction = new TransactionState(loaded);
+            TransactionSynchronizationManager.bindResource(this, transaction);
+            TransactionSynchronizationManager.registerSynchronization(transaction);
+        }
+        return transaction;
+    }
+
+    private Stripe stripeOf(long memberId) {
+        return stripes[(int) ((memberId * 0x9E3779B97F4A7C15L) >>> 58)];
+    }
+
+    private static User.Role parseRole(String role) {
+        return role == null ? null : User.Role.valueOf(role);
+    }
+
+    private static final class Stripe {
+        private final Map<Long, Counter> members = new HashMap<>();
+    }
+
+    private static final class Counter {
+        private int active;
+        private int reserved;
+        private User.Role role;
+        private boolean stale;
+        // Tăng mỗi khi active hoặc role thay đổi, để lần đếm lại biết có commit xen vào hay không
+        private long version;
+
+        private boolean isEmpty() {
+            return active == 0 && reserved == 0 && role == null && !stale;
+        }
+    }
+
+    // Thay đổi của một member trong một transaction
+    private static final class Delta {
+        private int reserved;
+        private int returned;
+        private boolean changed;
+    }
+
+    private final class TransactionState implements TransactionSynchronization {
+        private final boolean loadedAtStart;
+        private final Map<Long, Delta> deltas = new HashMap<>();
+
+        private TransactionState(boolean loadedAtStart) {
+            this.loadedAtStart = loadedAtStart;
+        }
+
+        private Delta delta(long memberId) {
+            return deltas.computeIfAbsent(memberId, id -> new Delta());
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ActiveLoanLimiter.this);
+            complete(this, status == STATUS_COMMITTED);
+            if (status == STATUS_UNKNOWN) {
+                // Không biết đã commit hay chưa: đếm lại từ database
+                deltas.keySet().forEach(ActiveLoanLimiter.this::markStaleOrTouch);
+            }
+        }
+    }
+}
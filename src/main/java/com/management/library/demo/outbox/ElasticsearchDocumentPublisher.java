@@ -0,0 +1,54 @@
+package com.management.library.demo.outbox;
+
+import com.management.library.demo.search.BookDocument;
+import com.management.library.demo.search.LoanDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.DeleteQuery;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+@Component
+public class ElasticsearchDocumentPublisher implements SearchDocumentPublisher {
+
+    private final ElasticsearchOperations operations;
+
+    @Autowired
+    public ElasticsearchDocumentPublisher(ElasticsearchOperations operations) {
+        this.operations = operations;
+    }
+
+    @Override
+    public void upsertBooks(Collection<BookDocument> books) {
+        if (!books.isEmpty()) {
+            operations.save(books);
+        }
+    }
+
+    @Override
+    public void deleteBooks(Collection<Long> bookIds) {
+        deleteByIds(bookIds, BookDocument.class);
+    }
+
+    @Override
+    public void upsertLoans(Collection<LoanDocument> loans) {
+        if (!loans.isEmpty()) {
+            operations.save(loans);
+        }
+    }
+
+    @Override
+    public void deleteLoans(Collection<Long> loanIds) {
+        deleteByIds(loanIds, LoanDocument.class);
+    }
+
+    private void deleteByIds(Collection<Long> ids, Class<?> documentType) {
+        if (!ids.isEmpty()) {
+            CriteriaQuery query = new CriteriaQuery(Criteria.where("id").in(ids));
+            operations.delete(DeleteQuery.builder(query).build(), documentType);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.management.library.demo.outbox;
+
+import com.management.library.demo.entity.OutboxEvent;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Ghi outbox đồng bộ trong transaction của BookService/LoanService:
+ * thay đổi nghiệp vụ và bản ghi outbox cùng commit hoặc cùng rollback.
+ */
+@Component
+public class OutboxRecorder {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    public OutboxRecorder(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onBookChanged(BookChangedEvent event) {
+        outboxEventRepository.save(new OutboxEvent(OutboxEvent.AggregateType.BOOK, event.getBookId()));
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onLoanChanged(LoanChangedEvent event) {
+        outboxEventRepository.save(new OutboxEvent(OutboxEvent.AggregateType.LOAN, event.getLoanId()));
+    }
+}
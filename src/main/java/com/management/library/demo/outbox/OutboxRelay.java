@@ -0,0 +1,163 @@
+package com.management.library.demo.outbox;
+
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.OutboxEvent;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.OutboxEventRepository;
+import com.management.library.demo.search.BookDocument;
+import com.management.library.demo.search.LoanDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Đọc outbox theo thứ tự id, bulk-publish sang Elasticsearch và đánh dấu đã publish (checkpoint).
+ *
+ * Mỗi batch được gộp theo aggregate và luôn publish trạng thái hiện tại trong database,
+ * nên việc gửi lại (retry) hay xử lý không đúng thứ tự đều không làm sai dữ liệu phía Elasticsearch.
+ * Khi publish lỗi, batch không được đánh dấu và relay chờ theo exponential backoff rồi thử lại.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final SearchDocumentPublisher publisher;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int batchSize;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    private int consecutiveFailures;
+    private LocalDateTime nextAttemptAt = LocalDateTime.MIN;
+
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       BookRepository bookRepository,
+                       LoanRepository loanRepository,
+                       SearchDocumentPublisher publisher,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${library.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${library.outbox.relay.max-backoff:PT5M}") Duration maxBackoff,
+                       @Value("${library.outbox.retention:P1D}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.publisher = publisher;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${library.outbox.relay.interval-ms:1000}")
+    public synchronized void relay() {
+        if (LocalDateTime.now().isBefore(nextAttemptAt)) {
+            return;
+        }
+        try {
+            // Xả hết backlog trong một lần chạy, mỗi vòng là một bulk request
+            while (relayBatch() == batchSize) {
+                // tiếp tục batch kế tiếp
+            }
+            consecutiveFailures = 0;
+        } catch (RuntimeException e) {
+            consecutiveFailures++;
+            Duration backoff = backoff(consecutiveFailures);
+            nextAttemptAt = LocalDateTime.now().plus(backoff);
+            log.warn("Outbox relay failed ({} consecutive), retrying in {}s: {}",
+                    consecutiveFailures, backoff.toSeconds(), e.getMessage());
+        }
+    }
+
+    /**
+     * Publish một batch outbox đang chờ; trả về số bản ghi đã được checkpoint
+     */
+    public int relayBatch() {
+        List<OutboxEvent> pending = readTransaction.execute(status ->
+                outboxEventRepository.findPending(PageRequest.of(0, batchSize)));
+        if (pending == null || pending.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> bookIds = new LinkedHashSet<>();
+        Set<Long> loanIds = new LinkedHashSet<>();
+        List<Long> eventIds = new ArrayList<>(pending.size());
+        for (OutboxEvent event : pending) {
+            eventIds.add(event.getId());
+            if (event.getAggregateType() == OutboxEvent.AggregateType.BOOK) {
+                bookIds.add(event.getAggregateId());
+            } else {
+                loanIds.add(event.getAggregateId());
+            }
+        }
+
+        publishBooks(bookIds);
+        publishLoans(loanIds);
+
+        writeTransaction.executeWithoutResult(status ->
+                outboxEventRepository.markPublished(eventIds, LocalDateTime.now()));
+        return pending.size();
+    }
+
+    @Scheduled(cron = "${library.outbox.purge-cron:0 0 * * * *}")
+    public void purgePublished() {
+        Integer purged = writeTransaction.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} published outbox events", purged);
+        }
+    }
+
+    private void publishBooks(Set<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        List<BookDocument> documents = readTransaction.execute(status ->
+                bookRepository.findAllById(bookIds).stream().map(BookDocument::from).toList());
+        Set<Long> deleted = new LinkedHashSet<>(bookIds);
+        documents.forEach(document -> deleted.remove(document.getId()));
+        publisher.upsertBooks(documents);
+        publisher.deleteBooks(deleted);
+    }
+
+    private void publishLoans(Set<Long> loanIds) {
+        if (loanIds.isEmpty()) {
+            return;
+        }
+        List<LoanDocument> documents = readTransaction.execute(status -> {
+            List<Loan> loans = loanRepository.findAllWithBookAndMemberById(loanIds);
+            return loans.stream().map(LoanDocument::from).toList();
+        });
+        Set<Long> deleted = new LinkedHashSet<>(loanIds);
+        documents.forEach(document -> deleted.remove(document.getId()));
+        publisher.upsertLoans(documents);
+        publisher.deleteLoans(deleted);
+    }
+
+    private Duration backoff(int failures) {
+        long seconds = 1L << Math.min(failures, 16);
+        Duration backoff = Duration.ofSeconds(seconds);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -0,0 +1,21 @@
+package com.management.library.demo.outbox;
+
+import com.management.library.demo.search.BookDocument;
+import com.management.library.demo.search.LoanDocument;
+
+import java.util.Collection;
+
+/**
+ * Đích đến của outbox relay. Mỗi lời gọi là một bulk request;
+ * implementation phải idempotent vì relay có thể gửi lại cùng một batch khi retry.
+ */
+public interface SearchDocumentPublisher {
+
+    void upsertBooks(Collection<BookDocument> books);
+
+    void deleteBooks(Collection<Long> bookIds);
+
+    void upsertLoans(Collection<LoanDocument> loans);
+
+    void deleteLoans(Collection<Long> loanIds);
+}
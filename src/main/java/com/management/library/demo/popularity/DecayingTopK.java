@@ -0,0 +1,139 @@
+package com.management.library.demo.popularity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Top-k theo thuật toán Space-Saving (Metwally và cộng sự) với trọng số giảm dần theo thời gian.
+ *
+ * Chỉ giữ tối đa capacity counter: item mới khi đã đầy thay chỗ counter nhỏ nhất và kế thừa giá trị của nó làm
+ * sai số. Mọi item có điểm thật lớn hơn (tổng điểm / capacity) chắc chắn nằm trong sketch, và điểm ước lượng
+ * của mỗi item lớn hơn điểm thật tối đa {@link Entry#error()}.
+ *
+ * Giảm dần kiểu "forward decay": một lượt lúc t có trọng số e^((t - landmark) / tau), còn khi đọc thì nhân với
+ * e^(-(now - landmark) / tau), nên không phải giảm từng counter theo thời gian. Khi hệ số tăng quá lớn, mọi counter
+ * được chia lại và landmark dời tới hiện tại. tau = null: không giảm (đếm toàn thời gian).
+ *
+ * Class an toàn khi dùng từ nhiều thread; mọi thao tác là O(log capacity).
+ */
+public class DecayingTopK {
+
+    // e^20 ≈ 4.85e8: còn xa giới hạn double nên không mất độ chính xác đáng kể
+    private static final double MAX_EXPONENT = 20;
+
+    public record Entry(long itemId, double score, double error) {
+    }
+
+    private static final class Counter {
+        private final long itemId;
+        private double count;
+        private double error;
+
+        private Counter(long itemId, double count, double error) {
+            this.itemId = itemId;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private static final Comparator<Counter> BY_COUNT =
+            Comparator.<Counter>comparingDouble(counter -> counter.count).thenComparingLong(counter -> counter.itemId);
+
+    private final int capacity;
+    private final double tauMillis;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long landmarkMillis;
+
+    public DecayingTopK(int capacity, Long tauMillis, long nowMillis) {
+        if (capacity <= 0 || (tauMillis != null && tauMillis <= 0)) {
+            throw new IllegalArgumentException("Invalid top-k sketch: capacity=" + capacity + ", tau=" + tauMillis + "ms");
+        }
+        this.capacity = capacity;
+        this.tauMillis = tauMillis == null ? Double.POSITIVE_INFINITY : tauMillis;
+        this.landmarkMillis = nowMillis;
+    }
+
+    /**
+     * Cộng weight lượt cho item tại thời điểm atMillis (có thể ở quá khứ, ví dụ khi nạp lại từ database)
+     */
+    public synchronized void add(long itemId, double weight, long atMillis) {
+        offer(itemId, weight * growth(atMillis), 0);
+    }
+
+    /**
+     * Nạp lại một counter từ checkpoint: score và error là giá trị đã giảm tới thời điểm atMillis
+     */
+    public synchronized void restore(long itemId, double score, double error, long atMillis) {
+        double factor = growth(atMillis);
+        offer(itemId, score * factor, error * factor);
+    }
+
+    /**
+     * k item có điểm cao nhất, điểm đã giảm tới nowMillis
+     */
+    public synchronized List<Entry> top(int k, long nowMillis) {
+        double factor = decay(nowMillis);
+        List<Entry> result = new ArrayList<>(Math.min(k, counters.size()));
+        Iterator<Counter> iterator = byCount.descendingIterator();
+        while (iterator.hasNext() && result.size() < k) {
+            Counter counter = iterator.next();
+            result.add(new Entry(counter.itemId, counter.count * factor, counter.error * factor));
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    private void offer(long itemId, double count, double error) {
+        Counter counter = counters.get(itemId);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += count;
+            counter.error += error;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(itemId, count, error);
+            counters.put(itemId, counter);
+        } else {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.itemId);
+            counter = new Counter(itemId, smallest.count + count, smallest.count + error);
+            counters.put(itemId, counter);
+        }
+        byCount.add(counter);
+    }
+
+    // Trọng số của một lượt tại atMillis so với landmark; dời landmark nếu hệ số quá lớn
+    private double growth(long atMillis) {
+        if (Double.isInfinite(tauMillis)) {
+            return 1;
+        }
+        if ((atMillis - landmarkMillis) / tauMillis > MAX_EXPONENT) {
+            rescale(atMillis);
+        }
+        return Math.exp((atMillis - landmarkMillis) / tauMillis);
+    }
+
+    private double decay(long nowMillis) {
+        return Double.isInfinite(tauMillis) ? 1 : Math.exp(-(nowMillis - landmarkMillis) / tauMillis);
+    }
+
+    private void rescale(long nowMillis) {
+        double factor = decay(nowMillis);
+        for (Counter counter : counters.values()) {
+            counter.count *= factor;
+            counter.error *= factor;
+        }
+        // Nhân cùng một hệ số giữ nguyên thứ tự, nhưng làm tròn có thể tạo giá trị bằng nhau: dựng lại cho chắc
+        byCount.clear();
+        byCount.addAll(counters.values());
+        landmarkMillis = nowMillis;
+    }
+}
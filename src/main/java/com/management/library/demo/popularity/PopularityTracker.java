@@ -0,0 +1,252 @@
+package com.management.library.demo.popularity;
+
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.repository.PopularityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Bảng xếp hạng sách được mượn nhiều, giữ hoàn toàn trong bộ nhớ thay vì GROUP BY trên bảng loans.
+ *
+ * Mỗi cửa sổ là một {@link DecayingTopK}: DAY và WEEK giảm dần với hằng số thời gian 1 ngày / 7 ngày
+ * ("đang hot" / "tuần này"), ALL_TIME không giảm. Sketch được cộng theo LoanChangedEvent BORROWED sau commit
+ * (borrowBook, mượn theo batch, mượn sách đang giữ chỗ).
+ *
+ * Định kỳ ghi checkpoint xuống popularity_counters kèm id loan lớn nhất đã tính; lúc khởi động nạp checkpoint
+ * rồi cộng các loan sau id đó (không có checkpoint thì dựng lại từ loans và loan_history). Loan mượn trong lúc
+ * đang nạp được giữ lại và cộng sau.
+ *
+ * Commit không đến theo thứ tự id: loan id nhỏ có thể commit sau loan id lớn hơn. Vì vậy các id đã tính trong
+ * late-commit-margin id dưới id lớn nhất được ghi nhớ (và lưu cùng checkpoint); loan trong khoảng đó chỉ được
+ * tính nếu chưa có trong tập này, và lúc khởi động khoảng đó được quét lại. Chỉ loan commit muộn hơn cả margin
+ * mới có thể bị bỏ sót.
+ */
+@Component
+public class PopularityTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(PopularityTracker.class);
+
+    // Ngày mượn khi dựng lại từ database chỉ có ngày, coi như mượn lúc giữa ngày
+    private static final LocalTime REBUILD_TIME_OF_DAY = LocalTime.NOON;
+
+    public enum Window {
+        DAY(Duration.ofDays(1)), WEEK(Duration.ofDays(7)), ALL_TIME(null);
+
+        private final Duration decay;
+
+        Window(Duration decay) {
+            this.decay = decay;
+        }
+
+        /**
+         * day, week, all-time (không phân biệt hoa thường)
+         */
+        public static Window parse(String value) {
+            return Window.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final PopularityRepository popularityRepository;
+    private final TransactionTemplate writeTransaction;
+    private final int capacity;
+    private final long lateCommitMargin;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<Window, DecayingTopK> sketches = new EnumMap<>(Window.class);
+
+    // Các field dưới đây chỉ đọc/ghi khi giữ lock this
+    private boolean loaded;
+    private boolean dirty;
+    // Loan id <= floor coi như đã xử lý xong; counted là các id đã tính lớn hơn floor
+    private long floor;
+    private final TreeSet<Long> counted = new TreeSet<>();
+    private long lastLoanId;
+    private final List<long[]> pending = new ArrayList<>();
+
+    @Autowired
+    public PopularityTracker(PopularityRepository popularityRepository, PlatformTransactionManager transactionManager,
+                             @Value("${library.popularity.capacity:1000}") int capacity,
+                             @Value("${library.popularity.late-commit-margin:10000}") long lateCommitMargin) {
+        this.popularityRepository = popularityRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.lateCommitMargin = Math.max(0, lateCommitMargin);
+        long now = System.currentTimeMillis();
+        for (Window window : Window.values()) {
+            sketches.put(window, new DecayingTopK(capacity, window.decay == null ? null : window.decay.toMillis(), now));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        TransactionTemplate readTransaction = new TransactionTemplate(writeTransaction.getTransactionManager());
+        readTransaction.setReadOnly(true);
+        // Các câu query dưới đây phải thấy cùng một snapshot, nếu không loan commit xen giữa sẽ bị tính thiếu/trùng
+        readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        TreeSet<Long> loadedIds = new TreeSet<>();
+        long[] marks = new long[2];
+        Boolean fromCheckpoint = readTransaction.execute(status -> {
+            Optional<PopularityRepository.Checkpoint> checkpoint = popularityRepository.loadCheckpoint();
+            long now = System.currentTimeMillis();
+            long upTo = 0;
+            long low = 0;
+            if (checkpoint.isPresent()) {
+                PopularityRepository.Checkpoint saved = checkpoint.get();
+                long at = toMillis(saved.checkpointedAt());
+                for (PopularityRepository.SavedCounter counter : saved.counters()) {
+                    sketches.get(Window.valueOf(counter.window()))
+                            .restore(counter.bookId(), counter.score(), counter.error(), at);
+                }
+                upTo = saved.lastLoanId();
+                low = saved.lowLoanId();
+                loadedIds.addAll(saved.countedLoanIds());
+                // Loan commit muộn: id dưới mốc checkpoint nhưng chưa được tính
+                popularityRepository.streamBorrowsBetween(low, upTo, borrow -> {
+                    if (loadedIds.add(borrow.loanId())) {
+                        addBorrows(borrow.bookId(), borrow.borrowDate(), 1, now);
+                    }
+                });
+            }
+            long[] maxLoanId = {upTo};
+            popularityRepository.streamDailyBorrowsAfter(upTo, borrows -> {
+                addBorrows(borrows.bookId(), borrows.borrowDate(), borrows.count(), now);
+                maxLoanId[0] = Math.max(maxLoanId[0], borrows.maxLoanId());
+            });
+            // Phần vừa gộp theo ngày: ghi nhớ id trong margin để loan commit muộn sau đó không bị bỏ qua hay tính trùng
+            long newLow = Math.max(low, maxLoanId[0] - lateCommitMargin);
+            popularityRepository.streamBorrowsBetween(Math.max(newLow, upTo), maxLoanId[0],
+                    borrow -> loadedIds.add(borrow.loanId()));
+            marks[0] = newLow;
+            marks[1] = maxLoanId[0];
+            return checkpoint.isPresent();
+        });
+        synchronized (this) {
+            floor = marks[0];
+            counted.addAll(loadedIds);
+            lastLoanId = Math.max(lastLoanId, marks[1]);
+            advanceFloor();
+            for (long[] borrow : pending) {
+                apply(borrow[0], borrow[1], borrow[2]);
+            }
+            pending.clear();
+            loaded = true;
+            dirty = true;
+        }
+        log.info("Popularity sketches loaded ({}) up to loan {} in {} ms", Boolean.TRUE.equals(fromCheckpoint)
+                ? "checkpoint + catch-up" : "rebuilt from loans", marks[1], System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event) {
+        Loan loan = event.getLoan();
+        if (event.getType() != LoanChangedEvent.Type.BORROWED || loan == null || loan.getBook() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (loaded) {
+                apply(event.getLoanId(), loan.getBook().getId(), now);
+            } else {
+                pending.add(new long[]{event.getLoanId(), loan.getBook().getId(), now});
+            }
+        }
+    }
+
+    /**
+     * Tối đa limit sách có điểm cao nhất trong cửa sổ, điểm đã giảm tới hiện tại
+     */
+    public List<DecayingTopK.Entry> top(Window window, int limit) {
+        return sketches.get(window).top(Math.min(limit, capacity), System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${library.popularity.checkpoint-ms:300000}")
+    public void checkpoint() {
+        List<PopularityRepository.SavedCounter> counters = new ArrayList<>();
+        LocalDateTime checkpointedAt = LocalDateTime.now();
+        long now = toMillis(checkpointedAt);
+        long watermark;
+        long low;
+        List<Long> countedIds;
+        // Chụp sketch, các mốc id và tập id đã tính cùng lúc để lần nạp sau không tính thiếu hay tính trùng
+        synchronized (this) {
+            if (!loaded || !dirty) {
+                return;
+            }
+            for (Map.Entry<Window, DecayingTopK> sketch : sketches.entrySet()) {
+                for (DecayingTopK.Entry entry : sketch.getValue().top(capacity, now)) {
+                    counters.add(new PopularityRepository.SavedCounter(
+                            sketch.getKey().name(), entry.itemId(), entry.score(), entry.error()));
+                }
+            }
+            watermark = lastLoanId;
+            low = floor;
+            countedIds = new ArrayList<>(counted);
+            dirty = false;
+        }
+        try {
+            writeTransaction.executeWithoutResult(status ->
+                    popularityRepository.saveCheckpoint(counters, checkpointedAt, watermark, low, countedIds));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    private void apply(long loanId, long bookId, long atMillis) {
+        // Đã được tính (trong phần nạp từ database hoặc sự kiện trùng), hoặc commit muộn hơn cả margin
+        if (loanId <= floor || !counted.add(loanId)) {
+            return;
+        }
+        for (DecayingTopK sketch : sketches.values()) {
+            sketch.add(bookId, 1, atMillis);
+        }
+        lastLoanId = Math.max(lastLoanId, loanId);
+        advanceFloor();
+        dirty = true;
+    }
+
+    // Chỉ giữ id đã tính trong margin dưới id lớn nhất
+    private void advanceFloor() {
+        floor = Math.max(floor, lastLoanId - lateCommitMargin);
+        counted.headSet(floor, true).clear();
+    }
+
+    // Ngày mượn khi dựng lại từ database chỉ có ngày; loan không có ngày mượn chỉ tính vào ALL_TIME
+    private void addBorrows(long bookId, LocalDate borrowDate, long count, long now) {
+        long at = borrowDate == null ? now : Math.min(now, toMillis(borrowDate.atTime(REBUILD_TIME_OF_DAY)));
+        for (Map.Entry<Window, DecayingTopK> sketch : sketches.entrySet()) {
+            if (borrowDate != null || sketch.getKey() == Window.ALL_TIME) {
+                sketch.getValue().add(bookId, count, at);
+            }
+        }
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,269 @@
+package com.management.library.demo.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Ma trận đồng xuất hiện sách - sách ("ai mượn cuốn này cũng mượn..."): hai cuốn được tính một lần mỗi khi
+ * một member mượn cuốn này trong khi cuốn kia nằm trong cửa sổ historySize cuốn khác nhau mượn gần nhất của member.
+ *
+ * Mỗi cuốn chỉ giữ tối đa neighbours * 3/2 hàng xóm (id và số lần trong hai mảng long[]/int[]); khi đầy, danh sách
+ * được cắt còn neighbours hàng xóm có số lần cao nhất (xấp xỉ như top-k: hàng xóm bị cắt đếm lại từ đầu).
+ * Với 20 hàng xóm, một cuốn tốn tối đa khoảng 400 byte, nên 1 triệu đầu sách vừa vài trăm MB.
+ *
+ * Sách được chia vào các shard theo id, mỗi shard có lock riêng: đọc một cuốn chỉ khóa shard của nó, và khi dựng lại
+ * mỗi thread ghi đúng một shard nên không tranh lock. Cửa sổ lịch sử của member có lock riêng.
+ */
+public class CoOccurrenceIndex {
+
+    private final int neighbours;
+    private final int historySize;
+    private final Shard[] shards;
+    private final LongObjectHashMap<MemberHistory> histories = new LongObjectHashMap<>(1024);
+
+    public CoOccurrenceIndex(int neighbours, int historySize, int shardCount) {
+        if (neighbours <= 0 || historySize <= 0 || shardCount <= 0) {
+            throw new IllegalArgumentException("Invalid co-occurrence index: neighbours=" + neighbours
+                    + ", historySize=" + historySize + ", shards=" + shardCount);
+        }
+        this.neighbours = neighbours;
+        this.historySize = historySize;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Ghi nhận một lượt mượn: cuốn mới được ghép với các cuốn trong cửa sổ của member.
+     * Cuốn đã nằm trong cửa sổ (mượn lại) không tạo cặp mới.
+     */
+    public void recordBorrow(long memberId, long bookId) {
+        long[] previous;
+        synchronized (histories) {
+            previous = histories.computeIfAbsent(memberId, id -> new MemberHistory()).append(bookId, historySize);
+        }
+        if (previous == null) {
+            return;
+        }
+        for (long other : previous) {
+            increment(bookId, other);
+            increment(other, bookId);
+        }
+    }
+
+    /**
+     * Tối đa limit cuốn hay được mượn cùng bookId, theo số lần giảm dần
+     */
+    public long[] related(long bookId, int limit) {
+        Shard shard = shardOf(bookId);
+        synchronized (shard) {
+            Neighbours entry = shard.books.get(bookId);
+            return entry == null ? new long[0] : entry.top(limit);
+        }
+    }
+
+    /**
+     * Dựng lại từ lịch sử mượn. Mỗi phần tử của borrowSequences là các cuốn một member đã mượn theo thứ tự,
+     * đã qua {@link #newSequenceBuilder(long)} nên cặp được tạo đúng như khi gọi recordBorrow lần lượt.
+     * Mỗi shard do một task trên executor dựng; chỉ gọi trên index vừa tạo, trước khi nhận recordBorrow.
+     */
+    public void build(List<SequenceBuilder> borrowSequences, ExecutorService executor)
+            throws InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            int owner = i;
+            tasks.add(() -> {
+                Shard shard = shards[owner];
+                synchronized (shard) {
+                    for (SequenceBuilder member : borrowSequences) {
+                        long[] sequence = member.sequence;
+                        for (int j = 1; j < member.length; j++) {
+                            for (int k = Math.max(0, j - historySize); k < j; k++) {
+                                if (shardIndex(sequence[j]) == owner) {
+                                    shard.increment(sequence[j], sequence[k], neighbours);
+                                }
+                                if (shardIndex(sequence[k]) == owner) {
+                                    shard.increment(sequence[k], sequence[j], neighbours);
+                                }
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        for (Future<Void> result : executor.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Co-occurrence build failed", e.getCause());
+            }
+        }
+        synchronized (histories) {
+            for (SequenceBuilder member : borrowSequences) {
+                histories.computeIfAbsent(member.memberId, id -> member.history);
+            }
+        }
+    }
+
+    /**
+     * Gom lịch sử mượn của một member khi dựng lại: chỉ giữ các lượt mượn tạo cặp mới (giống recordBorrow)
+     */
+    public SequenceBuilder newSequenceBuilder(long memberId) {
+        return new SequenceBuilder(memberId, historySize);
+    }
+
+    public int bookCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                count += shard.books.size();
+            }
+        }
+        return count;
+    }
+
+    private void increment(long bookId, long otherId) {
+        Shard shard = shardOf(bookId);
+        synchronized (shard) {
+            shard.increment(bookId, otherId, neighbours);
+        }
+    }
+
+    private Shard shardOf(long bookId) {
+        return shards[shardIndex(bookId)];
+    }
+
+    private int shardIndex(long bookId) {
+        return (int) Math.floorMod(bookId * 0x9E3779B97F4A7C15L >>> 17, (long) shards.length);
+    }
+
+    public static final class SequenceBuilder {
+
+        private final long memberId;
+        private final int historySize;
+        private final MemberHistory history = new MemberHistory();
+        private long[] sequence = new long[4];
+        private int length;
+
+        private SequenceBuilder(long memberId, int historySize) {
+            this.memberId = memberId;
+            this.historySize = historySize;
+        }
+
+        public long memberId() {
+            return memberId;
+        }
+
+        public void add(long bookId) {
+            if (history.append(bookId, historySize) == null) {
+                return;
+            }
+            if (length == sequence.length) {
+                sequence = Arrays.copyOf(sequence, length * 2);
+            }
+            sequence[length++] = bookId;
+        }
+    }
+
+    private static final class Shard {
+        private final LongObjectHashMap<Neighbours> books = new LongObjectHashMap<>(1024);
+
+        private void increment(long bookId, long otherId, int neighbours) {
+            books.computeIfAbsent(bookId, id -> new Neighbours()).increment(otherId, neighbours);
+        }
+    }
+
+    /**
+     * historySize cuốn khác nhau mượn gần nhất của một member, cũ nhất trước
+     */
+    private static final class MemberHistory {
+        private long[] books = new long[4];
+        private int size;
+
+        // Các cuốn trong cửa sổ trước khi thêm bookId, null nếu bookId đã có trong cửa sổ
+        private long[] append(long bookId, int historySize) {
+            for (int i = 0; i < size; i++) {
+                if (books[i] == bookId) {
+                    return null;
+                }
+            }
+            long[] previous = Arrays.copyOf(books, size);
+            if (size == historySize) {
+                System.arraycopy(books, 1, books, 0, size - 1);
+                size--;
+            } else if (size == books.length) {
+                books = Arrays.copyOf(books, Math.min(historySize, size * 2));
+            }
+            books[size++] = bookId;
+            return previous;
+        }
+    }
+
+    /**
+     * Hàng xóm của một cuốn: id và số lần trong hai mảng song song, chưa sắp xếp
+     */
+    private static final class Neighbours {
+        private long[] ids = new long[2];
+        private int[] counts = new int[2];
+        private int size;
+
+        private void increment(long otherId, int neighbours) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == otherId) {
+                    counts[i]++;
+                    return;
+                }
+            }
+            int limit = neighbours + neighbours / 2;
+            if (size == limit) {
+                prune(neighbours);
+            } else if (size == ids.length) {
+                int capacity = Math.min(limit, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            ids[size] = otherId;
+            counts[size] = 1;
+            size++;
+        }
+
+        private long[] top(int limit) {
+            int n = Math.min(limit, size);
+            long[] sortedIds = Arrays.copyOf(ids, size);
+            int[] sortedCounts = Arrays.copyOf(counts, size);
+            selectTop(sortedIds, sortedCounts, size, n);
+            return Arrays.copyOf(sortedIds, n);
+        }
+
+        // Giữ keep hàng xóm có số lần cao nhất
+        private void prune(int keep) {
+            selectTop(ids, counts, size, keep);
+            size = keep;
+        }
+
+        // Selection sort một phần: k vị trí đầu là k phần tử lớn nhất theo thứ tự giảm dần (n nhỏ nên O(n·k) là đủ)
+        private static void selectTop(long[] ids, int[] counts, int n, int k) {
+            for (int i = 0; i < k; i++) {
+                int best = i;
+                for (int j = i + 1; j < n; j++) {
+                    if (counts[j] > counts[best] || (counts[j] == counts[best] && ids[j] < ids[best])) {
+                        best = j;
+                    }
+                }
+                long id = ids[i];
+                ids[i] = ids[best];
+                ids[best] = id;
+                int count = counts[i];
+                counts[i] = counts[best];
+                counts[best] = count;
+            }
+        }
+    }
+}
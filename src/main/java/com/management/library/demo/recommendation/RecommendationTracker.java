@@ -0,0 +1,151 @@
+package com.management.library.demo.recommendation;
+
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.repository.BorrowHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Giữ {@link CoOccurrenceIndex} cho "bạn đọc mượn cuốn này cũng mượn...".
+ *
+ * Lúc khởi động đọc toàn bộ loans và loan_history theo member rồi dựng chỉ mục song song trên build-threads thread
+ * (mỗi thread một shard). Sau đó chỉ mục được cập nhật theo LoanChangedEvent BORROWED sau commit; loan mượn trong
+ * lúc đang dựng được giữ lại và cộng sau, loan đã nằm trong phần dựng thì bỏ qua theo id.
+ * Id loan không commit theo thứ tự, nên các id đã tính trong late-commit-margin dưới id lớn nhất được nhớ lại
+ * để loan commit muộn với id nhỏ hơn vẫn được cộng đúng một lần.
+ */
+@Component
+public class RecommendationTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationTracker.class);
+
+    private final BorrowHistoryRepository borrowHistoryRepository;
+    private final TransactionTemplate readTransaction;
+    private final int buildThreads;
+    private final long lateCommitMargin;
+    private final CoOccurrenceIndex index;
+
+    // Các field dưới đây chỉ đọc/ghi khi giữ lock this
+    private boolean loaded;
+    private long lastLoanId;
+    // Loan id <= floor coi như đã xử lý xong; counted là các id đã tính lớn hơn floor
+    private long floor;
+    private final TreeSet<Long> counted = new TreeSet<>();
+    private final List<long[]> pending = new ArrayList<>();
+
+    @Autowired
+    public RecommendationTracker(BorrowHistoryRepository borrowHistoryRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${library.recommendations.neighbours:20}") int neighbours,
+                                 @Value("${library.recommendations.member-history:20}") int memberHistory,
+                                 @Value("${library.recommendations.build-threads:0}") int buildThreads,
+                                 @Value("${library.recommendations.late-commit-margin:10000}") long lateCommitMargin) {
+        this.borrowHistoryRepository = borrowHistoryRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.buildThreads = buildThreads > 0 ? buildThreads : Runtime.getRuntime().availableProcessors();
+        this.lateCommitMargin = Math.max(0, lateCommitMargin);
+        this.index = new CoOccurrenceIndex(neighbours, memberHistory, this.buildThreads);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() throws InterruptedException {
+        long started = System.currentTimeMillis();
+        List<CoOccurrenceIndex.SequenceBuilder> sequences = new ArrayList<>();
+        long[] watermark = new long[1];
+        // Quét theo member nên id không tăng dần: chỉ giữ các id trong margin dưới id lớn nhất đã thấy
+        TreeSet<Long> loadedIds = new TreeSet<>();
+        readTransaction.executeWithoutResult(status -> borrowHistoryRepository.streamBorrowsByMember(
+                (loanId, memberId, bookId) -> {
+                    CoOccurrenceIndex.SequenceBuilder current = sequences.isEmpty() ? null
+                            : sequences.get(sequences.size() - 1);
+                    if (current == null || current.memberId() != memberId) {
+                        current = index.newSequenceBuilder(memberId);
+                        sequences.add(current);
+                    }
+                    current.add(bookId);
+                    if (loanId > watermark[0] - lateCommitMargin) {
+                        loadedIds.add(loanId);
+                    }
+                    if (loanId > watermark[0]) {
+                        watermark[0] = loanId;
+                        loadedIds.headSet(loanId - lateCommitMargin, true).clear();
+                    }
+                }));
+        ExecutorService executor = Executors.newFixedThreadPool(buildThreads);
+        try {
+            index.build(sequences, executor);
+        } finally {
+            executor.shutdown();
+        }
+        synchronized (this) {
+            lastLoanId = watermark[0];
+            floor = watermark[0] - lateCommitMargin;
+            counted.addAll(loadedIds);
+            for (long[] borrow : pending) {
+                if (markCounted(borrow[0])) {
+                    index.recordBorrow(borrow[1], borrow[2]);
+                }
+            }
+            pending.clear();
+            loaded = true;
+        }
+        log.info("Co-occurrence index built from {} members ({} books) up to loan {} in {} ms", sequences.size(),
+                index.bookCount(), watermark[0], System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event) {
+        Loan loan = event.getLoan();
+        if (event.getType() != LoanChangedEvent.Type.BORROWED || loan == null
+                || loan.getBook() == null || loan.getMember() == null) {
+            return;
+        }
+        long[] borrow = {event.getLoanId(), loan.getMember().getId(), loan.getBook().getId()};
+        synchronized (this) {
+            if (!loaded) {
+                pending.add(borrow);
+                return;
+            }
+            if (!markCounted(borrow[0])) {
+                return;
+            }
+        }
+        index.recordBorrow(borrow[1], borrow[2]);
+    }
+
+    /**
+     * Id các sách hay được mượn cùng bookId, nhiều nhất trước
+     */
+    public long[] related(long bookId, int limit) {
+        return index.related(bookId, limit);
+    }
+
+    // Gọi khi giữ lock this. False nếu loan đã được tính (khi dựng từ database hoặc sự kiện trùng)
+    // hoặc commit muộn hơn cả margin
+    private boolean markCounted(long loanId) {
+        if (loanId <= floor || !counted.add(loanId)) {
+            return false;
+        }
+        lastLoanId = Math.max(lastLoanId, loanId);
+        // Chỉ giữ id đã tính trong margin dưới id lớn nhất
+        floor = Math.max(floor, lastLoanId - lateCommitMargin);
+        counted.headSet(floor, true).clear();
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+package com.management.library.demo.reminder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timing wheel phân cấp (kiểu Linux kernel timer): mỗi tầng có 64 slot, tầng l chứa các timer
+ * hết hạn trong khoảng [64^l, 64^(l+1)) tick kể từ hiện tại. Khi tầng dưới quay hết một vòng,
+ * slot tương ứng của tầng trên được "cascade" xuống tầng dưới.
+ *
+ * Thêm và hủy timer là O(1) (bucket là danh sách liên kết đôi, tra theo key qua HashMap);
+ * mỗi timer bị cascade tối đa (số tầng - 1) lần trước khi hết hạn.
+ * Timer xa hơn tầm của wheel nằm ở tầng trên cùng và được xếp lại mỗi vòng quay.
+ *
+ * Class an toàn khi dùng từ nhiều thread; callback không chạy bên trong wheel, {@link #advance(long)}
+ * trả về danh sách value đã hết hạn để bên gọi xử lý ngoài lock.
+ */
+public class HierarchicalTimingWheel<K, V> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final Node<K, V>[][] buckets;
+    private final Node<K, V> expired = new Node<>(null, null, 0);
+    private final Map<K, Node<K, V>> timers = new HashMap<>();
+
+    private long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, int levels, long nowMillis) {
+        if (tickMillis <= 0 || levels <= 0 || levels * WHEEL_BITS >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Invalid timing wheel: tick=" + tickMillis + "ms, levels=" + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.buckets = new Node[levels][WHEEL_SIZE];
+        for (Node<K, V>[] level : buckets) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                level[slot] = new Node<>(null, null, 0);
+            }
+        }
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    /**
+     * Đặt (hoặc đặt lại) timer cho key; deadline đã qua thì value được trả về ở lần advance kế tiếp
+     */
+    public synchronized void schedule(K key, long deadlineMillis, V value) {
+        Node<K, V> previous = timers.remove(key);
+        if (previous != null) {
+            previous.unlink();
+        }
+        // Làm tròn lên: timer không bao giờ chạy trước deadline
+        Node<K, V> node = new Node<>(key, value, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        timers.put(key, node);
+        place(node);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Node<K, V> node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    public synchronized boolean contains(K key) {
+        return timers.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    /**
+     * Quay wheel tới thời điểm nowMillis và trả về value của các timer đã hết hạn, theo thứ tự hết hạn
+     */
+    public synchronized List<V> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        List<V> fired = new ArrayList<>();
+        drain(expired, fired);
+        while (currentTick < targetTick) {
+            if (timers.isEmpty()) {
+                // Wheel rỗng: nhảy thẳng tới đích thay vì quay từng tick
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            Node<K, V> slot = detach(buckets[0][(int) (currentTick & WHEEL_MASK)]);
+            while (slot.next != slot) {
+                Node<K, V> node = slot.next;
+                node.unlink();
+                if (node.expiryTick > currentTick) {
+                    place(node);
+                } else {
+                    timers.remove(node.key);
+                    fired.add(node.value);
+                }
+            }
+            drain(expired, fired);
+        }
+        return fired;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < levels; level++) {
+            int shift = WHEEL_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            // Tách bucket ra trước: timer ngoài tầm có thể được xếp lại đúng vào slot đang cascade
+            Node<K, V> slot = detach(buckets[level][(int) ((currentTick >> shift) & WHEEL_MASK)]);
+            while (slot.next != slot) {
+                Node<K, V> node = slot.next;
+                node.unlink();
+                place(node);
+            }
+        }
+    }
+
+    private void place(Node<K, V> node) {
+        long delta = node.expiryTick - currentTick;
+        if (delta <= 0) {
+            node.linkBefore(expired);
+            return;
+        }
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS;
+        if (level >= levels) {
+            // Ngoài tầm của wheel: slot hiện tại của tầng trên cùng, được xếp lại sau một vòng đầy đủ
+            level = levels - 1;
+            node.linkBefore(buckets[level][(int) ((currentTick >> (WHEEL_BITS * level)) & WHEEL_MASK)]);
+            return;
+        }
+        node.linkBefore(buckets[level][(int) ((node.expiryTick >> (WHEEL_BITS * level)) & WHEEL_MASK)]);
+    }
+
+    // Chuyển toàn bộ bucket sang một danh sách tạm, bucket trở lại rỗng
+    private Node<K, V> detach(Node<K, V> bucket) {
+        Node<K, V> list = new Node<>(null, null, 0);
+        if (bucket.next != bucket) {
+            list.next = bucket.next;
+            list.prev = bucket.prev;
+            list.next.prev = list;
+            list.prev.next = list;
+            bucket.next = bucket;
+            bucket.prev = bucket;
+        }
+        return list;
+    }
+
+    private void drain(Node<K, V> list, List<V> fired) {
+        while (list.next != list) {
+            Node<K, V> node = list.next;
+            node.unlink();
+            timers.remove(node.key);
+            fired.add(node.value);
+        }
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long expiryTick;
+        private Node<K, V> prev = this;
+        private Node<K, V> next = this;
+
+        private Node(K key, V value, long expiryTick) {
+            this.key = key;
+            this.value = value;
+            this.expiryTick = expiryTick;
+        }
+
+        private void linkBefore(Node<K, V> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+}
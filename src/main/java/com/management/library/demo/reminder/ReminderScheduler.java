@@ -0,0 +1,247 @@
+package com.management.library.demo.reminder;
+
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.ReminderDelivery;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.event.ReminderDueEvent;
+import com.management.library.demo.event.ReservationChangedEvent;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.ReminderDeliveryRepository;
+import com.management.library.demo.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Nhắc hạn trả bằng timing wheel trong bộ nhớ thay vì quét bảng loans định kỳ.
+ *
+ * Wheel được nạp lúc khởi động từ các loan chưa trả, sau đó cập nhật theo LoanChangedEvent
+ * (borrow/return/update) sau khi commit. Mỗi mốc khi bắn được ghi vào reminder_deliveries cùng
+ * transaction với {@link ReminderDueEvent}: lúc nạp lại, các mốc đã ghi được bỏ qua, các mốc bị lỡ
+ * trong lúc ứng dụng tắt (trong cửa sổ library.reminders.catch-up) được bắn bù.
+ *
+ * Hạn giữ sách của reservation READY (HOLD_EXPIRES) cũng chạy trên wheel này; mốc này luôn được bắn bù
+ * dù đã lỡ bao lâu, vì sách chỉ được chuyển cho người kế tiếp khi mốc được xử lý.
+ */
+@Component
+public class ReminderScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    // 64^5 tick: với tick 1 giây wheel bao được khoảng 34 năm
+    private static final int WHEEL_LEVELS = 5;
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    private static final List<ReminderDelivery.Kind> LOAN_KINDS =
+            List.of(ReminderDelivery.Kind.LOAN_DUE_SOON, ReminderDelivery.Kind.LOAN_DUE);
+
+    private final LoanRepository loanRepository;
+    private final ReminderDeliveryRepository reminderDeliveryRepository;
+    private final ReservationRepository reservationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final HierarchicalTimingWheel<TimerKey, Reminder> wheel;
+    private final Period dueSoonLead;
+    private final LocalTime sendAt;
+    private final Duration catchUp;
+    private final Duration retention;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    @Autowired
+    public ReminderScheduler(LoanRepository loanRepository,
+                             ReminderDeliveryRepository reminderDeliveryRepository,
+                             ReservationRepository reservationRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${library.reminders.tick-ms:1000}") long tickMillis,
+                             @Value("${library.reminders.due-soon-lead:P2D}") Period dueSoonLead,
+                             @Value("${library.reminders.send-at:09:00}") LocalTime sendAt,
+                             @Value("${library.reminders.catch-up:P7D}") Duration catchUp,
+                             @Value("${library.reminders.retention:P30D}") Duration retention) {
+        this.loanRepository = loanRepository;
+        this.reminderDeliveryRepository = reminderDeliveryRepository;
+        this.reservationRepository = reservationRepository;
+        this.eventPublisher = eventPublisher;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, WHEEL_LEVELS, System.currentTimeMillis());
+        this.dueSoonLead = dueSoonLead;
+        this.sendAt = sendAt;
+        this.catchUp = catchUp;
+        this.retention = retention.compareTo(catchUp) > 0 ? retention : catchUp;
+    }
+
+    /**
+     * Nạp wheel từ các loan chưa trả, bỏ qua các mốc đã bắn (theo reminder_deliveries)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        LocalDateTime since = LocalDateTime.now().minus(catchUp);
+        Set<Reminder> fired = readTransaction.execute(status ->
+                reminderDeliveryRepository.findByDeadlineGreaterThanEqual(since).stream()
+                        .map(delivery -> new Reminder(delivery.getKind(), delivery.getSubjectId(), delivery.getDeadline()))
+                        .collect(Collectors.toSet()));
+        List<LoanRepository.ActiveDueDate> active = readTransaction.execute(status -> loanRepository.findActiveDueDates());
+        for (LoanRepository.ActiveDueDate loan : active) {
+            for (ReminderDelivery.Kind kind : LOAN_KINDS) {
+                Reminder reminder = loanReminder(kind, loan.getLoanId(), loan.getDueDate());
+                if (!reminder.deadline().isBefore(since) && !fired.contains(reminder)) {
+                    wheel.schedule(reminder.key(), toMillis(reminder.deadline()), reminder);
+                }
+            }
+        }
+        List<ReservationRepository.HoldExpiry> holds = readTransaction.execute(status -> reservationRepository.findAllHolds());
+        for (ReservationRepository.HoldExpiry hold : holds) {
+            Reminder reminder = new Reminder(ReminderDelivery.Kind.HOLD_EXPIRES, hold.getReservationId(), hold.getExpiresAt());
+            if (!fired.contains(reminder)) {
+                wheel.schedule(reminder.key(), toMillis(reminder.deadline()), reminder);
+            }
+        }
+        log.info("Reminder wheel seeded with {} timers from {} active loans and {} holds",
+                wheel.size(), active.size(), holds.size());
+    }
+
+    @Scheduled(fixedDelayString = "${library.reminders.tick-ms:1000}")
+    public void tick() {
+        fireDue(System.currentTimeMillis());
+    }
+
+    /**
+     * Bắn các mốc đã tới hạn tại thời điểm nowMillis; trả về số mốc đã được ghi nhận
+     */
+    public int fireDue(long nowMillis) {
+        int delivered = 0;
+        for (Reminder reminder : wheel.advance(nowMillis)) {
+            if (fire(reminder)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event) {
+        Loan loan = event.getLoan();
+        boolean active = loan != null && loan.getDueDate() != null && loan.getStatus() != null
+                && loan.getStatus().isActive();
+        for (ReminderDelivery.Kind kind : LOAN_KINDS) {
+            if (!active) {
+                wheel.cancel(new TimerKey(kind, event.getLoanId()));
+                continue;
+            }
+            Reminder reminder = loanReminder(kind, loan.getId(), loan.getDueDate());
+            if (reminder.deadline().isBefore(LocalDateTime.now().minus(catchUp))) {
+                wheel.cancel(reminder.key());
+            } else {
+                wheel.schedule(reminder.key(), toMillis(reminder.deadline()), reminder);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        TimerKey key = new TimerKey(ReminderDelivery.Kind.HOLD_EXPIRES, event.getReservationId());
+        if (event.getType() == ReservationChangedEvent.Type.READY && event.getExpiresAt() != null) {
+            Reminder reminder = new Reminder(key.kind(), key.subjectId(), event.getExpiresAt());
+            wheel.schedule(key, toMillis(reminder.deadline()), reminder);
+        } else if (event.getType() != ReservationChangedEvent.Type.QUEUED) {
+            wheel.cancel(key);
+        }
+    }
+
+    @Scheduled(cron = "${library.reminders.purge-cron:0 30 3 * * *}")
+    public void purgeDeliveries() {
+        Integer purged = writeTransaction.execute(status ->
+                reminderDeliveryRepository.deleteByDeadlineBefore(LocalDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} reminder deliveries", purged);
+        }
+    }
+
+    public int pendingTimers() {
+        return wheel.size();
+    }
+
+    private boolean fire(Reminder reminder) {
+        try {
+            Boolean delivered = writeTransaction.execute(status -> {
+                if (!isStillDue(reminder) || reminderDeliveryRepository.existsByKindAndSubjectIdAndDeadline(
+                        reminder.kind(), reminder.subjectId(), reminder.deadline())) {
+                    return false;
+                }
+                reminderDeliveryRepository.save(
+                        new ReminderDelivery(reminder.kind(), reminder.subjectId(), reminder.deadline()));
+                eventPublisher.publishEvent(
+                        new ReminderDueEvent(reminder.kind(), reminder.subjectId(), reminder.deadline()));
+                return true;
+            });
+            if (Boolean.TRUE.equals(delivered)) {
+                log.info("Reminder {} for {} (deadline {})", reminder.kind(), reminder.subjectId(), reminder.deadline());
+                return true;
+            }
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            // Instance khác đã ghi nhận cùng mốc
+            return false;
+        } catch (RuntimeException e) {
+            // Chưa ghi nhận được (database lỗi...): đặt lại timer để không mất mốc
+            log.warn("Reminder {} for {} failed, retrying in {}s: {}",
+                    reminder.kind(), reminder.subjectId(), RETRY_DELAY.toSeconds(), e.getMessage());
+            if (!wheel.contains(reminder.key())) {
+                wheel.schedule(reminder.key(), System.currentTimeMillis() + RETRY_DELAY.toMillis(), reminder);
+            }
+            return false;
+        }
+    }
+
+    // Loan có thể đã được trả hoặc đổi hạn, reservation có thể đã được mượn hoặc hủy sau khi timer được đặt
+    private boolean isStillDue(Reminder reminder) {
+        if (reminder.kind() == ReminderDelivery.Kind.HOLD_EXPIRES) {
+            return reservationRepository.findHoldExpiry(reminder.subjectId())
+                    .map(reminder.deadline()::equals)
+                    .orElse(false);
+        }
+        return loanRepository.findActiveDueDate(reminder.subjectId())
+                .map(dueDate -> loanReminder(reminder.kind(), reminder.subjectId(), dueDate).equals(reminder))
+                .orElse(false);
+    }
+
+    private Reminder loanReminder(ReminderDelivery.Kind kind, Long loanId, LocalDate dueDate) {
+        LocalDate day = kind == ReminderDelivery.Kind.LOAN_DUE_SOON ? dueDate.minus(dueSoonLead) : dueDate;
+        return new Reminder(kind, loanId, day.atTime(sendAt));
+    }
+
+    private long toMillis(LocalDateTime deadline) {
+        return deadline.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private record TimerKey(ReminderDelivery.Kind kind, Long subjectId) {
+    }
+
+    private record Reminder(ReminderDelivery.Kind kind, Long subjectId, LocalDateTime deadline) {
+        TimerKey key() {
+            return new TimerKey(kind, subjectId);
+        }
+    }
+}
@@ -1,21 +1,85 @@
 package com.management.library.demo.repository;
 
 import com.management.library.demo.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
 
-    List<Book> findByTitleContainingIgnoreCase(String title);
+    // Tham số phải là chuỗi đã qua TextFolding (cột không dấu, chữ thường)
+    List<Book> findByTitleFoldedContaining(String foldedTitle);
 
-    List<Book> findByAuthorContainingIgnoreCase(String author);
+    List<Book> findByAuthorFoldedContaining(String foldedAuthor);
 
     List<Book> findByGenreIgnoreCase(String genre);
 
     List<Book> findByPublishedYear(int year);
 
     List<Book> findByAvailable(boolean available);
+
+    long countByAvailable(boolean available);
+
+    // Keyset pagination theo (title, id): luôn gọi với PageRequest.of(0, size) để không sinh OFFSET
+
+    @Query("SELECT b FROM Book b WHERE b.title > :title OR (b.title = :title AND b.id > :id) " +
+           "ORDER BY b.title, b.id")
+    Slice<Book> findSliceAfter(@Param("title") String title, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT b FROM Book b WHERE b.available = :available " +
+           "AND (b.title > :title OR (b.title = :title AND b.id > :id)) ORDER BY b.title, b.id")
+    Slice<Book> findSliceByAvailableAfter(@Param("available") boolean available,
+                                          @Param("title") String title, @Param("id") Long id,
+                                          Pageable pageable);
+
+    @Query("SELECT b.id FROM Book b WHERE b.available = true AND b.id > :afterId ORDER BY b.id")
+    List<Long> findAvailableIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Giành quyền mượn: chỉ một transaction thấy available = true, transaction còn lại cập nhật 0 dòng
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.available = false, b.version = COALESCE(b.version, 0) + 1 " +
+           "WHERE b.id = :id AND b.available = true")
+    int claimForLoan(@Param("id") Long id);
+
+    // Sách được trả mà không còn ai chờ (xem ReservationService.allocate)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.available = true, b.version = COALESCE(b.version, 0) + 1 WHERE b.id IN :ids")
+    int releaseAll(@Param("ids") Collection<Long> ids);
+
+    // Lock dòng của cuốn sách trước khi đổi hàng đợi giữ chỗ của nó; trả về available, rỗng nếu không có sách
+    @Query(value = "SELECT available FROM books WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Boolean> lockForQueue(@Param("id") Long id);
+
+    // Như lockForQueue cho nhiều cuốn, lock theo thứ tự id để các transaction đồng thời không deadlock
+    @Query(value = "SELECT id FROM books WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllForQueue(@Param("ids") Collection<Long> ids);
+
+    // Những id còn tồn tại: phân biệt sách không có với sách đã được mượn khi mượn theo batch
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Chỉ đọc cột version (ETag) mà không load entity
+    @Query("SELECT b.version FROM Book b WHERE b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAll();
 }
@@ -0,0 +1,89 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.dto.BookCursor;
+import com.management.library.demo.dto.BookSearchCriteria;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.search.TextFolding;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Các Specification có thể kết hợp cho tìm kiếm sách.
+ * Tiêu chí null/rỗng trả về null, Specification.allOf/and sẽ tự bỏ qua.
+ */
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> matching(BookSearchCriteria criteria) {
+        return Specification.allOf(
+                titleContains(criteria.getTitle()),
+                authorContains(criteria.getAuthor()),
+                genreEquals(criteria.getGenre()),
+                publishedBetween(criteria.getYearFrom(), criteria.getYearTo()),
+                availableIs(criteria.getAvailable()));
+    }
+
+    public static Specification<Book> titleContains(String title) {
+        if (title == null || title.isEmpty()) {
+            return null;
+        }
+        // Cột không dấu: "nguyen" khớp "Nguyễn" (GIN trigram trên PostgreSQL, xem schema-postgresql.sql)
+        return (root, query, cb) -> cb.like(root.get("titleFolded"), containsPattern(title), '\\');
+    }
+
+    public static Specification<Book> authorContains(String author) {
+        if (author == null || author.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(root.get("authorFolded"), containsPattern(author), '\\');
+    }
+
+    public static Specification<Book> genreEquals(String genre) {
+        if (genre == null || genre.isEmpty()) {
+            return null;
+        }
+        // lower(genre) khớp với functional index idx_books_genre_lower_title_id trên PostgreSQL
+        return (root, query, cb) -> cb.equal(cb.lower(root.get("genre")), genre.toLowerCase());
+    }
+
+    public static Specification<Book> publishedBetween(Integer yearFrom, Integer yearTo) {
+        if (yearFrom == null && yearTo == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            if (yearFrom == null) {
+                return cb.lessThanOrEqualTo(root.get("publishedYear"), yearTo);
+            }
+            if (yearTo == null) {
+                return cb.greaterThanOrEqualTo(root.get("publishedYear"), yearFrom);
+            }
+            return cb.between(root.get("publishedYear"), yearFrom, yearTo);
+        };
+    }
+
+    public static Specification<Book> availableIs(Boolean available) {
+        if (available == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("available"), available);
+    }
+
+    /**
+     * Điều kiện keyset: chỉ lấy sách đứng sau cursor theo thứ tự (title, id)
+     */
+    public static Specification<Book> after(BookCursor cursor) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("title"), cursor.getTitle()),
+                cb.and(cb.equal(root.get("title"), cursor.getTitle()),
+                        cb.greaterThan(root.get("id"), cursor.getId())));
+    }
+
+    private static String containsPattern(String value) {
+        String escaped = TextFolding.fold(value)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
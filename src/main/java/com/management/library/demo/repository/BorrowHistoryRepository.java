@@ -0,0 +1,38 @@
+package com.management.library.demo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+
+/**
+ * Đọc toàn bộ lịch sử mượn (loans và loan_history) theo từng member, dùng để dựng lại chỉ mục gợi ý sách
+ * khi khởi động. Chỉ đọc hai cột id nên một lượt quét trên bảng lớn vẫn nhẹ.
+ */
+@Repository
+public class BorrowHistoryRepository {
+
+    public interface BorrowHandler {
+        void onBorrow(long loanId, long memberId, long bookId);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BorrowHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Mọi lượt mượn, gom theo member và theo thứ tự mượn (id loan tăng dần) trong mỗi member
+     */
+    public void streamBorrowsByMember(BorrowHandler handler) {
+        jdbcTemplate.query(
+                "SELECT id, member_id, book_id FROM (" +
+                "SELECT id, member_id, book_id FROM loans UNION ALL " +
+                "SELECT id, member_id, book_id FROM loan_history) l " +
+                "ORDER BY member_id, id",
+                (ResultSet rs) -> handler.onBorrow(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+}
@@ -0,0 +1,44 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Giành key cho request đầu tiên; key đã tồn tại thì báo lỗi unique (DataIntegrityViolationException)
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (id, request_hash, created_at, expires_at) " +
+                   "VALUES (:id, :requestHash, :now, :expiresAt)", nativeQuery = true)
+    int claim(@Param("id") String id, @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Giành lại key đã hết hạn, hoặc key đang xử lý quá lâu (instance giữ key đã chết)
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, r.statusCode = NULL, r.contentType = NULL, " +
+           "r.body = NULL, r.createdAt = :now, r.expiresAt = :expiresAt " +
+           "WHERE r.id = :id AND (r.expiresAt < :now OR (r.statusCode IS NULL AND r.createdAt < :staleBefore))")
+    int reclaim(@Param("id") String id, @Param("requestHash") String requestHash, @Param("now") LocalDateTime now,
+                @Param("expiresAt") LocalDateTime expiresAt, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.contentType = :contentType, r.body = :body " +
+           "WHERE r.id = :id AND r.statusCode IS NULL")
+    int complete(@Param("id") String id, @Param("statusCode") int statusCode,
+                 @Param("contentType") String contentType, @Param("body") String body);
+
+    // Request đầu tiên lỗi 5xx: bỏ key để client retry được
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.statusCode IS NULL")
+    int release(@Param("id") String id);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,84 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.entity.LoanStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Các câu lệnh mượn/trả dùng cho batch ở quầy, gửi bằng JDBC batch (một round trip cho mỗi loại câu lệnh).
+ *
+ * Mỗi phần tử là một UPDATE có điều kiện giống như khi mượn/trả từng cuốn, nên update count của từng phần tử
+ * cho biết phần tử đó thành công hay không mà không làm hỏng cả batch. Phải chạy trong transaction của bên gọi;
+ * id nên được sắp tăng dần để các batch đồng thời lock dòng theo cùng thứ tự.
+ */
+@Repository
+public class LoanBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LoanBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Giành các cuốn sách còn available; phần tử i là true nếu bookIds[i] đã được giành
+     */
+    public boolean[] claimBooks(List<Long> bookIds) {
+        return succeeded(jdbcTemplate.batchUpdate(
+                "UPDATE books SET available = false, version = COALESCE(version, 0) + 1" +
+                " WHERE id = ? AND available = true",
+                bookIds, bookIds.size(), (ps, bookId) -> ps.setLong(1, bookId)));
+    }
+
+    // Chỉ gọi cho các cuốn vừa được claimBooks giành trong cùng transaction
+    public void insertBorrowed(Long memberId, List<Long> bookIds, LocalDate borrowDate, LocalDate dueDate) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO loans (book_id, member_id, borrow_date, due_date, status, version)" +
+                " VALUES (?, ?, ?, ?, " + LoanStatus.BORROWED_CODE + ", 0)",
+                bookIds, bookIds.size(), (ps, bookId) -> {
+                    ps.setLong(1, bookId);
+                    ps.setLong(2, memberId);
+                    ps.setDate(3, Date.valueOf(borrowDate));
+                    ps.setDate(4, Date.valueOf(dueDate));
+                });
+    }
+
+    /**
+     * Đánh dấu đã trả các loan chưa trả; phần tử i là true nếu loanIds[i] vừa được trả
+     */
+    public boolean[] markReturned(List<Long> loanIds, LocalDate returnDate) {
+        return succeeded(jdbcTemplate.batchUpdate(
+                "UPDATE loans SET status = " + LoanStatus.RETURNED_CODE + ", return_date = ?," +
+                " version = COALESCE(version, 0) + 1 WHERE id = ? AND status <> " + LoanStatus.RETURNED_CODE,
+                loanIds, loanIds.size(), (ps, loanId) -> {
+                    ps.setDate(1, Date.valueOf(returnDate));
+                    ps.setLong(2, loanId);
+                }));
+    }
+
+    private static boolean[] succeeded(int[][] counts) {
+        int total = 0;
+        for (int[] batch : counts) {
+            total += batch.length;
+        }
+        boolean[] result = new boolean[total];
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // Kết quả từng phần tử dựa vào update count (PostgreSQL và H2 đều trả về)
+                if (count == Statement.SUCCESS_NO_INFO) {
+                    throw new IllegalStateException("JDBC driver did not report batch update counts");
+                }
+                result[i++] = count > 0;
+            }
+        }
+        return result;
+    }
+}
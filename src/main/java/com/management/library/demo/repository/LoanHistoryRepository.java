@@ -0,0 +1,146 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.dto.LoanView;
+import com.management.library.demo.entity.LoanStatus;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bảng loan_history (dữ liệu "lạnh"): loan đã trả lâu được chuyển khỏi bảng loans.
+ *
+ * Trên PostgreSQL bảng được partition theo tháng của borrow_date (xem schema-postgresql.sql),
+ * partition của từng tháng được tạo khi cần trước khi chuyển dữ liệu vào; database khác dùng bảng thường.
+ * Không khai báo bằng entity vì Hibernate không tạo được bảng partition.
+ */
+@Repository
+public class LoanHistoryRepository {
+
+    private static final String HISTORY_COLUMNS =
+            "id, book_id, member_id, borrow_date, due_date, return_date, status, version";
+
+    private static final String HOT_VIEW_SELECT =
+            "SELECT l.id, l.borrow_date, l.due_date, l.return_date, l.status, b.id AS book_id, b.title, b.author," +
+            " b.genre, m.id AS member_id, m.name, m.email FROM loans l" +
+            " JOIN books b ON b.id = l.book_id JOIN members m ON m.id = l.member_id ";
+
+    // Sách/member có thể đã bị xóa sau khi loan được lưu trữ nên join ngoài, giữ lại id gốc
+    private static final String ARCHIVED_VIEW_SELECT =
+            "SELECT h.id, h.borrow_date, h.due_date, h.return_date, h.status, h.book_id, b.title, b.author," +
+            " b.genre, h.member_id, m.name, m.email FROM loan_history h" +
+            " LEFT JOIN books b ON b.id = h.book_id LEFT JOIN members m ON m.id = h.member_id ";
+
+    private static final RowMapper<LoanView> LOAN_VIEW_MAPPER = (rs, rowNum) -> new LoanView(
+            rs.getLong("id"),
+            rs.getObject("borrow_date", LocalDate.class),
+            rs.getObject("due_date", LocalDate.class),
+            rs.getObject("return_date", LocalDate.class),
+            LoanStatus.fromCode(rs.getShort("status")),
+            rs.getLong("book_id"), rs.getString("title"), rs.getString("author"), rs.getString("genre"),
+            rs.getLong("member_id"), rs.getString("name"), rs.getString("email"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+    private volatile Boolean postgres;
+
+    @Autowired
+    public LoanHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // Loan nóng và loan đã lưu trữ của một member trong một câu UNION ALL, theo id
+    public List<LoanView> findViewsWithHistoryByMemberId(Long memberId) {
+        return namedJdbcTemplate.query(
+                HOT_VIEW_SELECT + "WHERE l.member_id = :id UNION ALL " + ARCHIVED_VIEW_SELECT +
+                "WHERE h.member_id = :id ORDER BY 1", new MapSqlParameterSource("id", memberId), LOAN_VIEW_MAPPER);
+    }
+
+    public List<LoanView> findViewsWithHistoryByBookId(Long bookId) {
+        return namedJdbcTemplate.query(
+                HOT_VIEW_SELECT + "WHERE l.book_id = :id UNION ALL " + ARCHIVED_VIEW_SELECT +
+                "WHERE h.book_id = :id ORDER BY 1", new MapSqlParameterSource("id", bookId), LOAN_VIEW_MAPPER);
+    }
+
+    /**
+     * Tháng mượn (theo borrow_date) của các loan đã trả trước cutoff, tối đa limit loan có id nhỏ nhất.
+     * Trả về id kèm tháng để tạo partition trước khi chuyển.
+     */
+    public List<ArchiveCandidate> findArchiveCandidates(LocalDate cutoff, int limit) {
+        return namedJdbcTemplate.query(
+                "SELECT id, borrow_date FROM loans WHERE status = " + LoanStatus.RETURNED_CODE +
+                " AND return_date < :cutoff" +
+                " ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource("cutoff", cutoff).addValue("limit", limit),
+                (rs, rowNum) -> {
+                    LocalDate borrowDate = rs.getObject("borrow_date", LocalDate.class);
+                    return new ArchiveCandidate(rs.getLong("id"), borrowDate == null ? null : YearMonth.from(borrowDate));
+                });
+    }
+
+    /**
+     * Tạo partition tháng nếu chưa có (chỉ PostgreSQL). Chạy ngoài transaction chuyển dữ liệu
+     * để lock DDL trên bảng cha được nhả ngay.
+     */
+    public void ensurePartition(YearMonth month) {
+        if (!isPostgres() || knownPartitions.contains(month)) {
+            return;
+        }
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS loan_history_p%04d%02d PARTITION OF loan_history" +
+                " FOR VALUES FROM ('%s') TO ('%s')",
+                month.getYear(), month.getMonthValue(), month.atDay(1), month.plusMonths(1).atDay(1)));
+        knownPartitions.add(month);
+    }
+
+    /**
+     * Chuyển các loan (vẫn đang RETURNED) sang loan_history; phải chạy trong transaction.
+     * Trả về số loan đã chuyển.
+     */
+    public int moveToHistory(Collection<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        if (isPostgres()) {
+            // Một câu lệnh: DELETE ... RETURNING cấp dữ liệu cho INSERT
+            return namedJdbcTemplate.update(
+                    "WITH moved AS (DELETE FROM loans WHERE id IN (:ids) AND status = " + LoanStatus.RETURNED_CODE +
+                    " RETURNING " + HISTORY_COLUMNS + ")" +
+                    " INSERT INTO loan_history (" + HISTORY_COLUMNS + ", archived_at)" +
+                    " SELECT " + HISTORY_COLUMNS + ", CURRENT_TIMESTAMP FROM moved", params);
+        }
+        namedJdbcTemplate.update(
+                "INSERT INTO loan_history (" + HISTORY_COLUMNS + ", archived_at)" +
+                " SELECT " + HISTORY_COLUMNS + ", CURRENT_TIMESTAMP FROM loans WHERE id IN (:ids)" +
+                " AND status = " + LoanStatus.RETURNED_CODE,
+                params);
+        return namedJdbcTemplate.update("DELETE FROM loans WHERE id IN (:ids) AND status = " + LoanStatus.RETURNED_CODE,
+                params);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loan_history", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((Connection connection) -> connection.isWrapperFor(PGConnection.class));
+        }
+        return postgres;
+    }
+
+    public record ArchiveCandidate(Long id, YearMonth borrowMonth) {
+    }
+}
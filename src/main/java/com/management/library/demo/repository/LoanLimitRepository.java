@@ -0,0 +1,58 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.entity.LoanStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Số loan chưa trả (BORROWED hoặc OVERDUE) và role của member, dùng cho giới hạn số sách mượn cùng lúc
+ * (ActiveLoanLimiter): đọc toàn bộ một lần lúc khởi động, sau đó chỉ đọc từng member khi bộ đếm cần đồng bộ lại.
+ */
+@Repository
+public class LoanLimitRepository {
+
+    private static final String ACTIVE = "status IN (" + LoanStatus.BORROWED_CODE + ", " + LoanStatus.OVERDUE_CODE + ")";
+
+    public interface ActiveCountHandler {
+        void onMember(long memberId, int activeLoans);
+    }
+
+    public interface RoleHandler {
+        void onMember(long memberId, String role);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LoanLimitRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void streamActiveCounts(ActiveCountHandler handler) {
+        jdbcTemplate.query("SELECT member_id, COUNT(*) FROM loans WHERE " + ACTIVE + " GROUP BY member_id",
+                (ResultSet rs) -> handler.onMember(rs.getLong(1), rs.getInt(2)));
+    }
+
+    public void streamMemberRoles(RoleHandler handler) {
+        jdbcTemplate.query("SELECT member_id, role FROM users WHERE member_id IS NOT NULL",
+                (ResultSet rs) -> handler.onMember(rs.getLong(1), rs.getString(2)));
+    }
+
+    // Dùng index idx_loans_member_status_id
+    public int countActive(long memberId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM loans WHERE member_id = ? AND " + ACTIVE, Integer.class, memberId);
+        return count == null ? 0 : count;
+    }
+
+    public Optional<String> findRole(long memberId) {
+        List<String> roles = jdbcTemplate.queryForList(
+                "SELECT role FROM users WHERE member_id = ?", String.class, memberId);
+        return roles.stream().findFirst();
+    }
+}
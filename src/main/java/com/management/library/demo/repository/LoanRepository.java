@@ -1,26 +1,180 @@
 package com.management.library.demo.repository;
 
+import com.management.library.demo.dto.LoanView;
 import com.management.library.demo.entity.Book;
 import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.LoanStatus;
 import com.management.library.demo.entity.Member;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
+    // Version của loan cùng book và member được nhúng trong JSON của loan
+    interface LoanVersions {
+        Long getLoanVersion();
+
+        Long getBookVersion();
+
+        Long getMemberVersion();
+    }
+
+    // Hạn trả của một loan chưa trả, dùng để nạp timing wheel nhắc hạn
+    interface ActiveDueDate {
+        Long getLoanId();
+
+        LocalDate getDueDate();
+    }
+
+    interface ActiveBookLoan {
+        Long getBookId();
+
+        Long getLoanId();
+    }
+
+    // Danh sách dạng LoanView: một câu query join book và member, không load entity
+    String LOAN_VIEW_SELECT = "SELECT new com.management.library.demo.dto.LoanView(" +
+            "l.id, l.borrowDate, l.dueDate, l.returnDate, l.status, b.id, b.title, b.author, b.genre, m.id, m.name, m.email) " +
+            "FROM Loan l JOIN l.book b JOIN l.member m ";
+
+    @Query(LOAN_VIEW_SELECT + "ORDER BY l.id")
+    List<LoanView> findAllViews();
+
+    @Query(LOAN_VIEW_SELECT + "WHERE l.status = :status ORDER BY l.id")
+    List<LoanView> findViewsByStatus(@Param("status") LoanStatus status);
+
+    // Worklist quá hạn do OverdueLoanSweeper dựng sẵn: hạn trả sớm nhất (quá hạn lâu nhất) trước
+    @Query(LOAN_VIEW_SELECT + "WHERE l.status = com.management.library.demo.entity.LoanStatus.OVERDUE ORDER BY l.dueDate, l.id")
+    List<LoanView> findOverdueViews();
+
+    @Query(LOAN_VIEW_SELECT + "WHERE m.id = :memberId ORDER BY l.id")
+    List<LoanView> findViewsByMemberId(@Param("memberId") Long memberId);
+
+    // Keyset theo id giảm dần (mới nhất trước), dùng idx_loans_member_id_id / idx_loans_member_status_id;
+    // luôn gọi với PageRequest.of(0, size) để không sinh OFFSET
+
+    @Query(LOAN_VIEW_SELECT + "WHERE m.id = :memberId AND l.id < :beforeId ORDER BY l.id DESC")
+    List<LoanView> findViewsByMemberIdBefore(@Param("memberId") Long memberId, @Param("beforeId") Long beforeId,
+                                             Pageable pageable);
+
+    @Query(LOAN_VIEW_SELECT + "WHERE m.id = :memberId AND l.status = :status AND l.id < :beforeId " +
+           "ORDER BY l.id DESC")
+    List<LoanView> findViewsByMemberIdAndStatusBefore(@Param("memberId") Long memberId,
+                                                      @Param("status") LoanStatus status,
+                                                      @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query(LOAN_VIEW_SELECT + "WHERE b.id = :bookId ORDER BY l.id")
+    List<LoanView> findViewsByBookId(@Param("bookId") Long bookId);
+
     List<Loan> findByBook(Book book);
 
     List<Loan> findByMember(Member member);
 
-    List<Loan> findByReturnDateBeforeAndStatus(LocalDate date, String status);
+    List<Loan> findByStatus(LoanStatus status);
+
+    // Loan đang mượn đã quá hạn, theo thứ tự của partial index idx_loans_active_due
+    @Query("SELECT l.id FROM Loan l WHERE l.status = com.management.library.demo.entity.LoanStatus.BORROWED AND l.dueDate < :today " +
+           "ORDER BY l.dueDate, l.id")
+    List<Long> findOverdueCandidateIds(@Param("today") LocalDate today, Pageable pageable);
+
+    @Query("SELECT l.id AS loanId, l.dueDate AS dueDate FROM Loan l " +
+           "WHERE l.status IN (com.management.library.demo.entity.LoanStatus.BORROWED, com.management.library.demo.entity.LoanStatus.OVERDUE) " +
+           "AND l.dueDate IS NOT NULL")
+    List<ActiveDueDate> findActiveDueDates();
+
+    @Query("SELECT l.dueDate FROM Loan l WHERE l.id = :id " +
+           "AND l.status IN (com.management.library.demo.entity.LoanStatus.BORROWED, com.management.library.demo.entity.LoanStatus.OVERDUE)")
+    Optional<LocalDate> findActiveDueDate(@Param("id") Long id);
+
+    // Điều kiện status = BORROWED giữ nguyên loan vừa được trả giữa lúc chọn id và lúc update
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Loan l SET l.status = com.management.library.demo.entity.LoanStatus.OVERDUE, " +
+           "l.version = COALESCE(l.version, 0) + 1 " +
+           "WHERE l.id IN :ids AND l.status = com.management.library.demo.entity.LoanStatus.BORROWED")
+    int markOverdue(@Param("ids") Collection<Long> ids);
+
+    List<Loan> findByMemberAndStatus(Member member, LoanStatus status);
+
+    List<Loan> findByBookAndStatus(Book book, LoanStatus status);
+
+    boolean existsByBookIdAndMemberIdAndStatusIn(Long bookId, Long memberId, Collection<LoanStatus> statuses);
+
+    // Loan đang mượn mới nhất của một cuốn sách, kèm book và member trong cùng một query
+    @Query("SELECT l FROM Loan l JOIN FETCH l.book JOIN FETCH l.member " +
+           "WHERE l.book.id = :bookId AND l.status = com.management.library.demo.entity.LoanStatus.BORROWED " +
+           "ORDER BY l.id DESC LIMIT 1")
+    Optional<Loan> findActiveLoanByBookId(@Param("bookId") Long bookId);
+
+    @Query("SELECT l FROM Loan l JOIN FETCH l.book JOIN FETCH l.member WHERE l.id = :id")
+    Optional<Loan> findWithBookAndMemberById(@Param("id") Long id);
+
+    @Query("SELECT l FROM Loan l JOIN FETCH l.book JOIN FETCH l.member WHERE l.id IN :ids")
+    List<Loan> findAllWithBookAndMemberById(@Param("ids") Collection<Long> ids);
+
+    // Loan chưa trả (BORROWED hoặc OVERDUE) của nhiều cuốn sách, kèm book và member
+    @Query("SELECT l FROM Loan l JOIN FETCH l.book JOIN FETCH l.member WHERE l.book.id IN :bookIds " +
+           "AND l.status IN (com.management.library.demo.entity.LoanStatus.BORROWED, " +
+           "com.management.library.demo.entity.LoanStatus.OVERDUE)")
+    List<Loan> findActiveWithBookAndMemberByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    // Chỉ lấy id (không load entity) để không giữ bản cũ trong persistence context khi cập nhật bằng JDBC
+    @Query("SELECT l.book.id AS bookId, l.id AS loanId FROM Loan l WHERE l.book.id IN :bookIds " +
+           "AND l.status IN (com.management.library.demo.entity.LoanStatus.BORROWED, " +
+           "com.management.library.demo.entity.LoanStatus.OVERDUE)")
+    List<ActiveBookLoan> findActiveLoanIdsByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT l.book.id FROM Loan l WHERE l.id IN :ids")
+    List<Long> findBookIdsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT l.id FROM Loan l WHERE l.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Insert loan sau khi BookRepository.claimForLoan đã giành được sách, trong cùng transaction
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO loans (book_id, member_id, borrow_date, due_date, status, version) " +
+                   "VALUES (:bookId, :memberId, :borrowDate, :dueDate, " + LoanStatus.BORROWED_CODE + ", 0)",
+           nativeQuery = true)
+    int insertBorrowed(@Param("bookId") Long bookId, @Param("memberId") Long memberId,
+                       @Param("borrowDate") LocalDate borrowDate, @Param("dueDate") LocalDate dueDate);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Loan l SET l.status = com.management.library.demo.entity.LoanStatus.RETURNED, l.returnDate = :returnDate, " +
+           "l.version = COALESCE(l.version, 0) + 1 " +
+           "WHERE l.id = :id AND l.status <> com.management.library.demo.entity.LoanStatus.RETURNED")
+    int markReturned(@Param("id") Long id, @Param("returnDate") LocalDate returnDate);
 
-    List<Loan> findByStatus(String status);
+    // PostgreSQL: giành sách và insert loan trong một câu lệnh (một round trip); 0 nếu sách không còn
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "WITH claimed AS (UPDATE books SET available = false, version = COALESCE(version, 0) + 1 " +
+                   "WHERE id = :bookId AND available = true RETURNING id) " +
+                   "INSERT INTO loans (book_id, member_id, borrow_date, due_date, status, version) " +
+                   "SELECT id, :memberId, :borrowDate, :dueDate, " + LoanStatus.BORROWED_CODE + ", 0 FROM claimed",
+           nativeQuery = true)
+    int borrowIfAvailable(@Param("bookId") Long bookId, @Param("memberId") Long memberId,
+                          @Param("borrowDate") LocalDate borrowDate, @Param("dueDate") LocalDate dueDate);
 
-    List<Loan> findByMemberAndStatus(Member member, String status);
+    @Query("SELECT l.version AS loanVersion, b.version AS bookVersion, m.version AS memberVersion " +
+           "FROM Loan l JOIN l.book b JOIN l.member m WHERE l.id = :id")
+    Optional<LoanVersions> findVersionsById(@Param("id") Long id);
 
-    List<Loan> findByBookAndStatus(Book book, String status);
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l FROM Loan l JOIN FETCH l.book JOIN FETCH l.member ORDER BY l.id")
+    Stream<Loan> streamAll();
 }
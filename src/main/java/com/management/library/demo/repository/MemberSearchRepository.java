@@ -0,0 +1,94 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.dto.MemberSearchCursor;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.search.TextFolding;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Tìm member theo tên hoặc email trong một câu SQL, xếp hạng và phân trang keyset (score giảm dần, id) phía database.
+ *
+ * Tên được so trên cột không dấu name_folded và query cũng được bỏ dấu (TextFolding), nên "nguyen" khớp "Nguyễn".
+ * PostgreSQL: điều kiện LIKE '%q%' và toán tử % (gần đúng, bắt lỗi gõ sai) của pg_trgm đều dùng được GIN index
+ * trigram trên name_folded / lower(email) (schema-postgresql.sql); score là similarity() lớn nhất của hai cột.
+ * Database khác (H2 khi test): chỉ LIKE, score theo bậc khớp đúng > khớp đầu chuỗi > chứa.
+ */
+@Repository
+public class MemberSearchRepository {
+
+    public record ScoredMember(Member member, float score) {
+    }
+
+    private static final String POSTGRES_SCORE =
+            "GREATEST(similarity(m.name_folded, :q), similarity(lower(m.email), :q))";
+    private static final String POSTGRES_MATCH =
+            "m.name_folded LIKE :pattern ESCAPE '\\' OR lower(m.email) LIKE :pattern ESCAPE '\\' " +
+            "OR m.name_folded % :q OR lower(m.email) % :q";
+
+    private static final String FALLBACK_SCORE =
+            "CASE WHEN m.name_folded = :q OR lower(m.email) = :q THEN 1 " +
+            "WHEN m.name_folded LIKE :prefix ESCAPE '\\' OR lower(m.email) LIKE :prefix ESCAPE '\\' THEN 0.75 " +
+            "ELSE 0.5 END";
+    private static final String FALLBACK_MATCH =
+            "m.name_folded LIKE :pattern ESCAPE '\\' OR lower(m.email) LIKE :pattern ESCAPE '\\'";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final boolean postgres;
+
+    @Autowired
+    public MemberSearchRepository(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.postgres = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Tối đa limit member khớp query sau vị trí after; query rỗng thì trả mọi member theo id (score = 0)
+     */
+    public List<ScoredMember> search(String query, MemberSearchCursor after, int limit) {
+        String q = query == null ? "" : TextFolding.fold(query.trim());
+        String score;
+        String match;
+        if (q.isEmpty()) {
+            score = "0";
+            match = "1 = 1";
+        } else {
+            score = postgres ? POSTGRES_SCORE : FALLBACK_SCORE;
+            match = postgres ? POSTGRES_MATCH : FALLBACK_MATCH;
+        }
+        String escaped = escapeLike(q);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("q", q)
+                .addValue("pattern", "%" + escaped + "%")
+                .addValue("prefix", escaped + "%")
+                .addValue("afterScore", after.getScore())
+                .addValue("afterId", after.getId())
+                .addValue("limit", limit);
+        return namedJdbcTemplate.query(
+                "SELECT id, name, email, version, score FROM (" +
+                "SELECT m.id, m.name, m.email, m.version, CAST(" + score + " AS REAL) AS score " +
+                "FROM members m WHERE " + match + ") s " +
+                "WHERE s.score < CAST(:afterScore AS REAL) OR (s.score = CAST(:afterScore AS REAL) AND s.id > :afterId) " +
+                "ORDER BY s.score DESC, s.id FETCH FIRST :limit ROWS ONLY",
+                params,
+                (rs, rowNum) -> {
+                    Member member = new Member(rs.getString("name"), rs.getString("email"), null);
+                    member.setId(rs.getLong("id"));
+                    member.setVersion(rs.getObject("version", Long.class));
+                    return new ScoredMember(member, rs.getFloat("score"));
+                });
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
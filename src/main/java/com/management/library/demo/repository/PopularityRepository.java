@@ -0,0 +1,123 @@
+package com.management.library.demo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Checkpoint của PopularityTracker (bảng popularity_counters, xem schema-*.sql) và truy vấn tổng hợp lượt mượn
+ * dùng để dựng lại sketch khi khởi động.
+ */
+@Repository
+public class PopularityRepository {
+
+    public record SavedCounter(String window, long bookId, double score, double error) {
+    }
+
+    /**
+     * lastLoanId là id loan lớn nhất đã tính; countedLoanIds là các id đã tính trong (lowLoanId, lastLoanId]
+     */
+    public record Checkpoint(LocalDateTime checkpointedAt, long lastLoanId, long lowLoanId,
+                             List<SavedCounter> counters, List<Long> countedLoanIds) {
+    }
+
+    // Số lượt mượn của một cuốn trong một ngày, maxLoanId là id loan lớn nhất trong nhóm
+    public record DailyBorrows(long bookId, LocalDate borrowDate, long count, long maxLoanId) {
+    }
+
+    public record Borrow(long loanId, long bookId, LocalDate borrowDate) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PopularityRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<Checkpoint> loadCheckpoint() {
+        List<Checkpoint> rows = jdbcTemplate.query(
+                "SELECT window_name, book_id, score, error, checkpointed_at, last_loan_id, low_loan_id " +
+                "FROM popularity_counters",
+                (rs, rowNum) -> {
+                    // Checkpoint cũ chưa có low_loan_id: coi như không có khoảng commit muộn
+                    long lowLoanId = rs.getObject(7) == null ? rs.getLong(6) : rs.getLong(7);
+                    return new Checkpoint(rs.getTimestamp(5).toLocalDateTime(), rs.getLong(6), lowLoanId, List.of(
+                            new SavedCounter(rs.getString(1), rs.getLong(2), rs.getDouble(3), rs.getDouble(4))),
+                            List.of());
+                });
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        // Mọi dòng của một checkpoint có cùng checkpointed_at, last_loan_id và low_loan_id
+        List<SavedCounter> counters = rows.stream().map(row -> row.counters().get(0)).toList();
+        List<Long> countedLoanIds = jdbcTemplate.queryForList(
+                "SELECT loan_id FROM popularity_counted_loans ORDER BY loan_id", Long.class);
+        Checkpoint first = rows.get(0);
+        return Optional.of(new Checkpoint(first.checkpointedAt(), first.lastLoanId(), first.lowLoanId(), counters,
+                countedLoanIds));
+    }
+
+    /**
+     * Thay toàn bộ checkpoint cũ; phải chạy trong transaction để không bao giờ đọc được checkpoint dở dang
+     */
+    public void saveCheckpoint(List<SavedCounter> counters, LocalDateTime checkpointedAt, long lastLoanId,
+                               long lowLoanId, List<Long> countedLoanIds) {
+        jdbcTemplate.update("DELETE FROM popularity_counters");
+        jdbcTemplate.update("DELETE FROM popularity_counted_loans");
+        Timestamp at = Timestamp.valueOf(checkpointedAt);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO popularity_counters (window_name, book_id, score, error, checkpointed_at, last_loan_id, " +
+                "low_loan_id) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                counters, 500, (ps, counter) -> {
+                    ps.setString(1, counter.window());
+                    ps.setLong(2, counter.bookId());
+                    ps.setDouble(3, counter.score());
+                    ps.setDouble(4, counter.error());
+                    ps.setTimestamp(5, at);
+                    ps.setLong(6, lastLoanId);
+                    ps.setLong(7, lowLoanId);
+                });
+        jdbcTemplate.batchUpdate("INSERT INTO popularity_counted_loans (loan_id) VALUES (?)",
+                countedLoanIds, 500, (ps, loanId) -> ps.setLong(1, loanId));
+    }
+
+    /**
+     * Lượt mượn có id loan lớn hơn afterLoanId (cả loan nóng và loan đã lưu trữ), gộp theo cuốn và ngày mượn
+     * để lần dựng lại đầu tiên trên bảng lớn chỉ đọc một lượt và trả về ít dòng
+     */
+    public void streamDailyBorrowsAfter(long afterLoanId, Consumer<DailyBorrows> handler) {
+        jdbcTemplate.query(
+                "SELECT book_id, borrow_date, COUNT(*), MAX(id) FROM (" +
+                "SELECT id, book_id, borrow_date FROM loans WHERE id > ? UNION ALL " +
+                "SELECT id, book_id, borrow_date FROM loan_history WHERE id > ?) l " +
+                "GROUP BY book_id, borrow_date",
+                (ResultSet rs) -> handler.accept(new DailyBorrows(rs.getLong(1), rs.getObject(2, LocalDate.class),
+                        rs.getLong(3), rs.getLong(4))),
+                afterLoanId, afterLoanId);
+    }
+
+    /**
+     * Từng lượt mượn có id loan trong (afterLoanId, upToLoanId], cả loan nóng và loan đã lưu trữ.
+     * Dùng cho khoảng có thể có loan commit muộn, nên số dòng bị giới hạn bởi độ rộng khoảng
+     */
+    public void streamBorrowsBetween(long afterLoanId, long upToLoanId, Consumer<Borrow> handler) {
+        if (afterLoanId >= upToLoanId) {
+            return;
+        }
+        jdbcTemplate.query(
+                "SELECT id, book_id, borrow_date FROM loans WHERE id > ? AND id <= ? UNION ALL " +
+                "SELECT id, book_id, borrow_date FROM loan_history WHERE id > ? AND id <= ?",
+                (ResultSet rs) -> handler.accept(new Borrow(rs.getLong(1), rs.getLong(2),
+                        rs.getObject(3, LocalDate.class))),
+                afterLoanId, upToLoanId, afterLoanId, upToLoanId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.entity.ReminderDelivery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReminderDeliveryRepository extends JpaRepository<ReminderDelivery, Long> {
+
+    boolean existsByKindAndSubjectIdAndDeadline(ReminderDelivery.Kind kind, Long subjectId, LocalDateTime deadline);
+
+    // Các mốc đã bắn trong cửa sổ catch-up, dùng khi nạp lại wheel lúc khởi động
+    List<ReminderDelivery> findByDeadlineGreaterThanEqual(LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM ReminderDelivery d WHERE d.deadline < :before")
+    int deleteByDeadlineBefore(@Param("before") LocalDateTime before);
+}
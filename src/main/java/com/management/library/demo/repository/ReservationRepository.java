@@ -0,0 +1,105 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.dto.ReservationView;
+import com.management.library.demo.entity.Reservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Mọi thay đổi trạng thái reservation của một cuốn sách được thực hiện khi đang giữ lock dòng books của cuốn đó
+ * (BookRepository.lockForQueue), nên các câu UPDATE dưới đây không phải tự chống tranh chấp.
+ */
+@Repository
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    String RESERVATION_VIEW_SELECT = "SELECT new com.management.library.demo.dto.ReservationView(" +
+            "r.id, b.id, b.title, m.id, m.name, r.status, r.createdAt, r.readyAt, r.expiresAt) " +
+            "FROM Reservation r JOIN r.book b JOIN r.member m ";
+
+    String ACTIVE = "(com.management.library.demo.entity.Reservation.Status.WAITING, " +
+            "com.management.library.demo.entity.Reservation.Status.READY)";
+
+    interface QueueEntry {
+        Long getReservationId();
+
+        Long getBookId();
+
+        Long getMemberId();
+    }
+
+    interface HoldExpiry {
+        Long getReservationId();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    // Hàng đợi hiện tại của một cuốn: sách đang giữ (READY) trước, sau đó các lượt chờ theo thứ tự
+    @Query(RESERVATION_VIEW_SELECT + "WHERE b.id = :bookId AND r.status IN " + ACTIVE + " " +
+           "ORDER BY CASE WHEN r.status = com.management.library.demo.entity.Reservation.Status.READY " +
+           "THEN 0 ELSE 1 END, r.id")
+    List<ReservationView> findActiveViewsByBookId(@Param("bookId") Long bookId);
+
+    @Query(RESERVATION_VIEW_SELECT + "WHERE m.id = :memberId AND r.status IN " + ACTIVE + " ORDER BY r.id")
+    List<ReservationView> findActiveViewsByMemberId(@Param("memberId") Long memberId);
+
+    @Query(RESERVATION_VIEW_SELECT + "WHERE r.id = :id")
+    Optional<ReservationView> findViewById(@Param("id") Long id);
+
+    long countByBookIdAndStatusAndIdLessThan(Long bookId, Reservation.Status status, Long id);
+
+    @Query("SELECT COUNT(r) > 0 FROM Reservation r WHERE r.book.id = :bookId AND r.member.id = :memberId " +
+           "AND r.status IN " + ACTIVE)
+    boolean existsActive(@Param("bookId") Long bookId, @Param("memberId") Long memberId);
+
+    @Query("SELECT r.id AS reservationId, r.book.id AS bookId, r.member.id AS memberId FROM Reservation r " +
+           "WHERE r.id = :id")
+    Optional<QueueEntry> findEntryById(@Param("id") Long id);
+
+    @Query("SELECT r.status FROM Reservation r WHERE r.id = :id")
+    Optional<Reservation.Status> findStatusById(@Param("id") Long id);
+
+    // Đầu hàng đợi (reservation WAITING có id nhỏ nhất) của từng cuốn
+    @Query("SELECT r.id AS reservationId, r.book.id AS bookId, r.member.id AS memberId FROM Reservation r " +
+           "WHERE r.id IN (SELECT MIN(w.id) FROM Reservation w WHERE w.book.id IN :bookIds " +
+           "AND w.status = com.management.library.demo.entity.Reservation.Status.WAITING GROUP BY w.book.id)")
+    List<QueueEntry> findQueueHeads(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT r.id AS reservationId, r.book.id AS bookId, r.member.id AS memberId FROM Reservation r " +
+           "WHERE r.status = com.management.library.demo.entity.Reservation.Status.WAITING ORDER BY r.id")
+    List<QueueEntry> findAllWaiting();
+
+    @Query("SELECT r.id AS reservationId, r.expiresAt AS expiresAt FROM Reservation r " +
+           "WHERE r.status = com.management.library.demo.entity.Reservation.Status.READY")
+    List<HoldExpiry> findAllHolds();
+
+    @Query("SELECT r.expiresAt FROM Reservation r WHERE r.id = :id " +
+           "AND r.status = com.management.library.demo.entity.Reservation.Status.READY")
+    Optional<LocalDateTime> findHoldExpiry(@Param("id") Long id);
+
+    // Các sách đang được giữ cho member trong số bookIds
+    @Query("SELECT r.id AS reservationId, r.book.id AS bookId, r.member.id AS memberId FROM Reservation r " +
+           "WHERE r.member.id = :memberId AND r.book.id IN :bookIds " +
+           "AND r.status = com.management.library.demo.entity.Reservation.Status.READY")
+    List<QueueEntry> findHolds(@Param("memberId") Long memberId, @Param("bookIds") Collection<Long> bookIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Reservation r SET r.status = com.management.library.demo.entity.Reservation.Status.READY, " +
+           "r.readyAt = :now, r.expiresAt = :expiresAt, r.version = COALESCE(r.version, 0) + 1 " +
+           "WHERE r.id IN :ids AND r.status = com.management.library.demo.entity.Reservation.Status.WAITING")
+    int markReady(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now,
+                  @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Reservation r SET r.status = :status, r.version = COALESCE(r.version, 0) + 1 " +
+           "WHERE r.id IN :ids AND r.status = :expected")
+    int transition(@Param("ids") Collection<Long> ids, @Param("expected") Reservation.Status expected,
+                   @Param("status") Reservation.Status status);
+}
@@ -41,6 +41,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByEmail(String email);
 
+    /**
+     * Tìm user đang gắn với member (member_id unique)
+     */
+    Optional<User> findByMemberId(Long memberId);
+
     /**
      * Tìm tất cả user theo role
      */
@@ -0,0 +1,173 @@
+package com.management.library.demo.search;
+
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.CatalogImportedEvent;
+import com.management.library.demo.repository.BookRepository;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap nén (Roaring) chứa id của các sách đang available.
+ *
+ * Trả lời count, "sách này còn không" và lọc danh sách id mà không chạm tới bảng books.
+ * Được dựng lại khi khởi động và cập nhật từ BookChangedEvent sau khi commit
+ * (bao gồm borrow/return của LoanService).
+ */
+@Component
+public class BookAvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookAvailabilityIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 50_000;
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Roaring64Bitmap available = new Roaring64Bitmap();
+    // Thay đổi nhận được trong lúc rebuild, áp dụng lại sau khi đổi bitmap
+    private List<BookChangedEvent> pendingDuringRebuild;
+    private volatile boolean ready;
+
+    @Autowired
+    public BookAvailabilityIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isAvailable(long bookId) {
+        lock.readLock().lock();
+        try {
+            return available.contains(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long countAvailable() {
+        lock.readLock().lock();
+        try {
+            return available.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Giữ lại các id đang available, theo đúng thứ tự đầu vào
+     */
+    public List<Long> retainAvailable(Collection<Long> bookIds) {
+        List<Long> result = new ArrayList<>(bookIds.size());
+        lock.readLock().lock();
+        try {
+            for (Long bookId : bookIds) {
+                if (available.contains(bookId)) {
+                    result.add(bookId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogImported(CatalogImportedEvent event) {
+        rebuildInBackground();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread rebuild = new Thread(this::rebuild, "book-availability-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    /**
+     * Quét id các sách available theo keyset trên id và dựng bitmap mới rồi thay thế bitmap cũ
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Roaring64Bitmap rebuilt = new Roaring64Bitmap();
+            long afterId = 0;
+            List<Long> ids;
+            do {
+                ids = bookRepository.findAvailableIdsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Long id : ids) {
+                    rebuilt.addLong(id);
+                }
+                if (!ids.isEmpty()) {
+                    afterId = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == REBUILD_BATCH_SIZE);
+            rebuilt.runOptimize();
+
+            lock.writeLock().lock();
+            try {
+                available = rebuilt;
+                // Các event này có thể đã commit sau khi batch tương ứng được đọc
+                pendingDuringRebuild.forEach(this::apply);
+                ready = true;
+                log.info("Book availability bitmap rebuilt: {} available books, {} bytes, in {} ms",
+                        rebuilt.getLongCardinality(), rebuilt.getLongSizeInBytes(),
+                        (System.nanoTime() - start) / 1_000_000);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            log.error("Book availability bitmap rebuild failed", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Gọi khi đang giữ write lock
+    private void apply(BookChangedEvent event) {
+        long bookId = event.getBookId();
+        if (event.getType() == BookChangedEvent.Type.SAVED && event.getBook().isAvailable()) {
+            available.addLong(bookId);
+        } else {
+            available.removeLong(bookId);
+        }
+    }
+}
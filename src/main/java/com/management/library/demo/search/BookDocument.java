@@ -0,0 +1,94 @@
+package com.management.library.demo.search;
+
+import com.management.library.demo.entity.Book;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+/**
+ * Bản sao của Book trong Elasticsearch (index "books") phục vụ search và analytics
+ */
+@Document(indexName = "books")
+public class BookDocument {
+
+    @Id
+    private Long id;
+
+    @Field(type = FieldType.Text)
+    private String title;
+
+    @Field(type = FieldType.Text)
+    private String author;
+
+    @Field(type = FieldType.Keyword)
+    private String genre;
+
+    @Field(type = FieldType.Integer)
+    private int publishedYear;
+
+    @Field(type = FieldType.Boolean)
+    private boolean available;
+
+    public BookDocument() {
+    }
+
+    public static BookDocument from(Book book) {
+        BookDocument document = new BookDocument();
+        document.id = book.getId();
+        document.title = book.getTitle();
+        document.author = book.getAuthor();
+        document.genre = book.getGenre();
+        document.publishedYear = book.getPublishedYear();
+        document.available = book.isAvailable();
+        return document;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public int getPublishedYear() {
+        return publishedYear;
+    }
+
+    public void setPublishedYear(int publishedYear) {
+        this.publishedYear = publishedYear;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+}
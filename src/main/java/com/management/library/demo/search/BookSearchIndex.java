@@ -0,0 +1,365 @@
+package com.management.library.demo.search;
+
+import com.management.library.demo.dto.BookCursor;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.CatalogImportedEvent;
+import com.management.library.demo.repository.BookRepository;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Full-text index (Lucene, BM25) trên title, author và genre của catalog.
+ *
+ * Index chỉ lưu id của sách; nội dung luôn được đọc lại từ database theo thứ tự xếp hạng.
+ * Được rebuild song song khi ứng dụng khởi động và đồng bộ với BookChangedEvent sau khi commit.
+ * Các thay đổi hiển thị cho search sau tối đa ~1 giây (near-real-time reopen).
+ */
+@Component
+public class BookSearchIndex implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    static final String FIELD_ID = "id";
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_AUTHOR = "author";
+    static final String FIELD_GENRE = "genre";
+
+    private static final float TITLE_BOOST = 3.0f;
+    private static final float AUTHOR_BOOST = 2.0f;
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private final BookRepository bookRepository;
+    private final Analyzer analyzer;
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final int rebuildThreads;
+
+    private volatile boolean ready;
+    // Id các sách đã được event cập nhật trong lúc rebuild; batch đọc trước đó có thể là bản cũ nên bỏ qua
+    private volatile ConcurrentHashMap<Long, Boolean> changedDuringRebuild;
+
+    @Autowired
+    public BookSearchIndex(BookRepository bookRepository,
+                           @Value("${library.search.index-dir:}") String indexDir,
+                           @Value("${library.search.rebuild-threads:0}") int rebuildThreads) throws IOException {
+        this.bookRepository = bookRepository;
+        // Không phân biệt hoa thường và dấu tiếng Việt
+        this.analyzer = new FoldingAnalyzer();
+        // Không cấu hình thư mục (ví dụ khi test) thì giữ index trong heap
+        this.directory = indexDir == null || indexDir.isBlank()
+                ? new ByteBuffersDirectory()
+                : new MMapDirectory(Path.of(indexDir));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setSimilarity(new BM25Similarity());
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setSimilarity(new BM25Similarity());
+                return searcher;
+            }
+        });
+        this.reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, 1.0, 0.025);
+        this.reopenThread.setName("book-search-nrt-reopen");
+        this.reopenThread.setDaemon(true);
+        this.reopenThread.start();
+        this.rebuildThreads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Index sẵn sàng khi lần rebuild đầu tiên hoàn tất; trước đó caller nên fallback về database
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Tìm kiếm tự do trên cả ba field, mỗi từ phải xuất hiện ở ít nhất một field.
+     * Trả về id sách theo thứ tự điểm BM25 giảm dần.
+     */
+    public List<Long> search(String text, int limit) {
+        List<String> terms = analyze(FIELD_TITLE, text);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            Query perTerm = new DisjunctionMaxQuery(List.of(
+                    new BoostQuery(new TermQuery(new Term(FIELD_TITLE, term)), TITLE_BOOST),
+                    new BoostQuery(new TermQuery(new Term(FIELD_AUTHOR, term)), AUTHOR_BOOST),
+                    new TermQuery(new Term(FIELD_GENRE, term))), 0.1f);
+            query.add(perTerm, BooleanClause.Occur.MUST);
+        }
+        return execute(query.build(), limit);
+    }
+
+    /**
+     * Tìm kiếm theo từng field; các field không rỗng được kết hợp bằng AND
+     */
+    public List<Long> search(String title, String author, String genre, int limit) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        int clauses = addFieldClauses(query, FIELD_TITLE, title)
+                + addFieldClauses(query, FIELD_AUTHOR, author)
+                + addFieldClauses(query, FIELD_GENRE, genre);
+        if (clauses == 0) {
+            return List.of();
+        }
+        return execute(query.build(), limit);
+    }
+
+    public void index(Book book) {
+        try {
+            writer.updateDocument(idTerm(book.getId()), toDocument(book));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to index book " + book.getId(), e);
+        }
+    }
+
+    public void delete(Long bookId) {
+        try {
+            writer.deleteDocuments(idTerm(bookId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to remove book " + bookId + " from index", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        try {
+            ConcurrentHashMap<Long, Boolean> changed = changedDuringRebuild;
+            if (changed == null) {
+                apply(event);
+            } else {
+                // Cùng khóa theo id với indexFromRebuild nên batch cũ không ghi đè được thay đổi này
+                changed.compute(event.getBookId(), (id, seen) -> {
+                    apply(event);
+                    return Boolean.TRUE;
+                });
+            }
+        } catch (UncheckedIOException e) {
+            // Không làm hỏng request đã commit; lần rebuild kế tiếp sẽ sửa lại index
+            log.error("Search index update failed for {}", event, e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogImported(CatalogImportedEvent event) {
+        rebuildInBackground();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread rebuild = new Thread(this::rebuild, "book-search-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    /**
+     * Đọc toàn bộ catalog theo keyset (title, id) và index song song từng batch.
+     * Số batch đang chờ được giới hạn để bộ nhớ không phụ thuộc kích thước catalog.
+     * Sách đã được BookChangedEvent cập nhật hoặc xóa sau khi bắt đầu rebuild thì giữ theo event.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(rebuildThreads);
+        Semaphore inFlight = new Semaphore(rebuildThreads * 2);
+        List<Future<?>> pending = new ArrayList<>();
+        long count = 0;
+        // Trong lúc rebuild index tạm thời rỗng, caller sẽ fallback về database
+        ready = false;
+        try {
+            writer.deleteAll();
+            // Event commit trước thời điểm này đều được đọc lại từ database ở các batch bên dưới
+            ConcurrentHashMap<Long, Boolean> changed = new ConcurrentHashMap<>();
+            changedDuringRebuild = changed;
+            BookCursor after = BookCursor.START;
+            Slice<Book> slice;
+            do {
+                slice = bookRepository.findSliceAfter(after.getTitle(), after.getId(),
+                        PageRequest.of(0, REBUILD_BATCH_SIZE));
+                List<Book> batch = slice.getContent();
+                if (batch.isEmpty()) {
+                    break;
+                }
+                inFlight.acquire();
+                pending.add(pool.submit(() -> {
+                    try {
+                        for (Book book : batch) {
+                            indexFromRebuild(changed, book);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                count += batch.size();
+                after = BookCursor.after(batch.get(batch.size() - 1));
+            } while (slice.hasNext());
+
+            for (Future<?> future : pending) {
+                future.get();
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            ready = true;
+            log.info("Book search index rebuilt: {} books in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Book search index rebuild failed", e);
+        } finally {
+            changedDuringRebuild = null;
+            pool.shutdownNow();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private void apply(BookChangedEvent event) {
+        if (event.getType() == BookChangedEvent.Type.DELETED) {
+            delete(event.getBookId());
+        } else {
+            index(event.getBook());
+        }
+    }
+
+    private void indexFromRebuild(ConcurrentHashMap<Long, Boolean> changed, Book book) {
+        // Chỉ index khi chưa có event nào cho id này; trả về null nên không thêm entry
+        changed.compute(book.getId(), (id, seen) -> {
+            if (seen == null) {
+                index(book);
+            }
+            return seen;
+        });
+    }
+
+    private List<Long> execute(Query query, int limit) {
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            TopDocs top = searcher.search(query, limit);
+            StoredFields storedFields = searcher.storedFields();
+            List<Long> ids = new ArrayList<>(top.scoreDocs.length);
+            for (ScoreDoc hit : top.scoreDocs) {
+                ids.add(Long.valueOf(storedFields.document(hit.doc).get(FIELD_ID)));
+            }
+            return ids;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Book search failed", e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("Failed to release index searcher", e);
+                }
+            }
+        }
+    }
+
+    private int addFieldClauses(BooleanQuery.Builder query, String field, String text) {
+        if (text == null || text.isBlank()) {
+            return 0;
+        }
+        List<String> terms = analyze(field, text);
+        for (String term : terms) {
+            query.add(new TermQuery(new Term(field, term)), BooleanClause.Occur.MUST);
+        }
+        return terms.size();
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private static Term idTerm(Long bookId) {
+        return new Term(FIELD_ID, String.valueOf(bookId));
+    }
+
+    private static Document toDocument(Book book) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, String.valueOf(book.getId()), Field.Store.YES));
+        addText(doc, FIELD_TITLE, book.getTitle());
+        addText(doc, FIELD_AUTHOR, book.getAuthor());
+        addText(doc, FIELD_GENRE, book.getGenre());
+        return doc;
+    }
+
+    private static void addText(Document doc, String field, String value) {
+        if (value != null) {
+            doc.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+}
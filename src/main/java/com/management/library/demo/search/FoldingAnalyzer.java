@@ -0,0 +1,41 @@
+package com.management.library.demo.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.IOException;
+
+/**
+ * StandardTokenizer + {@link TextFolding}: "Nguyễn" và "nguyen" cho cùng một term.
+ * lucene-analysis-common (ASCIIFoldingFilter) không có trong classpath nên filter được viết trên lucene-core.
+ */
+class FoldingAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+        return new TokenStreamComponents(tokenizer, new FoldingFilter(tokenizer));
+    }
+
+    private static final class FoldingFilter extends TokenFilter {
+
+        private final CharTermAttribute term = addAttribute(CharTermAttribute.class);
+
+        private FoldingFilter(TokenStream input) {
+            super(input);
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (!input.incrementToken()) {
+                return false;
+            }
+            String folded = TextFolding.fold(term.toString());
+            term.setEmpty().append(folded);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.management.library.demo.search;
+
+import com.management.library.demo.entity.Loan;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.time.LocalDate;
+
+/**
+ * Bản sao phẳng của Loan trong Elasticsearch (index "loans").
+ * Không chứa thông tin nhạy cảm của Member (password).
+ */
+@Document(indexName = "loans")
+public class LoanDocument {
+
+    @Id
+    private Long id;
+
+    @Field(type = FieldType.Long)
+    private Long bookId;
+
+    @Field(type = FieldType.Text)
+    private String bookTitle;
+
+    @Field(type = FieldType.Long)
+    private Long memberId;
+
+    @Field(type = FieldType.Text)
+    private String memberName;
+
+    @Field(type = FieldType.Date, format = DateFormat.date)
+    private LocalDate borrowDate;
+
+    @Field(type = FieldType.Date, format = DateFormat.date)
+    private LocalDate dueDate;
+
+    @Field(type = FieldType.Date, format = DateFormat.date)
+    private LocalDate returnDate;
+
+    @Field(type = FieldType.Keyword)
+    private String status;
+
+    public LoanDocument() {
+    }
+
+    public static LoanDocument from(Loan loan) {
+        LoanDocument document = new LoanDocument();
+        document.id = loan.getId();
+        if (loan.getBook() != null) {
+            document.bookId = loan.getBook().getId();
+            document.bookTitle = loan.getBook().getTitle();
+        }
+        if (loan.getMember() != null) {
+            document.memberId = loan.getMember().getId();
+            document.memberName = loan.getMember().getName();
+        }
+        document.borrowDate = loan.getBorrowDate();
+        document.dueDate = loan.getDueDate();
+        document.returnDate = loan.getReturnDate();
+        document.status = loan.getStatus() == null ? null : loan.getStatus().name();
+        return document;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(Long memberId) {
+        this.memberId = memberId;
+    }
+
+    public String getMemberName() {
+        return memberName;
+    }
+
+    public void setMemberName(String memberName) {
+        this.memberName = memberName;
+    }
+
+    public LocalDate getBorrowDate() {
+        return borrowDate;
+    }
+
+    public void setBorrowDate(LocalDate borrowDate) {
+        this.borrowDate = borrowDate;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(LocalDate dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public LocalDate getReturnDate() {
+        return returnDate;
+    }
+
+    public void setReturnDate(LocalDate returnDate) {
+        this.returnDate = returnDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
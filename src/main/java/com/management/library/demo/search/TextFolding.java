@@ -0,0 +1,28 @@
+package com.management.library.demo.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi để tìm kiếm không dấu: chữ thường, bỏ dấu thanh và dấu phụ ("Nguyễn Đình Chiểu" -> "nguyen dinh chieu").
+ *
+ * Dùng chung cho các cột *_folded trong database (Book, Member), cho giá trị tìm kiếm và cho analyzer của
+ * BookSearchIndex, nên mọi cách viết có dấu/không dấu đều gặp nhau ở cùng một dạng.
+ */
+public final class TextFolding {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private TextFolding() {
+    }
+
+    public static String fold(String value) {
+        if (value == null) {
+            return null;
+        }
+        // Đ/đ không tách được bằng NFD nên phải thay riêng
+        String decomposed = Normalizer.normalize(value.replace('Đ', 'D').replace('đ', 'd'), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
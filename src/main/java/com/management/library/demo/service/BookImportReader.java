@@ -0,0 +1,242 @@
+package com.management.library.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.management.library.demo.dto.BookImportReport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Đọc file import (CSV có header hoặc NDJSON) theo từng dòng và validate ngay khi đọc.
+ * Dòng hợp lệ được chuyển cho RowHandler, dòng lỗi được ghi vào report; không giữ file trong bộ nhớ.
+ *
+ * CSV: header gồm title, author, genre, publishedYear (hoặc published_year), available (chỉ áp dụng cho sách mới,
+ * mặc định true);
+ * hỗ trợ field trong dấu nháy kép nhưng không hỗ trợ xuống dòng bên trong field.
+ */
+public class BookImportReader {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format fromContentType(String contentType) {
+            if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("ndjson")) {
+                return NDJSON;
+            }
+            return CSV;
+        }
+
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    public interface RowHandler {
+        void accept(long line, Row row) throws IOException, SQLException;
+    }
+
+    public static class Row {
+        private final String title;
+        private final String author;
+        private final String genre;
+        private final int publishedYear;
+        private final boolean available;
+
+        Row(String title, String author, String genre, int publishedYear, boolean available) {
+            this.title = title;
+            this.author = author;
+            this.genre = genre;
+            this.publishedYear = publishedYear;
+            this.available = available;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public String getGenre() {
+            return genre;
+        }
+
+        public int getPublishedYear() {
+            return publishedYear;
+        }
+
+        public boolean isAvailable() {
+            return available;
+        }
+    }
+
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+
+    public BookImportReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void read(InputStream input, Format format, BookImportReport report, RowHandler handler)
+            throws IOException, SQLException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        Map<String, Integer> columns = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && columns == null) {
+                columns = parseHeader(line);
+                continue;
+            }
+            report.incrementRowsRead();
+            Map<String, String> fields;
+            try {
+                fields = format == Format.CSV ? csvFields(line, columns) : jsonFields(line);
+            } catch (IllegalArgumentException | IOException e) {
+                report.addError(lineNumber, "Malformed row: " + e.getMessage());
+                continue;
+            }
+            String error = validate(fields);
+            if (error != null) {
+                report.addError(lineNumber, error);
+                continue;
+            }
+            handler.accept(lineNumber, toRow(fields));
+        }
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(line);
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "");
+            columns.put(name, i);
+        }
+        if (!columns.containsKey("title") || !columns.containsKey("author") || !columns.containsKey("publishedyear")) {
+            throw new IllegalArgumentException("CSV header must contain title, author and publishedYear");
+        }
+        return columns;
+    }
+
+    private static Map<String, String> csvFields(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<String, Integer> column : columns.entrySet()) {
+            if (column.getValue() < values.size()) {
+                fields.put(column.getKey(), values.get(column.getValue()));
+            }
+        }
+        return fields;
+    }
+
+    private Map<String, String> jsonFields(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        node.properties().forEach(entry -> {
+            if (!entry.getValue().isNull()) {
+                fields.put(entry.getKey().toLowerCase(Locale.ROOT).replace("_", ""), entry.getValue().asText());
+            }
+        });
+        return fields;
+    }
+
+    private static String validate(Map<String, String> fields) {
+        String title = fields.get("title");
+        String author = fields.get("author");
+        if (title == null || title.isBlank()) {
+            return "title is required";
+        }
+        if (author == null || author.isBlank()) {
+            return "author is required";
+        }
+        for (String key : new String[]{"title", "author", "genre"}) {
+            String value = fields.get(key);
+            if (value != null && value.length() > MAX_TEXT_LENGTH) {
+                return key + " exceeds " + MAX_TEXT_LENGTH + " characters";
+            }
+        }
+        String year = fields.get("publishedyear");
+        if (year == null || year.isBlank()) {
+            return "publishedYear is required";
+        }
+        try {
+            int value = Integer.parseInt(year.trim());
+            if (value < 0 || value > Year.now().getValue() + 1) {
+                return "publishedYear out of range: " + value;
+            }
+        } catch (NumberFormatException e) {
+            return "publishedYear is not a number: " + year;
+        }
+        String available = fields.get("available");
+        if (available != null && !available.isBlank()
+                && !"true".equalsIgnoreCase(available.trim()) && !"false".equalsIgnoreCase(available.trim())) {
+            return "available must be true or false: " + available;
+        }
+        return null;
+    }
+
+    private static Row toRow(Map<String, String> fields) {
+        String genre = fields.get("genre");
+        String available = fields.get("available");
+        return new Row(
+                fields.get("title").trim(),
+                fields.get("author").trim(),
+                genre == null || genre.isBlank() ? null : genre.trim(),
+                Integer.parseInt(fields.get("publishedyear").trim()),
+                available == null || available.isBlank() || Boolean.parseBoolean(available.trim()));
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
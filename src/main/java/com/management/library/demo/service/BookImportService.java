@@ -0,0 +1,185 @@
+package com.management.library.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.management.library.demo.dto.BookImportReport;
+import com.management.library.demo.event.CatalogImportedEvent;
+import com.management.library.demo.search.TextFolding;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Bulk import catalog: stream file -> validate từng dòng -> staging table tạm -> MERGE vào books.
+ *
+ * Trên PostgreSQL dòng hợp lệ được đẩy thẳng vào staging bằng COPY FROM STDIN trong lúc đang đọc file;
+ * database khác (H2 khi test) dùng JDBC batch insert. Khóa upsert là (title, author, published_year):
+ * sách đã có thì chỉ cập nhật genre (nếu dòng có genre), chưa có thì insert. Toàn bộ import nằm trong một transaction.
+ *
+ * Cột available của file chỉ dùng khi insert: trạng thái của sách đã có do loan quyết định (sách đang được mượn
+ * không được trở lại available chỉ vì được import lại, và ngược lại).
+ */
+@Service
+public class BookImportService {
+
+    private static final String STAGING_TABLE = "book_import_staging";
+    private static final String STAGING_COLUMNS =
+            "line_no, title, author, genre, published_year, available, title_folded, author_folded";
+    private static final int COPY_BUFFER_BYTES = 1 << 16;
+    private static final int JDBC_BATCH_SIZE = 1000;
+
+    // Dòng xuất hiện sau cùng trong file thắng khi trùng khóa
+    private static final String DEDUPLICATED_STAGING =
+            "SELECT title, author, genre, published_year, available, title_folded, author_folded FROM (" +
+            " SELECT s.*, ROW_NUMBER() OVER (PARTITION BY title, author, published_year ORDER BY line_no DESC) AS rn" +
+            " FROM " + STAGING_TABLE + " s) ranked WHERE rn = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookImportReader reader;
+
+    @Autowired
+    public BookImportService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.reader = new BookImportReader(objectMapper);
+    }
+
+    @Transactional
+    public BookImportReport importBooks(InputStream input, BookImportReader.Format format) {
+        long start = System.nanoTime();
+        BookImportReport report = new BookImportReport();
+
+        boolean postgres = jdbcTemplate.execute((Connection connection) -> connection.isWrapperFor(PGConnection.class));
+        jdbcTemplate.execute(postgres
+                ? "CREATE TEMP TABLE " + STAGING_TABLE + " (line_no BIGINT, title VARCHAR(255), author VARCHAR(255)," +
+                  " genre VARCHAR(255), published_year INT, available BOOLEAN, title_folded VARCHAR(255)," +
+                  " author_folded VARCHAR(255)) ON COMMIT DROP"
+                : "CREATE LOCAL TEMPORARY TABLE " + STAGING_TABLE + " (line_no BIGINT, title VARCHAR(255)," +
+                  " author VARCHAR(255), genre VARCHAR(255), published_year INT, available BOOLEAN," +
+                  " title_folded VARCHAR(255), author_folded VARCHAR(255)) ON COMMIT DROP TRANSACTIONAL");
+
+        jdbcTemplate.execute((Connection connection) -> {
+            try {
+                if (postgres) {
+                    copyIntoStaging(connection, input, format, report);
+                } else {
+                    batchIntoStaging(connection, input, format, report);
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Failed to read import data: " + e.getMessage(), e);
+            }
+            return null;
+        });
+
+        Long updated = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (" + DEDUPLICATED_STAGING + ") s WHERE EXISTS (SELECT 1 FROM books b" +
+                " WHERE b.title = s.title AND b.author = s.author AND b.published_year = s.published_year)", Long.class);
+        int merged = jdbcTemplate.update(
+                "MERGE INTO books b USING (" + DEDUPLICATED_STAGING + ") s" +
+                " ON (b.title = s.title AND b.author = s.author AND b.published_year = s.published_year)" +
+                " WHEN MATCHED THEN UPDATE SET genre = COALESCE(s.genre, b.genre)," +
+                " title_folded = s.title_folded, author_folded = s.author_folded, version = COALESCE(b.version, 0) + 1" +
+                " WHEN NOT MATCHED THEN INSERT (title, author, genre, published_year, available, title_folded," +
+                " author_folded, version)" +
+                " VALUES (s.title, s.author, s.genre, s.published_year, s.available, s.title_folded, s.author_folded, 0)");
+
+        // Outbox cho Elasticsearch, cùng transaction với dữ liệu vừa merge
+        jdbcTemplate.update(
+                "INSERT INTO outbox_events (aggregate_type, aggregate_id, created_at)" +
+                " SELECT 'BOOK', b.id, CURRENT_TIMESTAMP FROM books b WHERE EXISTS (SELECT 1 FROM " + STAGING_TABLE + " s" +
+                " WHERE b.title = s.title AND b.author = s.author AND b.published_year = s.published_year)");
+
+        long updatedRows = updated == null ? 0 : updated;
+        report.setUpdated(updatedRows);
+        report.setInserted(merged - updatedRows);
+        report.setDurationMs((System.nanoTime() - start) / 1_000_000);
+        eventPublisher.publishEvent(new CatalogImportedEvent(merged));
+        return report;
+    }
+
+    private void copyIntoStaging(Connection connection, InputStream input, BookImportReader.Format format,
+                                 BookImportReport report) throws SQLException, IOException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + STAGING_TABLE + " (" + STAGING_COLUMNS + ") FROM STDIN WITH (FORMAT csv)");
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_BYTES + 1024);
+            reader.read(input, format, report, (line, row) -> {
+                StringBuilder csv = new StringBuilder(128)
+                        .append(line).append(',')
+                        .append(csvQuote(row.getTitle())).append(',')
+                        .append(csvQuote(row.getAuthor())).append(',')
+                        .append(row.getGenre() == null ? "" : csvQuote(row.getGenre())).append(',')
+                        .append(row.getPublishedYear()).append(',')
+                        .append(row.isAvailable()).append(',')
+                        // Cột không dấu cho tìm kiếm, giống Book.foldSearchColumns
+                        .append(csvQuote(TextFolding.fold(row.getTitle()))).append(',')
+                        .append(csvQuote(TextFolding.fold(row.getAuthor()))).append('\n');
+                buffer.writeBytes(csv.toString().getBytes(StandardCharsets.UTF_8));
+                if (buffer.size() >= COPY_BUFFER_BYTES) {
+                    flush(copyIn, buffer);
+                }
+            });
+            flush(copyIn, buffer);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void batchIntoStaging(Connection connection, InputStream input, BookImportReader.Format format,
+                                  BookImportReport report) throws SQLException, IOException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + STAGING_TABLE + " (" + STAGING_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            int[] pending = {0};
+            reader.read(input, format, report, (line, row) -> {
+                insert.setLong(1, line);
+                insert.setString(2, row.getTitle());
+                insert.setString(3, row.getAuthor());
+                if (row.getGenre() == null) {
+                    insert.setNull(4, Types.VARCHAR);
+                } else {
+                    insert.setString(4, row.getGenre());
+                }
+                insert.setInt(5, row.getPublishedYear());
+                insert.setBoolean(6, row.isAvailable());
+                insert.setString(7, TextFolding.fold(row.getTitle()));
+                insert.setString(8, TextFolding.fold(row.getAuthor()));
+                insert.addBatch();
+                if (++pending[0] == JDBC_BATCH_SIZE) {
+                    insert.executeBatch();
+                    pending[0] = 0;
+                }
+            });
+            if (pending[0] > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static void flush(CopyIn copyIn, ByteArrayOutputStream buffer) throws SQLException {
+        if (buffer.size() > 0) {
+            copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            buffer.reset();
+        }
+    }
+
+    private static String csvQuote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,12 +1,31 @@
 package com.management.library.demo.service;
 
+import com.management.library.demo.config.CacheConfig;
+import com.management.library.demo.dto.BookCursor;
+import com.management.library.demo.dto.BookSearchCriteria;
+import com.management.library.demo.dto.CursorPage;
 import com.management.library.demo.entity.Book;
+import com.management.library.demo.event.BookChangedEvent;
 import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.BookSpecifications;
+import com.management.library.demo.search.BookAvailabilityIndex;
+import com.management.library.demo.search.BookSearchIndex;
+import com.management.library.demo.search.TextFolding;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -14,10 +33,25 @@ import java.util.Optional;
 public class BookService {
 
     private final BookRepository bookRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookAvailabilityIndex bookAvailabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository,
+                       BookSearchIndex bookSearchIndex,
+                       BookAvailabilityIndex bookAvailabilityIndex,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${library.books.page-size.default:50}") int defaultPageSize,
+                       @Value("${library.books.page-size.max:500}") int maxPageSize) {
         this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookAvailabilityIndex = bookAvailabilityIndex;
+        this.eventPublisher = eventPublisher;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     public List<Book> getAllBooks() {
@@ -28,16 +62,30 @@ public class BookService {
         return bookRepository.findAll();
     }
 
+    /**
+     * Read-through qua cache "books"; sync = true gộp các lần miss đồng thời cho cùng id thành một lần đọc DB.
+     * Entity trả về được chia sẻ giữa các request, không sửa trực tiếp mà hãy dùng updateBook.
+     */
+    @Cacheable(cacheNames = CacheConfig.BOOKS_CACHE, key = "#id", sync = true)
+    @Transactional(readOnly = true)
     public Optional<Book> getBookById(Long id) {
         return bookRepository.findById(id);
     }
 
+    // Dùng cho conditional GET: chỉ đọc version, không load entity
+    @Transactional(readOnly = true)
+    public Optional<Long> getBookVersion(Long id) {
+        return bookRepository.findVersionById(id);
+    }
+
     public Optional<Book> findBookById(Long id) {
         return bookRepository.findById(id);
     }
 
     public Book saveBook(Book book) {
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(saved));
+        return saved;
     }
 
     public Book updateBook(Long id, Book bookDetails) {
@@ -49,7 +97,9 @@ public class BookService {
         book.setGenre(bookDetails.getGenre());
         book.setPublishedYear(bookDetails.getPublishedYear());
         book.setAvailable(bookDetails.isAvailable());
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(saved));
+        return saved;
     }
 
     public void deleteBook(Long id) {
@@ -57,14 +107,15 @@ public class BookService {
             throw new RuntimeException("Book not found with id: " + id); // Consider a custom exception
         }
         bookRepository.deleteById(id);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id));
     }
 
     public List<Book> findBooksByTitle(String title) {
-        return bookRepository.findByTitleContainingIgnoreCase(title);
+        return bookRepository.findByTitleFoldedContaining(TextFolding.fold(title));
     }
 
     public List<Book> findBooksByAuthor(String author) {
-        return bookRepository.findByAuthorContainingIgnoreCase(author);
+        return bookRepository.findByAuthorFoldedContaining(TextFolding.fold(author));
     }
 
     public List<Book> findBooksByGenre(String genre) {
@@ -83,14 +134,120 @@ public class BookService {
         return bookRepository.findByAvailable(true);
     }
 
+    /**
+     * Tìm theo từng field, xếp hạng BM25 qua BookSearchIndex khi index đã sẵn sàng; trước đó lọc bằng Specification.
+     * Endpoint /search phân trang keyset theo (title, id) nên không dùng đường này (xem searchBooks(criteria, ...)).
+     */
+    @Transactional(readOnly = true)
     public List<Book> searchBooks(String title, String author, String genre) {
-        if (title != null && !title.isEmpty()) {
-            return findBooksByTitle(title);
-        } else if (author != null && !author.isEmpty()) {
-            return findBooksByAuthor(author);
-        } else if (genre != null && !genre.isEmpty()) {
-            return findBooksByGenre(genre);
+        if (bookSearchIndex.isReady() && hasText(title, author, genre)) {
+            return loadRanked(bookSearchIndex.search(title, author, genre, maxPageSize));
+        }
+        return searchBooks(new BookSearchCriteria(title, author, genre, null, null, null), BookCursor.START, null)
+                .getItems();
+    }
+
+    /**
+     * Tìm kiếm full-text có xếp hạng (BM25) trên title, author và genre
+     */
+    @Transactional(readOnly = true)
+    public List<Book> fullTextSearch(String query, Integer limit, boolean availableOnly) {
+        int topN = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        if (!bookSearchIndex.isReady() || (availableOnly && !bookAvailabilityIndex.isReady())) {
+            // Index chưa rebuild xong sau khi khởi động: tạm thời dùng LIKE trên title
+            Boolean available = availableOnly ? Boolean.TRUE : null;
+            return searchBooks(new BookSearchCriteria(query, null, null, null, null, available), BookCursor.START, topN)
+                    .getItems();
+        }
+        if (!availableOnly) {
+            return loadRanked(bookSearchIndex.search(query, topN));
+        }
+        // Lấy dư ứng viên rồi lọc bằng bitmap, không cần đọc DB cho các sách đang được mượn
+        List<Long> candidates = bookSearchIndex.search(query, Math.min(topN * 4, maxPageSize * 4));
+        List<Long> available = bookAvailabilityIndex.retainAvailable(candidates);
+        return loadRanked(available.subList(0, Math.min(topN, available.size())));
+    }
+
+    public long countBooks() {
+        return bookRepository.count();
+    }
+
+    public long countAvailableBooks() {
+        if (bookAvailabilityIndex.isReady()) {
+            return bookAvailabilityIndex.countAvailable();
+        }
+        return bookRepository.countByAvailable(true);
+    }
+
+    public boolean isBookAvailable(Long id) {
+        if (bookAvailabilityIndex.isReady()) {
+            return bookAvailabilityIndex.isAvailable(id);
+        }
+        return getBookById(id).map(Book::isAvailable).orElse(false);
+    }
+
+    private List<Book> loadRanked(List<Long> rankedIds) {
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < rankedIds.size(); i++) {
+            rank.put(rankedIds.get(i), i);
+        }
+        // Sách đã bị xóa nhưng index chưa kịp refresh sẽ đơn giản là không có trong kết quả
+        return bookRepository.findAllById(rankedIds).stream()
+                .sorted(Comparator.comparing(book -> rank.get(book.getId())))
+                .toList();
+    }
+
+    private static boolean hasText(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Keyset pagination: mỗi trang là một range scan trên index (title, id), không phụ thuộc độ sâu trang
+
+    public CursorPage<Book> getBooksPage(BookCursor after, Integer size) {
+        return toCursorPage(bookRepository.findSliceAfter(after.getTitle(), after.getId(), pageRequest(size)));
+    }
+
+    public CursorPage<Book> getAvailableBooksPage(BookCursor after, Integer size) {
+        return toCursorPage(bookRepository.findSliceByAvailableAfter(true, after.getTitle(), after.getId(),
+                pageRequest(size)));
+    }
+
+    /**
+     * Tìm sách theo tất cả tiêu chí trong một câu SQL, sắp xếp và phân trang keyset (title, id) phía database.
+     * Thứ tự theo độ liên quan không phân trang keyset được, nên tìm kiếm có xếp hạng nằm ở fullTextSearch.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Book> searchBooks(BookSearchCriteria criteria, BookCursor after, Integer size) {
+        int pageSize = pageRequest(size).getPageSize();
+        Specification<Book> spec = BookSpecifications.matching(criteria).and(BookSpecifications.after(after));
+        // Lấy dư một dòng để biết còn trang sau mà không cần COUNT
+        List<Book> rows = bookRepository.findBy(spec, query -> query
+                .sortBy(Sort.by("title", "id"))
+                .limit(pageSize + 1)
+                .all());
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
         }
-        return findAllBooks();
+        List<Book> books = rows.subList(0, pageSize);
+        return new CursorPage<>(books, BookCursor.after(books.get(pageSize - 1)).encode());
+    }
+
+    private PageRequest pageRequest(Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        // Luôn là trang 0: vị trí được xác định bởi cursor chứ không phải OFFSET
+        return PageRequest.of(0, pageSize);
+    }
+
+    private CursorPage<Book> toCursorPage(Slice<Book> slice) {
+        List<Book> books = slice.getContent();
+        String nextCursor = slice.hasNext() && !books.isEmpty()
+                ? BookCursor.after(books.get(books.size() - 1)).encode()
+                : null;
+        return new CursorPage<>(books, nextCursor);
     }
 }
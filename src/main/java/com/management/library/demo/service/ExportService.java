@@ -0,0 +1,173 @@
+package com.management.library.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Export books/members/loans dạng NDJSON hoặc CSV, đọc bằng cursor phía server và ghi thẳng ra output.
+ * Persistence context được clear định kỳ nên bộ nhớ không tăng theo số dòng.
+ *
+ * <p>Các method {@code streamAll()} của repository đọc theo fetch size (cursor phía server, read-only),
+ * nên chỉ dùng được bên trong transaction và Stream phải được đóng sau khi dùng — ở đây là
+ * {@code @Transactional} trên từng method export cùng try-with-resources.
+ */
+@Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int CLEAR_EVERY_ROWS = 1000;
+
+    private static final List<String> BOOK_COLUMNS =
+            List.of("id", "title", "author", "genre", "publishedYear", "available");
+    // Không export password của member
+    private static final List<String> MEMBER_COLUMNS = List.of("id", "name", "email");
+    private static final List<String> LOAN_COLUMNS =
+            List.of("id", "bookId", "bookTitle", "memberId", "memberName", "borrowDate", "dueDate", "returnDate",
+                    "status");
+
+    private final BookRepository bookRepository;
+    private final MemberRepository memberRepository;
+    private final LoanRepository loanRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public ExportService(BookRepository bookRepository, MemberRepository memberRepository,
+                         LoanRepository loanRepository, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.memberRepository = memberRepository;
+        this.loanRepository = loanRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream output, Format format) throws IOException {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            return write(output, format, BOOK_COLUMNS, books, book -> row(BOOK_COLUMNS,
+                    book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                    book.getPublishedYear(), book.isAvailable()));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportMembers(OutputStream output, Format format) throws IOException {
+        try (Stream<Member> members = memberRepository.streamAll()) {
+            return write(output, format, MEMBER_COLUMNS, members, member -> row(MEMBER_COLUMNS,
+                    member.getId(), member.getName(), member.getEmail()));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportLoans(OutputStream output, Format format) throws IOException {
+        try (Stream<Loan> loans = loanRepository.streamAll()) {
+            return write(output, format, LOAN_COLUMNS, loans, loan -> row(LOAN_COLUMNS,
+                    loan.getId(), loan.getBook().getId(), loan.getBook().getTitle(),
+                    loan.getMember().getId(), loan.getMember().getName(),
+                    loan.getBorrowDate(), loan.getDueDate(), loan.getReturnDate(), loan.getStatus()));
+        }
+    }
+
+    private <T> long write(OutputStream output, Format format, List<String> columns, Stream<T> rows,
+                           Function<T, Map<String, Object>> mapper) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+        if (format == Format.CSV) {
+            writer.write(String.join(",", columns));
+            writer.write('\n');
+        }
+        long count = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            Map<String, Object> row = mapper.apply(iterator.next());
+            if (format == Format.CSV) {
+                writeCsv(writer, row);
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            if (++count % CLEAR_EVERY_ROWS == 0) {
+                entityManager.clear();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsv(Writer writer, Map<String, Object> row) throws IOException {
+        boolean first = true;
+        for (Object value : row.values()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            if (value != null) {
+                writer.write(csvEscape(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static Map<String, Object> row(List<String> columns, Object... values) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            row.put(columns.get(i), values[i]);
+        }
+        return row;
+    }
+}
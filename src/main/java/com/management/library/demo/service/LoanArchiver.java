@@ -0,0 +1,77 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.repository.LoanHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Chuyển loan đã trả lâu hơn library.loans.archive.min-age từ bảng loans sang loan_history,
+ * để các query theo status trên bảng loans chỉ còn phải đọc dữ liệu "nóng".
+ *
+ * Mỗi batch là một transaction ngắn (chọn id theo thứ tự, tạo partition tháng nếu thiếu,
+ * rồi DELETE ... RETURNING vào bảng lịch sử), nên job có thể dừng giữa chừng mà không để lại dữ liệu dở dang.
+ */
+@Component
+public class LoanArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanArchiver.class);
+
+    private final LoanHistoryRepository loanHistoryRepository;
+    private final TransactionTemplate writeTransaction;
+    private final Period minAge;
+    private final int batchSize;
+
+    @Autowired
+    public LoanArchiver(LoanHistoryRepository loanHistoryRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${library.loans.archive.min-age:P90D}") Period minAge,
+                        @Value("${library.loans.archive.batch-size:500}") int batchSize) {
+        this.loanHistoryRepository = loanHistoryRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${library.loans.archive.cron:0 15 2 * * *}")
+    public void archive() {
+        int archived = archive(LocalDate.now());
+        if (archived > 0) {
+            log.info("Archived {} returned loans into loan_history", archived);
+        }
+    }
+
+    /**
+     * Lưu trữ mọi loan đã trả trước (today - min-age); trả về số loan đã chuyển
+     */
+    public synchronized int archive(LocalDate today) {
+        LocalDate cutoff = today.minus(minAge);
+        int total = 0;
+        while (true) {
+            List<LoanHistoryRepository.ArchiveCandidate> batch =
+                    loanHistoryRepository.findArchiveCandidates(cutoff, batchSize);
+            if (batch.isEmpty()) {
+                return total;
+            }
+            batch.stream().map(LoanHistoryRepository.ArchiveCandidate::borrowMonth)
+                    .filter(Objects::nonNull).distinct()
+                    .forEach(loanHistoryRepository::ensurePartition);
+            List<Long> ids = batch.stream().map(LoanHistoryRepository.ArchiveCandidate::id).toList();
+            Integer moved = writeTransaction.execute(status -> loanHistoryRepository.moveToHistory(ids));
+            total += moved == null ? 0 : moved;
+            if (batch.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+}
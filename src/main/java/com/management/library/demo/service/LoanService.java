@@ -1,18 +1,48 @@
 package com.management.library.demo.service;
 
+import com.management.library.demo.dto.CursorPage;
+import com.management.library.demo.dto.LoanBatchResult;
+import com.management.library.demo.dto.LoanView;
 import com.management.library.demo.entity.Book;
 import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.LoanStatus;
 import com.management.library.demo.entity.Member;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.limit.ActiveLoanLimiter;
 import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanBatchRepository;
+import com.management.library.demo.repository.LoanHistoryRepository;
 import com.management.library.demo.repository.LoanRepository;
 import com.management.library.demo.repository.MemberRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
@@ -21,16 +51,51 @@ public class LoanService {
     private final LoanRepository loanRepository;
     private final BookRepository bookRepository;
     private final MemberRepository memberRepository;
+    private final LoanHistoryRepository loanHistoryRepository;
+    private final LoanBatchRepository loanBatchRepository;
+    private final ReservationService reservationService;
+    private final ActiveLoanLimiter activeLoanLimiter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate writeTransaction;
+    private final int maxWriteAttempts;
+    private final boolean postgres;
+    private final Period loanPeriod;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int maxBatchItems;
 
-    public static final String LOAN_STATUS_BORROWED = "BORROWED";
-    public static final String LOAN_STATUS_RETURNED = "RETURNED";
-    public static final String LOAN_STATUS_OVERDUE = "OVERDUE";
+    public static final LoanStatus LOAN_STATUS_BORROWED = LoanStatus.BORROWED;
+    public static final LoanStatus LOAN_STATUS_RETURNED = LoanStatus.RETURNED;
+    public static final LoanStatus LOAN_STATUS_OVERDUE = LoanStatus.OVERDUE;
 
     @Autowired
-    public LoanService(LoanRepository loanRepository, BookRepository bookRepository, MemberRepository memberRepository) {
+    public LoanService(LoanRepository loanRepository, BookRepository bookRepository, MemberRepository memberRepository,
+                       LoanHistoryRepository loanHistoryRepository, LoanBatchRepository loanBatchRepository,
+                       ReservationService reservationService, ActiveLoanLimiter activeLoanLimiter,
+                       ApplicationEventPublisher eventPublisher,
+                       PlatformTransactionManager transactionManager,
+                       EntityManagerFactory entityManagerFactory,
+                       @Value("${library.loans.max-write-attempts:3}") int maxWriteAttempts,
+                       @Value("${library.loans.loan-period:P14D}") Period loanPeriod,
+                       @Value("${library.loans.page-size.default:20}") int defaultPageSize,
+                       @Value("${library.loans.page-size.max:200}") int maxPageSize,
+                       @Value("${library.loans.batch.max-items:100}") int maxBatchItems) {
         this.loanRepository = loanRepository;
         this.bookRepository = bookRepository;
         this.memberRepository = memberRepository;
+        this.loanHistoryRepository = loanHistoryRepository;
+        this.loanBatchRepository = loanBatchRepository;
+        this.reservationService = reservationService;
+        this.activeLoanLimiter = activeLoanLimiter;
+        this.eventPublisher = eventPublisher;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.maxWriteAttempts = Math.max(1, maxWriteAttempts);
+        this.postgres = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        this.loanPeriod = loanPeriod;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchItems = maxBatchItems;
     }
 
     public List<Loan> getAllLoans() {
@@ -41,8 +106,65 @@ public class LoanService {
         return loanRepository.findAll();
     }
 
+    // Book và member được join fetch vì loan được trả thẳng ra JSON (không còn open-in-view)
+    @Transactional(readOnly = true)
     public Optional<Loan> getLoanById(Long id) {
-        return loanRepository.findById(id);
+        return loanRepository.findWithBookAndMemberById(id);
+    }
+
+    // Các danh sách dưới đây đều là một câu query, trả về LoanView thay vì entity
+
+    @Transactional(readOnly = true)
+    public List<LoanView> getAllLoanViews() {
+        return loanRepository.findAllViews();
+    }
+
+    @Transactional(readOnly = true)
+    public List<LoanView> getLoanViewsByStatus(LoanStatus status) {
+        return loanRepository.findViewsByStatus(status);
+    }
+
+    // Đọc worklist do OverdueLoanSweeper cập nhật, không tính lại trên toàn bảng
+    @Transactional(readOnly = true)
+    public List<LoanView> getOverdueLoanViews() {
+        return loanRepository.findOverdueViews();
+    }
+
+    @Transactional(readOnly = true)
+    public List<LoanView> getLoanViewsByMemberId(Long memberId) {
+        return loanRepository.findViewsByMemberId(memberId);
+    }
+
+    /**
+     * Lịch sử mượn của một member, mới nhất trước, phân trang keyset theo id.
+     * Cursor là id của loan cuối trang trước; chi phí mỗi trang không phụ thuộc độ dài lịch sử.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<LoanView> getLoanViewsPageByMemberId(Long memberId, String status, String cursor, Integer size) {
+        long beforeId = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : Long.parseLong(cursor);
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        // Lấy dư một dòng để biết còn trang sau hay không
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<LoanView> rows = status == null || status.isBlank()
+                ? loanRepository.findViewsByMemberIdBefore(memberId, beforeId, limit)
+                : loanRepository.findViewsByMemberIdAndStatusBefore(
+                        memberId, LoanStatus.valueOf(status.trim().toUpperCase()), beforeId, limit);
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<LoanView> page = rows.subList(0, pageSize);
+        return new CursorPage<>(page, String.valueOf(page.get(pageSize - 1).getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<LoanView> getLoanViewsByBookId(Long bookId) {
+        return loanRepository.findViewsByBookId(bookId);
+    }
+
+    // Dùng cho conditional GET: version của loan, book và member trong một câu query, không load entity
+    @Transactional(readOnly = true)
+    public Optional<LoanRepository.LoanVersions> getLoanVersions(Long id) {
+        return loanRepository.findVersionsById(id);
     }
 
     public Optional<Loan> findLoanById(Long id) {
@@ -50,45 +172,331 @@ public class LoanService {
     }
 
     public Loan saveLoan(Loan loan) {
-        return loanRepository.save(loan);
+        if (loan.getStatus() == null) {
+            loan.setStatus(loan.getReturnDate() != null ? LOAN_STATUS_RETURNED : LOAN_STATUS_BORROWED);
+        }
+        if (loan.getDueDate() == null && loan.getBorrowDate() != null) {
+            loan.setDueDate(dueDateFor(loan.getBorrowDate()));
+        }
+        Loan saved = loanRepository.save(loan);
+        loanChanged(saved.getMember());
+        eventPublisher.publishEvent(LoanChangedEvent.saved(saved));
+        return saved;
+    }
+
+    public Loan updateLoan(Long id, Loan loanDetails) {
+        Loan loan = loanRepository.findWithBookAndMemberById(id)
+                .orElseThrow(() -> new RuntimeException("Loan not found with id: " + id));
+
+        loan.setBorrowDate(loanDetails.getBorrowDate());
+        if (loanDetails.getDueDate() != null) {
+            loan.setDueDate(loanDetails.getDueDate());
+        }
+        loan.setReturnDate(loanDetails.getReturnDate());
+        if (loanDetails.getStatus() != null) {
+            loan.setStatus(loanDetails.getStatus());
+        }
+        Loan saved = loanRepository.save(loan);
+        loanChanged(saved.getMember());
+        eventPublisher.publishEvent(LoanChangedEvent.saved(saved));
+        return saved;
     }
 
     public void deleteLoan(Long id) {
+        loanRepository.findById(id).ifPresent(loan -> loanChanged(loan.getMember()));
         loanRepository.deleteById(id);
+        eventPublisher.publishEvent(LoanChangedEvent.deleted(id));
     }
 
+    // SUPPORTS như overload bên dưới: gọi nội bộ không qua proxy, nên annotation mặc định của class sẽ mở
+    // transaction bên ngoài và withRetry không bao giờ được thử lại
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Loan borrowBook(Long bookId, Long memberId) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
-        Member member = memberRepository.findById(memberId)
-                .orElseThrow(() -> new RuntimeException("Member not found with id: " + memberId));
+        return borrowBook(bookId, memberId, LocalDate.now());
+    }
+
+    /**
+     * Mượn sách bằng UPDATE có điều kiện (available = true) thay vì đọc rồi ghi:
+     * hai request đồng thời cho cùng một cuốn chỉ có một request cập nhật được dòng, request kia nhận lỗi.
+     * Trên PostgreSQL việc giành sách và insert loan là một câu lệnh; loan được đọc lại một lần (kèm book, member).
+     * Giới hạn số sách mượn cùng lúc được kiểm tra trên bộ đếm trong bộ nhớ (ActiveLoanLimiter), không query thêm.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Loan borrowBook(Long bookId, Long memberId, LocalDate borrowDate) {
+        return withRetry(() -> {
+            // Rollback (sách không mượn được, lỗi khác) tự trả lại chỗ đã giữ
+            if (memberId != null && activeLoanLimiter.reserve(memberId, 1) == 0) {
+                throw new RuntimeException("Loan limit reached for member: " + memberId);
+            }
+            int inserted;
+            try {
+                inserted = postgres
+                        ? loanRepository.borrowIfAvailable(bookId, memberId, borrowDate, dueDateFor(borrowDate))
+                        : claimAndInsert(bookId, memberId, borrowDate);
+                if (inserted == 0 && !reservationService.claimHolds(memberId, List.of(bookId)).isEmpty()) {
+                    // Sách đang được giữ cho chính member này (hàng đợi giữ chỗ)
+                    inserted = loanRepository.insertBorrowed(bookId, memberId, borrowDate, dueDateFor(borrowDate));
+                }
+            } catch (DataIntegrityViolationException e) {
+                // Sách đã giành được nên chỉ còn FK tới member có thể vi phạm
+                throw new RuntimeException("Member not found with id: " + memberId);
+            }
+            if (inserted == 0) {
+                if (!bookRepository.existsById(bookId)) {
+                    throw new RuntimeException("Book not found with id: " + bookId);
+                }
+                throw new RuntimeException("Book is not available for loan: " + bookId);
+            }
 
-        if (!book.isAvailable()) {
-            throw new RuntimeException("Book is not available for loan: " + book.getTitle());
+            Loan loan = loanRepository.findActiveLoanByBookId(bookId)
+                    .orElseThrow(() -> new IllegalStateException("Loan for book " + bookId + " not found after insert"));
+            eventPublisher.publishEvent(BookChangedEvent.saved(loan.getBook()));
+            eventPublisher.publishEvent(LoanChangedEvent.borrowed(loan));
+            return loan;
+        });
+    }
+
+    /**
+     * Trả sách bằng UPDATE có điều kiện trên status, nên một loan chỉ được trả đúng một lần.
+     * Nếu có người đang chờ cuốn này, sách được giữ cho người đầu hàng đợi thay vì trả về kho.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Loan returnBook(Long loanId) {
+        return withRetry(() -> {
+            LocalDate today = LocalDate.now();
+            int returned = markReturnedAndAllocate(loanId, today);
+            if (returned == 0) {
+                if (!loanRepository.existsById(loanId)) {
+                    throw new RuntimeException("Loan not found with id: " + loanId);
+                }
+                throw new RuntimeException("Book already returned for this loan: " + loanId);
+            }
+
+            Loan loan = loanRepository.findWithBookAndMemberById(loanId)
+                    .orElseThrow(() -> new IllegalStateException("Loan " + loanId + " not found after return"));
+            activeLoanLimiter.returned(loan.getMember().getId(), 1);
+            eventPublisher.publishEvent(BookChangedEvent.saved(loan.getBook()));
+            eventPublisher.publishEvent(LoanChangedEvent.returned(loan));
+            return loan;
+        });
+    }
+
+    // Database khác PostgreSQL: hai câu lệnh trong cùng transaction, vẫn không cần đọc trước
+    private int claimAndInsert(Long bookId, Long memberId, LocalDate borrowDate) {
+        if (bookRepository.claimForLoan(bookId) == 0) {
+            return 0;
         }
+        return loanRepository.insertBorrowed(bookId, memberId, borrowDate, dueDateFor(borrowDate));
+    }
 
-        book.setAvailable(false);
-        bookRepository.save(book);
+    // Hạn trả = ngày mượn + library.loans.loan-period
+    public LocalDate dueDateFor(LocalDate borrowDate) {
+        return borrowDate.plus(loanPeriod);
+    }
 
-        Loan loan = new Loan(book, member, LocalDate.now(), LOAN_STATUS_BORROWED);
-        return loanRepository.save(loan);
+    // Hàng đợi giữ chỗ chỉ được đọc sau khi lock dòng sách (ReservationService.allocate)
+    private int markReturnedAndAllocate(Long loanId, LocalDate returnDate) {
+        if (loanRepository.markReturned(loanId, returnDate) == 0) {
+            return 0;
+        }
+        reservationService.allocate(loanRepository.findBookIdsByIds(List.of(loanId)));
+        return 1;
     }
 
-    public Loan returnBook(Long loanId) {
-        Loan loan = loanRepository.findById(loanId)
-                .orElseThrow(() -> new RuntimeException("Loan not found with id: " + loanId));
+    /**
+     * Mượn nhiều sách cho một member trong một transaction: giành sách và insert loan bằng JDBC batch
+     * (mỗi loại câu lệnh một round trip). Cuốn không tồn tại, không available hoặc bị gửi trùng chỉ làm hỏng
+     * item của nó; member không tồn tại thì cả batch bị từ chối. Khi chạm giới hạn số sách mượn cùng lúc,
+     * chỉ các cuốn đầu tiên (theo id) trong phần còn được mượn được thử, các cuốn sau hỏng với lỗi giới hạn.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public LoanBatchResult borrowBooks(Long memberId, List<Long> bookIds) {
+        checkBatchSize(bookIds);
+        return withRetry(() -> {
+            if (memberId == null || !memberRepository.existsById(memberId)) {
+                throw new RuntimeException("Member not found with id: " + memberId);
+            }
+            // Sắp tăng dần để các batch đồng thời lock sách theo cùng thứ tự
+            List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(bookIds));
+            distinct.removeIf(id -> id == null);
+            distinct.sort(null);
+            int allowed = distinct.isEmpty() ? 0 : activeLoanLimiter.reserve(memberId, distinct.size());
+            Set<Long> overLimit = new HashSet<>(distinct.subList(allowed, distinct.size()));
+            List<Long> attempted = distinct.subList(0, allowed);
+            boolean[] claimed = attempted.isEmpty() ? new boolean[0] : loanBatchRepository.claimBooks(attempted);
+            List<Long> claimedIds = new ArrayList<>();
+            List<Long> notClaimed = new ArrayList<>();
+            for (int i = 0; i < attempted.size(); i++) {
+                (claimed[i] ? claimedIds : notClaimed).add(attempted.get(i));
+            }
+            // Cuốn không available có thể đang được giữ cho chính member này
+            claimedIds.addAll(reservationService.claimHolds(memberId, notClaimed));
+            claimedIds.sort(null);
+            activeLoanLimiter.release(memberId, allowed - claimedIds.size());
+
+            Map<Long, Loan> loans = new HashMap<>();
+            if (!claimedIds.isEmpty()) {
+                LocalDate today = LocalDate.now();
+                loanBatchRepository.insertBorrowed(memberId, claimedIds, today, dueDateFor(today));
+                for (Loan loan : loanRepository.findActiveWithBookAndMemberByBookIds(claimedIds)) {
+                    loans.put(loan.getBook().getId(), loan);
+                    eventPublisher.publishEvent(BookChangedEvent.saved(loan.getBook()));
+                    eventPublisher.publishEvent(LoanChangedEvent.borrowed(loan));
+                }
+            }
+            Set<Long> unclaimed = new HashSet<>(attempted);
+            unclaimed.removeAll(claimedIds);
+            Set<Long> existing = unclaimed.isEmpty()
+                    ? Set.of() : new HashSet<>(bookRepository.findExistingIds(unclaimed));
+
+            LoanBatchResult result = new LoanBatchResult();
+            Set<Long> seen = new HashSet<>();
+            for (Long bookId : bookIds) {
+                Loan loan = loans.get(bookId);
+                if (bookId == null) {
+                    result.addFailure(null, null, "Book id is required");
+                } else if (!seen.add(bookId)) {
+                    result.addFailure(bookId, null, "Duplicate book id in batch: " + bookId);
+                } else if (loan != null) {
+                    result.addSuccess(bookId, loan.getId(), loan.getDueDate());
+                } else if (overLimit.contains(bookId)) {
+                    result.addFailure(bookId, null, "Loan limit reached for member: " + memberId);
+                } else if (existing.contains(bookId)) {
+                    result.addFailure(bookId, null, "Book is not available for loan: " + bookId);
+                } else {
+                    result.addFailure(bookId, null, "Book not found with id: " + bookId);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Trả nhiều sách trong một transaction, theo id loan và/hoặc id sách (loan chưa trả của cuốn đó).
+     * Đánh dấu đã trả bằng JDBC batch, rồi giữ sách cho người chờ hoặc trả về kho bằng một câu lệnh cho cả batch;
+     * item lỗi không làm hỏng các item khác.
+     * Thứ tự item trong kết quả: các loanIds trước, rồi tới các bookIds.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public LoanBatchResult returnBooks(List<Long> loanIds, List<Long> bookIds) {
+        List<Long> byLoan = loanIds == null ? List.of() : loanIds;
+        List<Long> byBook = bookIds == null ? List.of() : bookIds;
+        List<Long> all = new ArrayList<>(byLoan);
+        all.addAll(byBook);
+        checkBatchSize(all);
+        return withRetry(() -> {
+            // Loan chưa trả của các cuốn được gửi theo id sách
+            Map<Long, Long> loanIdByBook = new HashMap<>();
+            Set<Long> requestedBooks = new HashSet<>(byBook);
+            requestedBooks.remove(null);
+            if (!requestedBooks.isEmpty()) {
+                for (LoanRepository.ActiveBookLoan active : loanRepository.findActiveLoanIdsByBookIds(requestedBooks)) {
+                    loanIdByBook.merge(active.getBookId(), active.getLoanId(), Math::max);
+                }
+            }
+
+            Set<Long> targets = new HashSet<>(byLoan);
+            targets.addAll(loanIdByBook.values());
+            targets.remove(null);
+            List<Long> sorted = new ArrayList<>(targets);
+            sorted.sort(null);
+            boolean[] returned = sorted.isEmpty()
+                    ? new boolean[0] : loanBatchRepository.markReturned(sorted, LocalDate.now());
+            List<Long> returnedIds = new ArrayList<>();
+            for (int i = 0; i < sorted.size(); i++) {
+                if (returned[i]) {
+                    returnedIds.add(sorted.get(i));
+                }
+            }
 
-        if (LOAN_STATUS_RETURNED.equals(loan.getStatus())){
-            throw new RuntimeException("Book already returned for this loan: " + loanId);
+            Map<Long, Loan> loans = new HashMap<>();
+            if (!returnedIds.isEmpty()) {
+                reservationService.allocate(loanRepository.findBookIdsByIds(returnedIds));
+                for (Loan loan : loanRepository.findAllWithBookAndMemberById(returnedIds)) {
+                    loans.put(loan.getId(), loan);
+                    activeLoanLimiter.returned(loan.getMember().getId(), 1);
+                    eventPublisher.publishEvent(BookChangedEvent.saved(loan.getBook()));
+                    eventPublisher.publishEvent(LoanChangedEvent.returned(loan));
+                }
+            }
+            Set<Long> notReturned = new HashSet<>(byLoan);
+            notReturned.remove(null);
+            notReturned.removeAll(returnedIds);
+            Set<Long> existing = notReturned.isEmpty()
+                    ? Set.of() : new HashSet<>(loanRepository.findExistingIds(notReturned));
+
+            LoanBatchResult result = new LoanBatchResult();
+            Set<Long> seen = new HashSet<>();
+            for (Long loanId : byLoan) {
+                if (loanId == null) {
+                    result.addFailure(null, null, "Loan id is required");
+                } else if (!seen.add(loanId)) {
+                    result.addFailure(null, loanId, "Duplicate loan id in batch: " + loanId);
+                } else if (loans.containsKey(loanId)) {
+                    result.addSuccess(loans.get(loanId).getBook().getId(), loanId, null);
+                } else if (existing.contains(loanId)) {
+                    result.addFailure(null, loanId, "Book already returned for this loan: " + loanId);
+                } else {
+                    result.addFailure(null, loanId, "Loan not found with id: " + loanId);
+                }
+            }
+            for (Long bookId : byBook) {
+                Long loanId = bookId == null ? null : loanIdByBook.get(bookId);
+                if (bookId == null) {
+                    result.addFailure(null, null, "Book id is required");
+                } else if (loanId == null) {
+                    result.addFailure(bookId, null, "No active loan for book: " + bookId);
+                } else if (!seen.add(loanId)) {
+                    result.addFailure(bookId, loanId, "Duplicate loan id in batch: " + loanId);
+                } else if (loans.containsKey(loanId)) {
+                    result.addSuccess(bookId, loanId, null);
+                } else {
+                    result.addFailure(bookId, loanId, "Book already returned for this loan: " + loanId);
+                }
+            }
+            return result;
+        });
+    }
+
+    // Sửa/xóa loan trực tiếp có thể đổi số sách member đang mượn: bộ đếm đọc lại từ database
+    private void loanChanged(Member member) {
+        if (member != null && member.getId() != null) {
+            activeLoanLimiter.changed(member.getId());
         }
+    }
 
-        Book book = loan.getBook();
-        book.setAvailable(true);
-        bookRepository.save(book);
+    private void checkBatchSize(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one item");
+        }
+        if (ids.size() > maxBatchItems) {
+            throw new IllegalArgumentException("Batch exceeds " + maxBatchItems + " items");
+        }
+    }
 
-        loan.setReturnDate(LocalDate.now());
-        loan.setStatus(LOAN_STATUS_RETURNED);
-        return loanRepository.save(loan);
+    /**
+     * Chạy trong transaction riêng và thử lại (có giới hạn) khi gặp deadlock/lock timeout.
+     * Khi đã có transaction bên ngoài thì chỉ tham gia vào đó, việc thử lại thuộc về bên gọi.
+     */
+    private <T> T withRetry(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return writeTransaction.execute(status -> work.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxWriteAttempts) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(5L << attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
     }
 
     public List<Loan> findLoansByMember(Long memberId) {
@@ -103,13 +511,29 @@ public class LoanService {
         return loanRepository.findByBook(book);
     }
 
+    /**
+     * Loans của member; includeHistory = true thì gộp cả loan đã được LoanArchiver chuyển sang loan_history
+     */
+    @Transactional(readOnly = true)
+    public List<LoanView> findLoansByMember(Long memberId, boolean includeHistory) {
+        return includeHistory
+                ? loanHistoryRepository.findViewsWithHistoryByMemberId(memberId)
+                : loanRepository.findViewsByMemberId(memberId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LoanView> findLoansByBook(Long bookId, boolean includeHistory) {
+        return includeHistory
+                ? loanHistoryRepository.findViewsWithHistoryByBookId(bookId)
+                : loanRepository.findViewsByBookId(bookId);
+    }
+
     public List<Loan> findOverdueLoans() {
-        // This is a simple check. A more robust solution might involve a scheduled task
-        // to update statuses or more complex query logic based on due dates.
-        return loanRepository.findByReturnDateBeforeAndStatus(LocalDate.now(), LOAN_STATUS_BORROWED);
+        // Trạng thái OVERDUE do OverdueLoanSweeper gán dựa trên dueDate
+        return loanRepository.findByStatus(LOAN_STATUS_OVERDUE);
     }
 
-    public List<Loan> findLoansByStatus(String status) {
+    public List<Loan> findLoansByStatus(LoanStatus status) {
         return loanRepository.findByStatus(status);
     }
 
@@ -124,12 +548,4 @@ public class LoanService {
     public List<Loan> getOverdueLoans() {
         return findOverdueLoans();
     }
-    
-    public List<Loan> getLoansByUserId(Long userId) {
-        // Thực hiện logic để lấy loans theo user ID
-        // Có thể cần join với member table hoặc có thêm mapping
-        return loanRepository.findAll().stream()
-                .filter(loan -> loan.getMember() != null && loan.getMember().getId().equals(userId))
-                .toList();
-    }
 }
@@ -1,8 +1,12 @@
 package com.management.library.demo.service;
 
+import com.management.library.demo.dto.CursorPage;
+import com.management.library.demo.dto.MemberSearchCursor;
 import com.management.library.demo.entity.Member;
 import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.repository.MemberSearchRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 // import org.springframework.security.crypto.password.PasswordEncoder; // For password hashing
@@ -15,11 +19,19 @@ import java.util.Optional;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final MemberSearchRepository memberSearchRepository;
+    private final int defaultSearchPageSize;
+    private final int maxSearchPageSize;
     // private final PasswordEncoder passwordEncoder; // Inject if using Spring Security
 
     @Autowired
-    public MemberService(MemberRepository memberRepository) { // Add PasswordEncoder if using
+    public MemberService(MemberRepository memberRepository, MemberSearchRepository memberSearchRepository,
+                         @Value("${library.members.search.page-size.default:20}") int defaultSearchPageSize,
+                         @Value("${library.members.search.page-size.max:100}") int maxSearchPageSize) { // Add PasswordEncoder if using
         this.memberRepository = memberRepository;
+        this.memberSearchRepository = memberSearchRepository;
+        this.defaultSearchPageSize = defaultSearchPageSize;
+        this.maxSearchPageSize = maxSearchPageSize;
         // this.passwordEncoder = passwordEncoder;
     }
 
@@ -35,6 +47,12 @@ public class MemberService {
         return memberRepository.findById(id);
     }
 
+    // Dùng cho conditional GET: chỉ đọc version, không load entity
+    @Transactional(readOnly = true)
+    public Optional<Long> getMemberVersion(Long id) {
+        return memberRepository.findVersionById(id);
+    }
+
     public Optional<Member> findMemberById(Long id) {
         return memberRepository.findById(id);
     }
@@ -69,12 +87,21 @@ public class MemberService {
         memberRepository.deleteById(id);
     }
 
-    public List<Member> searchMembers(String name, String email) {
-        if (name != null && !name.isEmpty()) {
-            return memberRepository.findByNameContainingIgnoreCase(name);
-        } else if (email != null && !email.isEmpty()) {
-            return memberRepository.findByEmailContainingIgnoreCase(email);
+    /**
+     * Tìm member theo tên hoặc email, khớp nhất trước, phân trang keyset (xem MemberSearchRepository).
+     * Cursor là token của trang trước; query rỗng thì liệt kê mọi member theo id.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Member> searchMembers(String query, String cursor, Integer size) {
+        MemberSearchCursor after = MemberSearchCursor.decode(cursor);
+        int pageSize = size == null ? defaultSearchPageSize : Math.max(1, Math.min(size, maxSearchPageSize));
+        // Lấy dư một dòng để biết còn trang sau mà không cần COUNT
+        List<MemberSearchRepository.ScoredMember> rows = memberSearchRepository.search(query, after, pageSize + 1);
+        List<Member> members = rows.stream().limit(pageSize).map(MemberSearchRepository.ScoredMember::member).toList();
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(members, null);
         }
-        return findAllMembers();
+        MemberSearchRepository.ScoredMember last = rows.get(pageSize - 1);
+        return new CursorPage<>(members, new MemberSearchCursor(last.score(), last.member().getId()).encode());
     }
 }
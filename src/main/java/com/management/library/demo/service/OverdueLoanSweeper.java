@@ -0,0 +1,78 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Chuyển các loan BORROWED đã quá dueDate sang OVERDUE.
+ *
+ * Làm theo từng chunk: chọn id qua partial index trên loan đang mượn, một câu UPDATE cho cả chunk
+ * và một câu INSERT outbox, mỗi chunk một transaction ngắn để không giữ lock lâu trên bảng loans.
+ * Kết quả là worklist mà /api/loans/overdue đọc trực tiếp.
+ */
+@Component
+public class OverdueLoanSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueLoanSweeper.class);
+
+    private final LoanRepository loanRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate writeTransaction;
+    private final int chunkSize;
+
+    @Autowired
+    public OverdueLoanSweeper(LoanRepository loanRepository,
+                              OutboxEventRepository outboxEventRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${library.loans.overdue-sweep.chunk-size:1000}") int chunkSize) {
+        this.loanRepository = loanRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${library.loans.overdue-sweep.cron:0 5 * * * *}")
+    public void sweep() {
+        int marked = sweep(LocalDate.now());
+        if (marked > 0) {
+            log.info("Marked {} loans as overdue", marked);
+        }
+    }
+
+    /**
+     * Đánh dấu OVERDUE mọi loan đang mượn có dueDate trước ngày today; trả về số loan đã đánh dấu
+     */
+    public synchronized int sweep(LocalDate today) {
+        int total = 0;
+        while (true) {
+            int[] chunk = writeTransaction.execute(status -> sweepChunk(today));
+            total += chunk[1];
+            if (chunk[0] < chunkSize) {
+                return total;
+            }
+        }
+    }
+
+    // {số id đã chọn, số loan đã cập nhật}
+    private int[] sweepChunk(LocalDate today) {
+        List<Long> ids = loanRepository.findOverdueCandidateIds(today, PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        int updated = loanRepository.markOverdue(ids);
+        outboxEventRepository.recordLoans(ids);
+        return new int[]{ids.size(), updated};
+    }
+}
@@ -0,0 +1,59 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.PopularBook;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.popularity.DecayingTopK;
+import com.management.library.demo.popularity.PopularityTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Bảng xếp hạng từ {@link PopularityTracker}, thêm thông tin sách qua cache "books" (BookService.getBookById)
+ * nên khi cache đã nóng không chạm tới database.
+ */
+@Service
+public class PopularityService {
+
+    // Đọc dư vài item để bù cho sách đã bị xóa
+    private static final int DELETED_SLACK = 10;
+
+    private final PopularityTracker popularityTracker;
+    private final BookService bookService;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    @Autowired
+    public PopularityService(PopularityTracker popularityTracker, BookService bookService,
+                             @Value("${library.popularity.limit.default:10}") int defaultLimit,
+                             @Value("${library.popularity.limit.max:100}") int maxLimit) {
+        this.popularityTracker = popularityTracker;
+        this.bookService = bookService;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * window: day, week hoặc all-time; IllegalArgumentException nếu không hợp lệ
+     */
+    public List<PopularBook> getPopularBooks(String window, Integer limit) {
+        PopularityTracker.Window parsed = PopularityTracker.Window.parse(window);
+        int size = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        List<PopularBook> result = new ArrayList<>(size);
+        for (DecayingTopK.Entry entry : popularityTracker.top(parsed, size + DELETED_SLACK)) {
+            Optional<Book> book = bookService.getBookById(entry.itemId());
+            if (book.isPresent()) {
+                result.add(new PopularBook(entry.itemId(), book.get().getTitle(), book.get().getAuthor(),
+                        book.get().isAvailable(), entry.score(), entry.error()));
+                if (result.size() == size) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.RelatedBook;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.recommendation.RecommendationTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Gợi ý "bạn đọc mượn cuốn này cũng mượn..." từ {@link RecommendationTracker}, thêm thông tin sách qua cache
+ * "books" (BookService.getBookById) nên khi cache đã nóng không chạm tới database.
+ */
+@Service
+public class RecommendationService {
+
+    // Đọc dư vài item để bù cho sách đã bị xóa
+    private static final int DELETED_SLACK = 5;
+
+    private final RecommendationTracker recommendationTracker;
+    private final BookService bookService;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    @Autowired
+    public RecommendationService(RecommendationTracker recommendationTracker, BookService bookService,
+                                 @Value("${library.recommendations.limit.default:10}") int defaultLimit,
+                                 @Value("${library.recommendations.limit.max:20}") int maxLimit) {
+        this.recommendationTracker = recommendationTracker;
+        this.bookService = bookService;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Sách hay được mượn cùng bookId; rỗng nếu chưa có đủ lịch sử
+     */
+    public List<RelatedBook> getRelatedBooks(Long bookId, Integer limit) {
+        int size = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        List<RelatedBook> result = new ArrayList<>(size);
+        for (long relatedId : recommendationTracker.related(bookId, size + DELETED_SLACK)) {
+            Optional<Book> book = bookService.getBookById(relatedId);
+            if (book.isPresent()) {
+                result.add(new RelatedBook(relatedId, book.get().getTitle(), book.get().getAuthor(),
+                        book.get().isAvailable()));
+                if (result.size() == size) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.event.ReservationChangedEvent;
+import com.management.library.demo.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Bản sao trong bộ nhớ của các lượt đang chờ (WAITING) theo từng cuốn sách: reservation id -> member id, theo thứ tự.
+ *
+ * Nạp lúc khởi động và cập nhật theo ReservationChangedEvent sau commit; dùng để trả vị trí trong hàng đợi
+ * và số người chờ mà không phải đếm trong database. Quyết định cấp sách luôn đọc từ database (xem ReservationService).
+ */
+@Component
+public class ReservationQueueIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationQueueIndex.class);
+
+    private final ReservationRepository reservationRepository;
+    private final TransactionTemplate readTransaction;
+    private final Map<Long, NavigableMap<Long, Long>> waiting = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReservationQueueIndex(ReservationRepository reservationRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.reservationRepository = reservationRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        List<ReservationRepository.QueueEntry> entries = readTransaction.execute(status ->
+                reservationRepository.findAllWaiting());
+        for (ReservationRepository.QueueEntry entry : entries) {
+            add(entry.getBookId(), entry.getReservationId(), entry.getMemberId());
+        }
+        log.info("Reservation index seeded with {} waiting reservations on {} books", entries.size(), waiting.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.getType() == ReservationChangedEvent.Type.QUEUED) {
+            add(event.getBookId(), event.getReservationId(), event.getMemberId());
+        } else {
+            // READY/CANCELLED/... : không còn chờ nữa
+            waiting.computeIfPresent(event.getBookId(), (bookId, queue) -> {
+                queue.remove(event.getReservationId());
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+    }
+
+    /**
+     * Vị trí (từ 1) của reservation trong hàng đợi của cuốn sách, null nếu không còn chờ
+     */
+    public Integer position(Long bookId, Long reservationId) {
+        NavigableMap<Long, Long> queue = waiting.get(bookId);
+        if (queue == null || !queue.containsKey(reservationId)) {
+            return null;
+        }
+        return queue.headMap(reservationId, false).size() + 1;
+    }
+
+    public int waitingCount(Long bookId) {
+        NavigableMap<Long, Long> queue = waiting.get(bookId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Member đang chờ cuốn sách, theo thứ tự hàng đợi
+     */
+    public List<Long> waitingMembers(Long bookId) {
+        NavigableMap<Long, Long> queue = waiting.get(bookId);
+        return queue == null ? List.of() : new ArrayList<>(queue.values());
+    }
+
+    private void add(Long bookId, Long reservationId, Long memberId) {
+        waiting.compute(bookId, (id, queue) -> {
+            NavigableMap<Long, Long> target = queue == null ? new ConcurrentSkipListMap<>() : queue;
+            target.put(reservationId, memberId);
+            return target;
+        });
+    }
+}
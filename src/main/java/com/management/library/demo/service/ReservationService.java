@@ -0,0 +1,238 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.ReservationView;
+import com.management.library.demo.entity.LoanStatus;
+import com.management.library.demo.entity.Reservation;
+import com.management.library.demo.entity.ReminderDelivery;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.ReminderDueEvent;
+import com.management.library.demo.event.ReservationChangedEvent;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Hàng đợi giữ chỗ (FIFO) cho sách đang được mượn.
+ *
+ * Mọi thay đổi hàng đợi của một cuốn (đặt chỗ, hủy, giữ sách khi trả, mượn sách đang giữ, hết hạn giữ) đều
+ * lock dòng books của cuốn đó trước, nên các thao tác đồng thời trên cùng cuốn được xếp hàng trong database:
+ * một lượt đặt chỗ hoặc thấy sách còn available (và bị từ chối), hoặc được lần trả sách sau đó nhìn thấy.
+ * {@link ReservationQueueIndex} chỉ là bản sao trong bộ nhớ để tra vị trí, không dùng để quyết định cấp sách.
+ */
+@Service
+@Transactional
+public class ReservationService {
+
+    private final ReservationRepository reservationRepository;
+    private final BookRepository bookRepository;
+    private final MemberRepository memberRepository;
+    private final LoanRepository loanRepository;
+    private final ReservationQueueIndex queueIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration holdPeriod;
+
+    @Autowired
+    public ReservationService(ReservationRepository reservationRepository, BookRepository bookRepository,
+                              MemberRepository memberRepository, LoanRepository loanRepository,
+                              ReservationQueueIndex queueIndex, ApplicationEventPublisher eventPublisher,
+                              @Value("${library.reservations.hold-period:P3D}") Duration holdPeriod) {
+        this.reservationRepository = reservationRepository;
+        this.bookRepository = bookRepository;
+        this.memberRepository = memberRepository;
+        this.loanRepository = loanRepository;
+        this.queueIndex = queueIndex;
+        this.eventPublisher = eventPublisher;
+        this.holdPeriod = holdPeriod;
+    }
+
+    /**
+     * Xếp member vào cuối hàng đợi của cuốn sách. Chỉ đặt được khi sách đang không available.
+     */
+    public ReservationView reserve(Long bookId, Long memberId) {
+        Boolean available = bookRepository.lockForQueue(bookId)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        if (available) {
+            throw new RuntimeException("Book is available for loan: " + bookId);
+        }
+        if (memberId == null || !memberRepository.existsById(memberId)) {
+            throw new RuntimeException("Member not found with id: " + memberId);
+        }
+        if (reservationRepository.existsActive(bookId, memberId)) {
+            throw new RuntimeException("Member " + memberId + " already has a reservation for book " + bookId);
+        }
+        if (loanRepository.existsByBookIdAndMemberIdAndStatusIn(bookId, memberId,
+                List.of(LoanStatus.BORROWED, LoanStatus.OVERDUE))) {
+            throw new RuntimeException("Member " + memberId + " already has book " + bookId + " on loan");
+        }
+        Reservation saved = reservationRepository.save(new Reservation(
+                bookRepository.getReferenceById(bookId), memberRepository.getReferenceById(memberId)));
+        eventPublisher.publishEvent(new ReservationChangedEvent(
+                ReservationChangedEvent.Type.QUEUED, saved.getId(), bookId, memberId, null));
+        ReservationView view = reservationRepository.findViewById(saved.getId())
+                .orElseThrow(() -> new IllegalStateException("Reservation " + saved.getId() + " not found after insert"));
+        // Index trong bộ nhớ chỉ được cập nhật sau commit nên vị trí của lượt mới đếm từ database
+        view.setPosition((int) reservationRepository.countByBookIdAndStatusAndIdLessThan(
+                bookId, Reservation.Status.WAITING, saved.getId()) + 1);
+        return view;
+    }
+
+    /**
+     * Hủy reservation đang chờ hoặc đang giữ sách; sách đang giữ được chuyển cho người kế tiếp.
+     * memberId khác null thì chỉ hủy được reservation của member đó.
+     */
+    public void cancel(Long reservationId, Long memberId) {
+        ReservationRepository.QueueEntry entry = reservationRepository.findEntryById(reservationId)
+                .orElseThrow(() -> new RuntimeException("Reservation not found with id: " + reservationId));
+        if (memberId != null && !memberId.equals(entry.getMemberId())) {
+            throw new RuntimeException("Reservation " + reservationId + " does not belong to member " + memberId);
+        }
+        bookRepository.lockForQueue(entry.getBookId());
+        Reservation.Status status = reservationRepository.findStatusById(reservationId).orElseThrow();
+        if (!status.isActive()
+                || reservationRepository.transition(List.of(reservationId), status, Reservation.Status.CANCELLED) == 0) {
+            throw new RuntimeException("Reservation is no longer active: " + reservationId);
+        }
+        eventPublisher.publishEvent(new ReservationChangedEvent(
+                ReservationChangedEvent.Type.CANCELLED, reservationId, entry.getBookId(), entry.getMemberId(), null));
+        if (status == Reservation.Status.READY) {
+            passOn(entry.getBookId());
+        }
+    }
+
+    /**
+     * Cấp các cuốn vừa được trả: cuốn nào có người chờ thì giữ cho người đầu hàng đợi (sách vẫn không available),
+     * còn lại trả về kho. Phải chạy trong transaction đã đánh dấu loan là RETURNED.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void allocate(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        List<Long> locked = bookRepository.lockAllForQueue(new TreeSet<>(bookIds));
+        List<ReservationRepository.QueueEntry> heads = locked.isEmpty() ? List.of()
+                : reservationRepository.findQueueHeads(locked);
+        Set<Long> held = new HashSet<>();
+        if (!heads.isEmpty()) {
+            // Làm tròn tới giây: expiresAt được so khớp lại khi timing wheel bắn mốc hết hạn
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            LocalDateTime expiresAt = now.plus(holdPeriod);
+            List<Long> ids = new ArrayList<>();
+            for (ReservationRepository.QueueEntry head : heads) {
+                ids.add(head.getReservationId());
+                held.add(head.getBookId());
+            }
+            reservationRepository.markReady(ids, now, expiresAt);
+            for (ReservationRepository.QueueEntry head : heads) {
+                eventPublisher.publishEvent(new ReservationChangedEvent(ReservationChangedEvent.Type.READY,
+                        head.getReservationId(), head.getBookId(), head.getMemberId(), expiresAt));
+            }
+        }
+        List<Long> released = new ArrayList<>(locked);
+        released.removeAll(held);
+        if (!released.isEmpty()) {
+            bookRepository.releaseAll(released);
+        }
+    }
+
+    /**
+     * Member mượn các cuốn đang được giữ cho mình; trả về id các cuốn đã nhận (reservation chuyển sang FULFILLED).
+     * Bên gọi insert loan cho các cuốn này trong cùng transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<Long> claimHolds(Long memberId, Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Set.of();
+        }
+        List<Long> locked = bookRepository.lockAllForQueue(new TreeSet<>(bookIds));
+        List<ReservationRepository.QueueEntry> holds = locked.isEmpty() ? List.of()
+                : reservationRepository.findHolds(memberId, locked);
+        if (holds.isEmpty()) {
+            return Set.of();
+        }
+        List<Long> ids = new ArrayList<>();
+        Set<Long> claimed = new HashSet<>();
+        for (ReservationRepository.QueueEntry hold : holds) {
+            ids.add(hold.getReservationId());
+            claimed.add(hold.getBookId());
+        }
+        reservationRepository.transition(ids, Reservation.Status.READY, Reservation.Status.FULFILLED);
+        for (ReservationRepository.QueueEntry hold : holds) {
+            eventPublisher.publishEvent(new ReservationChangedEvent(ReservationChangedEvent.Type.FULFILLED,
+                    hold.getReservationId(), hold.getBookId(), memberId, null));
+        }
+        return claimed;
+    }
+
+    /**
+     * Hết hạn giữ sách (bắn từ timing wheel của ReminderScheduler, trong transaction ghi ReminderDelivery):
+     * reservation chuyển sang EXPIRED và sách được giữ cho người kế tiếp hoặc trả về kho.
+     */
+    @EventListener
+    public void onHoldExpired(ReminderDueEvent event) {
+        if (event.getKind() != ReminderDelivery.Kind.HOLD_EXPIRES) {
+            return;
+        }
+        Long reservationId = event.getSubjectId();
+        Optional<ReservationRepository.QueueEntry> entry = reservationRepository.findEntryById(reservationId);
+        if (entry.isEmpty()) {
+            return;
+        }
+        Long bookId = entry.get().getBookId();
+        bookRepository.lockForQueue(bookId);
+        // Có thể member đã mượn hoặc hủy trong lúc chờ lock
+        boolean stillHeld = reservationRepository.findHoldExpiry(reservationId)
+                .map(expiresAt -> !expiresAt.isAfter(event.getDeadline()))
+                .orElse(false);
+        if (!stillHeld || reservationRepository.transition(
+                List.of(reservationId), Reservation.Status.READY, Reservation.Status.EXPIRED) == 0) {
+            return;
+        }
+        eventPublisher.publishEvent(new ReservationChangedEvent(
+                ReservationChangedEvent.Type.EXPIRED, reservationId, bookId, entry.get().getMemberId(), null));
+        passOn(bookId);
+    }
+
+    // Sách đang giữ bị bỏ: giữ cho người kế tiếp hoặc trả về kho
+    private void passOn(Long bookId) {
+        allocate(List.of(bookId));
+        bookRepository.findById(bookId).ifPresent(book -> eventPublisher.publishEvent(BookChangedEvent.saved(book)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReservationView> getQueue(Long bookId) {
+        return withPositions(reservationRepository.findActiveViewsByBookId(bookId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReservationView> getReservationsByMember(Long memberId) {
+        return withPositions(reservationRepository.findActiveViewsByMemberId(memberId));
+    }
+
+    private List<ReservationView> withPositions(List<ReservationView> views) {
+        for (ReservationView view : views) {
+            if (view.getStatus() == Reservation.Status.WAITING) {
+                view.setPosition(queueIndex.position(view.getBookId(), view.getId()));
+            }
+        }
+        return views;
+    }
+}
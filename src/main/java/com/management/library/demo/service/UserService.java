@@ -1,6 +1,9 @@
 package com.management.library.demo.service;
 
+import com.management.library.demo.entity.Member;
 import com.management.library.demo.entity.User;
+import com.management.library.demo.limit.ActiveLoanLimiter;
+import com.management.library.demo.repository.MemberRepository;
 import com.management.library.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -26,6 +29,12 @@ public class UserService implements UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private ActiveLoanLimiter activeLoanLimiter;
+
     /**
      * Load user by username (được sử dụng bởi Spring Security)
      */
@@ -51,8 +60,50 @@ public class UserService implements UserDetailsService {
 
         // Mã hóa password
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        
-        return userRepository.save(user);
+
+        // Luôn tạo member mới: email lúc đăng ký chưa được xác minh nên không được dùng để nhận member có sẵn
+        // (lịch sử mượn, giới hạn mượn của người khác). Member có sẵn chỉ được gắn qua linkMember (admin).
+        // Member không có password riêng: đăng nhập luôn qua User.
+        String memberName = user.getFirstName() != null && user.getLastName() != null
+                ? user.getFullName() : user.getUsername();
+        Member member = memberRepository.save(new Member(memberName, user.getEmail(), null));
+        user.setMemberId(member.getId());
+
+        User saved = userRepository.save(user);
+        memberRoleChanged(saved);
+        return saved;
+    }
+
+    /**
+     * Member id của user; user tạo trước khi có liên kết thì rỗng cho đến khi admin gắn bằng linkMember
+     */
+    public Optional<Long> findMemberId(User user) {
+        return Optional.ofNullable(user.getMemberId());
+    }
+
+    /**
+     * Gắn user với một member có sẵn (thẻ thư viện đã được nhân viên xác minh); mỗi member thuộc tối đa một user
+     */
+    public User linkMember(Long userId, Long memberId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+        if (!memberRepository.existsById(memberId)) {
+            throw new RuntimeException("Member not found with id: " + memberId);
+        }
+        userRepository.findByMemberId(memberId)
+                .filter(owner -> !owner.getId().equals(userId))
+                .ifPresent(owner -> {
+                    throw new RuntimeException("Member " + memberId + " is already linked to user: "
+                            + owner.getUsername());
+                });
+        Long previous = user.getMemberId();
+        user.setMemberId(memberId);
+        User saved = userRepository.save(user);
+        if (previous != null && !previous.equals(memberId)) {
+            activeLoanLimiter.roleChanged(previous);
+        }
+        memberRoleChanged(saved);
+        return saved;
     }
 
     /**
@@ -94,13 +145,16 @@ public class UserService implements UserDetailsService {
      * Cập nhật user
      */
     public User updateUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        memberRoleChanged(saved);
+        return saved;
     }
 
     /**
      * Xóa user
      */
     public void deleteUser(Long id) {
+        userRepository.findById(id).ifPresent(this::memberRoleChanged);
         userRepository.deleteById(id);
     }
 
@@ -140,7 +194,7 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
         
         user.setRole(newRole);
-        userRepository.save(user);
+        memberRoleChanged(userRepository.save(user));
     }
 
     /**
@@ -185,4 +239,11 @@ public class UserService implements UserDetailsService {
         }
         return userRepository.findByUsername("admin").orElse(null);
     }
-}
\ No newline at end of file
+
+    // Giới hạn số sách mượn cùng lúc phụ thuộc role của user gắn với member
+    private void memberRoleChanged(User user) {
+        if (user.getMemberId() != null) {
+            activeLoanLimiter.roleChanged(user.getMemberId());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.management.library.demo.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.management.library.demo.dto.ChangeEvent;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.event.LoanChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Change stream (Server-Sent Events) cho dashboard: sách đổi trạng thái available, loan được tạo/trả/sửa/xóa.
+ *
+ * Event lấy từ BookChangedEvent/LoanChangedEvent sau commit, được serialize thành frame SSE đúng một lần rồi dùng
+ * chung cho mọi client. Các event gần nhất nằm trong ring buffer (replay-size) để client kết nối lại với
+ * Last-Event-ID nhận tiếp phần bị lỡ; lỡ quá xa (hoặc ứng dụng đã khởi động lại) thì nhận event "reset" và tự tải lại.
+ *
+ * Mỗi client có hàng đợi riêng giới hạn client-buffer; vài thread dispatch gửi dần ra từng connection, nên client
+ * chậm không làm chậm transaction hay client khác. Client đầy hàng đợi bị đóng connection và tự nối lại
+ * từ Last-Event-ID. Connection rảnh nhận heartbeat (comment SSE) để proxy không cắt.
+ */
+@Component
+public class ChangeStream implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeStream.class);
+
+    public static final String BOOK_EVENT = "book";
+    public static final String LOAN_EVENT = "loan";
+    public static final String RESET_EVENT = "reset";
+
+    // Frame đã dựng sẵn; loan = true thì chỉ gửi cho client được xem loan
+    private record StreamEvent(long sequence, boolean loan, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final int clientBuffer;
+    private final ExecutorService dispatcher;
+    private final Set<ResponseBodyEmitter.DataWithMediaType> heartbeat = SseEmitter.event().comment("heartbeat").build();
+    // Id event gồm epoch của lần khởi động này, để Last-Event-ID của lần chạy trước không bị hiểu nhầm
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Ring buffer: event có sequence s nằm ở ô s % length; nextSequence và ring chỉ đọc/ghi khi giữ lock ring
+    private final StreamEvent[] ring;
+    private long nextSequence = 1;
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ChangeStream(ObjectMapper objectMapper,
+                        @Value("${library.stream.replay-size:4096}") int replaySize,
+                        @Value("${library.stream.client-buffer:256}") int clientBuffer,
+                        @Value("${library.stream.timeout:PT30M}") Duration timeout,
+                        @Value("${library.stream.dispatch-threads:4}") int dispatchThreads) {
+        this.objectMapper = objectMapper;
+        this.ring = new StreamEvent[replaySize];
+        this.clientBuffer = clientBuffer;
+        this.timeout = timeout;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "change-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Mở stream cho một client. lastEventId là header Last-Event-ID khi trình duyệt tự kết nối lại (có thể null).
+     */
+    public SseEmitter subscribe(String lastEventId, boolean includeLoans) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Client client = new Client(emitter, includeLoans, clientBuffer);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(error -> clients.remove(client));
+
+        // Gửi ngay một comment để header response được flush và client biết stream đã mở
+        client.offer(new StreamEvent(0, false, SseEmitter.event().comment("connected").build()));
+        synchronized (ring) {
+            // Lấy phần bị lỡ và đăng ký nhận event mới dưới cùng một lock nên không sót/trùng event nào
+            List<StreamEvent> missed = missedSince(lastEventId);
+            if (missed == null || missed.size() >= clientBuffer) {
+                client.offer(new StreamEvent(0, false, SseEmitter.event()
+                        .id(eventId(nextSequence - 1)).name(RESET_EVENT).data("{}").build()));
+            } else {
+                missed.forEach(client::offer);
+            }
+            clients.add(client);
+        }
+        schedule(client);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        publish(BOOK_EVENT, false, ChangeEvent.book(event.getType().name(), event.getBookId(),
+                book == null ? null : book.isAvailable()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoanChanged(LoanChangedEvent event) {
+        Loan loan = event.getLoan();
+        ChangeEvent change = loan == null
+                ? ChangeEvent.loan(event.getType().name(), event.getLoanId(), null, null, null, null, null)
+                // getId() trên proxy lazy của book/member không cần query
+                : ChangeEvent.loan(event.getType().name(), event.getLoanId(),
+                        loan.getBook() == null ? null : loan.getBook().getId(),
+                        loan.getMember() == null ? null : loan.getMember().getId(),
+                        loan.getStatus(), loan.getDueDate(), loan.getReturnDate());
+        publish(LOAN_EVENT, true, change);
+    }
+
+    @Scheduled(fixedDelayString = "${library.stream.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        StreamEvent event = new StreamEvent(0, false, heartbeat);
+        for (Client client : clients) {
+            client.offer(event);
+            schedule(client);
+        }
+    }
+
+    public int clientCount() {
+        return clients.size();
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        clients.forEach(client -> client.emitter.complete());
+        clients.clear();
+    }
+
+    private void publish(String name, boolean loan, ChangeEvent change) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize change event {}: {}", name, e.getMessage());
+            return;
+        }
+        synchronized (ring) {
+            long sequence = nextSequence++;
+            StreamEvent event = new StreamEvent(sequence, loan,
+                    SseEmitter.event().id(eventId(sequence)).name(name).data(data).build());
+            ring[(int) (sequence % ring.length)] = event;
+            for (Client client : clients) {
+                client.offer(event);
+            }
+        }
+        clients.forEach(this::schedule);
+    }
+
+    // null: không nối tiếp được (id lạ, khác lần khởi động, hoặc đã trôi khỏi ring buffer)
+    private List<StreamEvent> missedSince(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+        }
+        int separator = lastEventId.indexOf('-');
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator))) {
+            return null;
+        }
+        long last;
+        try {
+            last = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long oldest = Math.max(1, nextSequence - ring.length);
+        if (last + 1 < oldest || last >= nextSequence) {
+            return null;
+        }
+        List<StreamEvent> missed = new ArrayList<>();
+        for (long sequence = last + 1; sequence < nextSequence; sequence++) {
+            missed.add(ring[(int) (sequence % ring.length)]);
+        }
+        return missed;
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private void schedule(Client client) {
+        if ((!client.queue.isEmpty() || client.overflowed.get()) && client.scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(client));
+            } catch (RuntimeException e) {
+                // Dispatcher đã dừng (ứng dụng đang tắt)
+                client.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Client client) {
+        try {
+            if (client.overflowed.get()) {
+                // Client không đọc kịp: đóng để nó kết nối lại từ Last-Event-ID
+                clients.remove(client);
+                client.queue.clear();
+                client.emitter.complete();
+                return;
+            }
+            StreamEvent event;
+            while ((event = client.queue.poll()) != null) {
+                client.emitter.send(event.frame());
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client đã ngắt kết nối
+            clients.remove(client);
+            client.queue.clear();
+        } finally {
+            client.scheduled.set(false);
+        }
+        if (clients.contains(client)) {
+            schedule(client);
+        }
+    }
+
+    private static final class Client {
+
+        private final SseEmitter emitter;
+        private final boolean includeLoans;
+        private final BlockingQueue<StreamEvent> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+
+        private Client(SseEmitter emitter, boolean includeLoans, int capacity) {
+            this.emitter = emitter;
+            this.includeLoans = includeLoans;
+            // +2: comment "connected" và event reset/heartbeat không bị tính vào phần replay
+            this.queue = new ArrayBlockingQueue<>(capacity + 2);
+        }
+
+        private void offer(StreamEvent event) {
+            if (event.loan() && !includeLoans) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                overflowed.set(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+-- Chạy sau khi Hibernate tạo schema khi dùng H2 (test). Tương đương phần không khai báo bằng annotation
+-- trong schema-postgresql.sql; H2 không có partition nên loan_history là bảng thường.
+-- H2 không có pg_trgm nên không có GIN index trigram trên members/books; tìm kiếm dùng LIKE thay cho similarity.
+
+CREATE TABLE IF NOT EXISTS loan_history (
+    id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    member_id BIGINT NOT NULL,
+    borrow_date DATE,
+    due_date DATE,
+    return_date DATE,
+    status SMALLINT NOT NULL CONSTRAINT ck_loan_history_status CHECK (status IN (1, 2, 3)),
+    version BIGINT,
+    archived_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_loan_history_member_id ON loan_history (member_id, id);
+CREATE INDEX IF NOT EXISTS idx_loan_history_book_id ON loan_history (book_id, id);
+
+-- Checkpoint định kỳ của bảng xếp hạng sách được mượn nhiều (PopularityTracker): điểm đã giảm tới checkpointed_at,
+-- last_loan_id là id loan lớn nhất đã tính. Loan commit không theo thứ tự id, nên loan có id trong
+-- (low_loan_id, last_loan_id] có thể commit sau checkpoint: các id trong khoảng này đã được tính nằm trong
+-- popularity_counted_loans, lúc khởi động khoảng này được quét lại và chỉ cộng các id chưa có
+CREATE TABLE IF NOT EXISTS popularity_counters (
+    window_name VARCHAR(16) NOT NULL,
+    book_id BIGINT NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    error DOUBLE PRECISION NOT NULL,
+    checkpointed_at TIMESTAMP NOT NULL,
+    last_loan_id BIGINT NOT NULL,
+    PRIMARY KEY (window_name, book_id)
+);
+ALTER TABLE popularity_counters ADD COLUMN IF NOT EXISTS low_loan_id BIGINT;
+CREATE TABLE IF NOT EXISTS popularity_counted_loans (
+    loan_id BIGINT PRIMARY KEY
+);
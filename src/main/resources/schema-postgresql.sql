@@ -0,0 +1,73 @@
+-- Chạy sau khi Hibernate cập nhật schema (spring.jpa.defer-datasource-initialization=true).
+-- Chỉ chứa những gì không khai báo được bằng annotation (index đặc biệt, backfill dữ liệu); mọi câu lệnh phải idempotent.
+
+-- Tìm theo genre không phân biệt hoa thường, sắp xếp sẵn theo keyset (title, id)
+CREATE INDEX IF NOT EXISTS idx_books_genre_lower_title_id ON books (lower(genre), title, id);
+
+-- Tìm member theo tên hoặc email (MemberSearchRepository): LIKE '%...%' và similarity/% của pg_trgm
+-- dùng GIN index trigram thay vì quét toàn bảng. Cần quyền tạo extension (hoặc DBA tạo trước).
+-- Tên được tìm trên cột không dấu name_folded (TextFolding), thay cho index cũ trên lower(name)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+DROP INDEX IF EXISTS idx_members_name_trgm;
+CREATE INDEX IF NOT EXISTS idx_members_name_folded_trgm ON members USING gin (name_folded gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_members_email_trgm ON members USING gin (lower(email) gin_trgm_ops);
+
+-- Tìm sách không dấu theo title/author (BookSpecifications): LIKE '%...%' trên cột *_folded
+CREATE INDEX IF NOT EXISTS idx_books_title_folded_trgm ON books USING gin (title_folded gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_books_author_folded_trgm ON books USING gin (author_folded gin_trgm_ops);
+
+-- Cột @Version được Hibernate thêm vào dạng nullable; dòng có từ trước được AddedColumnBackfill gán 0 một lần.
+-- Tương tự loans.due_date của loan cũ được AddedColumnBackfill tính một lần từ borrow_date + library.loans.loan-period
+
+-- status là SMALLINT theo LoanStatus (1 = BORROWED, 2 = RETURNED, 3 = OVERDUE), xem LoanStatusMigration.
+-- Partial index chỉ chứa loan chưa trả: job quét quá hạn (status = BORROWED AND due_date < ?)
+-- và worklist /api/loans/overdue (status = OVERDUE ORDER BY due_date) không phải đọc lịch sử đã trả
+CREATE INDEX IF NOT EXISTS idx_loans_active_due ON loans (status, due_date, id) WHERE status IN (1, 3);
+
+-- Loan chưa trả của một member / một cuốn sách (findByMemberAndStatus, findByBookAndStatus, trả sách)
+CREATE INDEX IF NOT EXISTS idx_loans_active_member ON loans (member_id, status, id) WHERE status IN (1, 3);
+CREATE INDEX IF NOT EXISTS idx_loans_active_book ON loans (book_id, status, id) WHERE status IN (1, 3);
+
+-- Loan đã trả lâu được LoanArchiver chuyển sang đây, partition theo tháng của borrow_date.
+-- Partition từng tháng được tạo khi cần (loan_history_pYYYYMM); partition default nhận loan không có borrow_date.
+CREATE TABLE IF NOT EXISTS loan_history (
+    id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    member_id BIGINT NOT NULL,
+    borrow_date DATE,
+    due_date DATE,
+    return_date DATE,
+    status SMALLINT NOT NULL CONSTRAINT ck_loan_history_status CHECK (status IN (1, 2, 3)),
+    version BIGINT,
+    archived_at TIMESTAMP NOT NULL
+) PARTITION BY RANGE (borrow_date);
+CREATE TABLE IF NOT EXISTS loan_history_default PARTITION OF loan_history DEFAULT;
+CREATE INDEX IF NOT EXISTS idx_loan_history_member_id ON loan_history (member_id, id);
+CREATE INDEX IF NOT EXISTS idx_loan_history_book_id ON loan_history (book_id, id);
+
+-- Job lưu trữ chỉ đọc loan đã trả
+CREATE INDEX IF NOT EXISTS idx_loans_returned ON loans (return_date, id) WHERE status = 2;
+
+-- Mỗi member chỉ có một lượt giữ chỗ còn hiệu lực (WAITING/READY) cho một cuốn sách
+CREATE UNIQUE INDEX IF NOT EXISTS uk_reservations_active ON reservations (book_id, member_id)
+    WHERE status IN ('WAITING', 'READY');
+-- Sách đang giữ sắp hết hạn (nạp timing wheel lúc khởi động)
+CREATE INDEX IF NOT EXISTS idx_reservations_ready ON reservations (expires_at, id) WHERE status = 'READY';
+
+-- Checkpoint định kỳ của bảng xếp hạng sách được mượn nhiều (PopularityTracker): điểm đã giảm tới checkpointed_at,
+-- last_loan_id là id loan lớn nhất đã tính. Loan commit không theo thứ tự id, nên loan có id trong
+-- (low_loan_id, last_loan_id] có thể commit sau checkpoint: các id trong khoảng này đã được tính nằm trong
+-- popularity_counted_loans, lúc khởi động khoảng này được quét lại và chỉ cộng các id chưa có
+CREATE TABLE IF NOT EXISTS popularity_counters (
+    window_name VARCHAR(16) NOT NULL,
+    book_id BIGINT NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    error DOUBLE PRECISION NOT NULL,
+    checkpointed_at TIMESTAMP NOT NULL,
+    last_loan_id BIGINT NOT NULL,
+    PRIMARY KEY (window_name, book_id)
+);
+ALTER TABLE popularity_counters ADD COLUMN IF NOT EXISTS low_loan_id BIGINT;
+CREATE TABLE IF NOT EXISTS popularity_counted_loans (
+    loan_id BIGINT PRIMARY KEY
+);
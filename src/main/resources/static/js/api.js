@@ -1,5 +1,7 @@
 // API Configuration
 const API_BASE_URL = 'http://localhost:8080/api';
+// Số trang tối đa khi nạp danh sách cho ô chọn (mỗi trang theo page size mặc định của server)
+const MAX_SELECT_PAGES = 4;
 
 // API Helper Functions
 class LibraryAPI {
@@ -32,9 +34,49 @@ class LibraryAPI {
         }
     }
 
+    // Một trang của endpoint phân trang keyset; nextCursor (header X-Next-Cursor) là null ở trang cuối
+    static async requestPage(endpoint, params = {}, cursor = null) {
+        const query = new URLSearchParams(cursor ? { ...params, cursor } : params).toString();
+        const response = await fetch(`${API_BASE_URL}${endpoint}${query ? `?${query}` : ''}`, {
+            headers: { 'Content-Type': 'application/json' },
+        });
+        if (!response.ok) {
+            throw new Error(`HTTP error! status: ${response.status}`);
+        }
+        return {
+            items: await response.json(),
+            nextCursor: response.headers.get('X-Next-Cursor'),
+        };
+    }
+
+    // Đọc tối đa maxPages trang, dùng cho danh sách chọn (select) không có nút "Tải thêm"
+    static async requestPages(endpoint, params = {}, maxPages = MAX_SELECT_PAGES) {
+        const items = [];
+        let cursor = null;
+        for (let page = 0; page < maxPages; page++) {
+            const result = await this.requestPage(endpoint, params, cursor);
+            items.push(...result.items);
+            cursor = result.nextCursor;
+            if (!cursor) {
+                break;
+            }
+        }
+        return items;
+    }
+
     // Books API
-    static async getAllBooks() {
-        return this.request('/books');
+    static async getBooksPage(cursor = null) {
+        return this.requestPage('/books', {}, cursor);
+    }
+
+    static async countBooks() {
+        const result = await this.request('/books/count');
+        return result.total;
+    }
+
+    static async countAvailableBooks() {
+        const result = await this.request('/books/available/count');
+        return result.available;
     }
 
     static async getBookById(id) {
@@ -61,13 +103,21 @@ class LibraryAPI {
         });
     }
 
-    static async getAvailableBooks() {
-        return this.request('/books/available');
+    static async getAvailableBooksPage(cursor = null) {
+        return this.requestPage('/books/available', {}, cursor);
+    }
+
+    // Sách còn cho mượn, giới hạn số trang, cho các ô chọn sách
+    static async getAvailableBooksForSelect() {
+        return this.requestPages('/books/available');
+    }
+
+    static async getBooksForSelect() {
+        return this.requestPages('/books');
     }
 
-    static async searchBooks(params) {
-        const queryString = new URLSearchParams(params).toString();
-        return this.request(`/books/search?${queryString}`);
+    static async searchBooks(params, cursor = null) {
+        return this.requestPage('/books/search', params, cursor);
     }
 
     // Members API
@@ -99,9 +149,8 @@ class LibraryAPI {
         });
     }
 
-    static async searchMembers(params) {
-        const queryString = new URLSearchParams(params).toString();
-        return this.request(`/members/search?${queryString}`);
+    static async searchMembers(params, cursor = null) {
+        return this.requestPage('/members/search', params, cursor);
     }
 
     // Loans API
@@ -2,6 +2,9 @@
 
 let currentBooks = [];
 let editingBookId = null;
+// Cursor của trang kế tiếp (null ở trang cuối) và bộ lọc đang áp dụng (null = toàn bộ catalog)
+let nextBooksCursor = null;
+let currentBookQuery = null;
 
 // Initialize when page loads
 document.addEventListener('DOMContentLoaded', function() {
@@ -9,19 +12,24 @@ document.addEventListener('DOMContentLoaded', function() {
     initializeEventListeners();
 });
 
-// Load all books
+// Load the first page of books; các trang sau được tải khi bấm "Tải thêm"
 async function loadBooks() {
     const tbody = document.getElementById('booksTableBody');
-    const countElement = document.getElementById('totalBooksCount');
     
     try {
         Utils.showLoading(tbody);
         
-        const books = await LibraryAPI.getAllBooks();
-        currentBooks = books;
+        const [page, total] = await Promise.all([
+            LibraryAPI.getBooksPage(),
+            LibraryAPI.countBooks()
+        ]);
+        currentBookQuery = null;
+        currentBooks = page.items;
+        nextBooksCursor = page.nextCursor;
         
-        displayBooks(books);
-        updateBooksCount(books.length);
+        displayBooks(currentBooks);
+        updateBooksCount(total);
+        updateLoadMoreButton();
         
     } catch (error) {
         console.error('Failed to load books:', error);
@@ -89,40 +97,74 @@ function updateBooksCount(count) {
     }
 }
 
-// Search books
+// Load the next page of the current listing or search
+async function loadMoreBooks() {
+    if (!nextBooksCursor) {
+        return;
+    }
+    
+    try {
+        const page = currentBookQuery
+            ? await LibraryAPI.searchBooks(currentBookQuery, nextBooksCursor)
+            : await LibraryAPI.getBooksPage(nextBooksCursor);
+        currentBooks = currentBooks.concat(page.items);
+        nextBooksCursor = page.nextCursor;
+        
+        displayBooks(currentBooks);
+        if (currentBookQuery) {
+            updateBooksCount(currentBooks.length);
+        }
+        updateLoadMoreButton();
+        
+    } catch (error) {
+        console.error('Failed to load more books:', error);
+        Utils.handleApiError(error, 'Không thể tải thêm sách');
+    }
+}
+
+// Show the "Tải thêm" button only while the server reports another page
+function updateLoadMoreButton() {
+    const button = document.getElementById('loadMoreBooks');
+    if (button) {
+        button.classList.toggle('d-none', !nextBooksCursor);
+    }
+}
+
+// Search books on the server (lọc trên các trang đã tải sẽ bỏ sót sách chưa tải)
 async function searchBooks() {
     const title = document.getElementById('searchTitle').value.trim();
     const author = document.getElementById('searchAuthor').value.trim();
     const genre = document.getElementById('searchGenre').value;
     const available = document.getElementById('filterAvailable').value;
     
+    const query = {};
+    if (title) {
+        query.title = title;
+    }
+    if (author) {
+        query.author = author;
+    }
+    if (genre) {
+        query.genre = genre;
+    }
+    if (available !== '') {
+        query.available = available;
+    }
+    
+    if (Object.keys(query).length === 0) {
+        await loadBooks();
+        return;
+    }
+    
     try {
-        let filteredBooks = [...currentBooks];
-        
-        // Apply filters
-        if (title) {
-            filteredBooks = filteredBooks.filter(book => 
-                book.title.toLowerCase().includes(title.toLowerCase())
-            );
-        }
-        
-        if (author) {
-            filteredBooks = filteredBooks.filter(book => 
-                book.author.toLowerCase().includes(author.toLowerCase())
-            );
-        }
-        
-        if (genre) {
-            filteredBooks = filteredBooks.filter(book => book.genre === genre);
-        }
-        
-        if (available !== '') {
-            const isAvailable = available === 'true';
-            filteredBooks = filteredBooks.filter(book => book.available === isAvailable);
-        }
+        const page = await LibraryAPI.searchBooks(query);
+        currentBookQuery = query;
+        currentBooks = page.items;
+        nextBooksCursor = page.nextCursor;
         
-        displayBooks(filteredBooks);
-        updateBooksCount(filteredBooks.length);
+        displayBooks(currentBooks);
+        updateBooksCount(currentBooks.length);
+        updateLoadMoreButton();
         
     } catch (error) {
         console.error('Search failed:', error);
@@ -137,8 +179,7 @@ function clearSearch() {
     document.getElementById('searchGenre').value = '';
     document.getElementById('filterAvailable').value = '';
     
-    displayBooks(currentBooks);
-    updateBooksCount(currentBooks.length);
+    loadBooks();
 }
 
 // Open add book modal
@@ -382,6 +423,7 @@ function escapeHtml(text) {
 // Export functions for global use
 window.loadBooks = loadBooks;
 window.searchBooks = searchBooks;
+window.loadMoreBooks = loadMoreBooks;
 window.clearSearch = clearSearch;
 window.openAddBookModal = openAddBookModal;
 window.editBook = editBook;
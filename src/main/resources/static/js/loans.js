@@ -154,7 +154,11 @@ async function loadMembersForSelect() {
 // Load books for select options
 async function loadBooksForSelect() {
     try {
-        const books = await LibraryAPI.getAllBooks();
+        // Giới hạn số trang: catalog có thể rất lớn, ô chọn chỉ cần các sách đầu danh sách
+        const [books, availableBooks] = await Promise.all([
+            LibraryAPI.getBooksForSelect(),
+            LibraryAPI.getAvailableBooksForSelect()
+        ]);
         allBooks = books;
         
         const selects = ['filterBook', 'borrowBook'];
@@ -167,9 +171,7 @@ async function loadBooksForSelect() {
                 }
                 
                 // For borrow modal, only show available books
-                const booksToShow = selectId === 'borrowBook' 
-                    ? books.filter(book => book.available) 
-                    : books;
+                const booksToShow = selectId === 'borrowBook' ? availableBooks : books;
                 
                 // Add book options
                 booksToShow.forEach(book => {
@@ -24,20 +24,20 @@ async function initializeApp() {
 
 async function loadDashboardStats() {
     try {
-        // Load all data in parallel
-        const [books, members, loans, availableBooks] = await Promise.all([
-            LibraryAPI.getAllBooks(),
+        // Load all data in parallel; số sách lấy từ endpoint đếm thay vì đọc hết catalog
+        const [totalBooks, members, loans, availableBooks] = await Promise.all([
+            LibraryAPI.countBooks(),
             LibraryAPI.getAllMembers(),
             LibraryAPI.getAllLoans(),
-            LibraryAPI.getAvailableBooks()
+            LibraryAPI.countAvailableBooks()
         ]);
 
         // Update stats on page
         updateStatsDisplay({
-            totalBooks: books.length,
+            totalBooks: totalBooks,
             totalMembers: members.length,
             totalLoans: loans.length,
-            availableBooks: availableBooks.length
+            availableBooks: availableBooks
         });
 
         // Animate numbers
@@ -0,0 +1,60 @@
+package com.management.library.demo.cache;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.service.BookService;
+import com.management.library.demo.service.LoanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookCacheSynchronizerTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Test
+    void cachedBookFollowsBorrowAndReturn() {
+        Book book = bookService.saveBook(new Book("Chí Phèo", "Nam Cao", "Truyện ngắn", 1941, true));
+        Member member = memberRepository.save(new Member("Cache Member", "cache-sync@example.com", "secret"));
+
+        // Làm nóng cache trước khi mượn
+        assertThat(bookService.getBookById(book.getId())).hasValueSatisfying(b -> assertThat(b.isAvailable()).isTrue());
+
+        Loan loan = loanService.borrowBook(book.getId(), member.getId());
+        assertThat(bookService.getBookById(book.getId())).hasValueSatisfying(b -> assertThat(b.isAvailable()).isFalse());
+
+        loanService.returnBook(loan.getId());
+        assertThat(bookService.getBookById(book.getId())).hasValueSatisfying(b -> assertThat(b.isAvailable()).isTrue());
+    }
+
+    @Test
+    void updatedBookIsReloadedNotShared() {
+        Book book = bookService.saveBook(new Book("Bỉ vỏ", "Nguyên Hồng", "Tiểu thuyết", 1938, true));
+        Book cached = bookService.getBookById(book.getId()).orElseThrow();
+
+        Book details = new Book("Bỉ vỏ", "Nguyên Hồng", "Hiện thực", 1938, true);
+        Book updated = bookService.updateBook(book.getId(), details);
+
+        Book reloaded = bookService.getBookById(book.getId()).orElseThrow();
+        assertThat(reloaded.getGenre()).isEqualTo("Hiện thực");
+        // Entry mới được nạp lại từ database, không phải instance của transaction cập nhật
+        assertThat(reloaded).isNotSameAs(updated).isNotSameAs(cached);
+
+        bookService.deleteBook(book.getId());
+        assertThat(bookService.getBookById(book.getId())).isEmpty();
+    }
+}
@@ -0,0 +1,103 @@
+package com.management.library.demo.config;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.service.LoanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.Period;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Loan period khác mặc định, cũng để test chạy trên context (database) riêng vì due_date của mọi loan bị xóa
+@SpringBootTest(properties = "library.loans.loan-period=P21D")
+@ActiveProfiles("test")
+class AddedColumnBackfillTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Value("${library.loans.loan-period}")
+    private Period loanPeriod;
+
+    @Test
+    void versionAddedToAnExistingTableIsBackfilledOnlyOnThatStartup() {
+        Member member = memberRepository.save(new Member("Backfill Member", "backfill@example.com", "secret"));
+
+        // Bảng có từ trước khi có @Version: cột chưa có lúc khởi động, Hibernate thêm lại dạng nullable
+        AddedColumnBackfill upgrade = new AddedColumnBackfill(dataSource, loanPeriod);
+        jdbcTemplate.execute("ALTER TABLE members DROP COLUMN version");
+        try {
+            upgrade.afterPropertiesSet();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE members ADD COLUMN version BIGINT");
+        }
+        upgrade.backfill();
+        assertThat(version(member)).isZero();
+
+        // Lần khởi động sau cột đã có: không câu UPDATE nào chạy, kể cả khi còn dòng NULL
+        jdbcTemplate.update("UPDATE members SET version = NULL WHERE id = ?", member.getId());
+        AddedColumnBackfill restart = new AddedColumnBackfill(dataSource, loanPeriod);
+        restart.afterPropertiesSet();
+        restart.backfill();
+        assertThat(version(member)).isNull();
+
+        jdbcTemplate.update("UPDATE members SET version = 0 WHERE id = ?", member.getId());
+    }
+
+    @Test
+    void dueDateAddedToLoansUsesTheConfiguredLoanPeriod() {
+        Book book = bookRepository.save(new Book("Số đỏ", "Vũ Trọng Phụng", "Tiểu thuyết", 1936, true));
+        Member member = memberRepository.save(new Member("Due Date Member", "due-date@example.com", "secret"));
+        Loan loan = loanRepository.save(new Loan(book, member, LocalDate.of(2020, 1, 1),
+                LoanService.LOAN_STATUS_RETURNED));
+
+        AddedColumnBackfill upgrade = new AddedColumnBackfill(dataSource, loanPeriod);
+        jdbcTemplate.execute("ALTER TABLE loans DROP COLUMN due_date");
+        try {
+            upgrade.afterPropertiesSet();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE loans ADD COLUMN due_date DATE");
+        }
+        upgrade.backfill();
+        assertThat(dueDate(loan)).isEqualTo(LocalDate.of(2020, 1, 22));
+
+        // Lần khởi động sau: cột đã có nên loan thiếu due_date không bị quét lại
+        jdbcTemplate.update("UPDATE loans SET due_date = NULL WHERE id = ?", loan.getId());
+        AddedColumnBackfill restart = new AddedColumnBackfill(dataSource, loanPeriod);
+        restart.afterPropertiesSet();
+        restart.backfill();
+        assertThat(dueDate(loan)).isNull();
+    }
+
+    private LocalDate dueDate(Loan loan) {
+        return jdbcTemplate.queryForObject("SELECT due_date FROM loans WHERE id = ?", LocalDate.class, loan.getId());
+    }
+
+    private Long version(Member member) {
+        return jdbcTemplate.queryForObject("SELECT version FROM members WHERE id = ?", Long.class, member.getId());
+    }
+}
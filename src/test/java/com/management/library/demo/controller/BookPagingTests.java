@@ -0,0 +1,174 @@
+package com.management.library.demo.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.management.library.demo.dto.BookCursor;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Page size nhỏ để kiểm tra việc qua trang và giới hạn size với ít dữ liệu
+@SpringBootTest(properties = {"library.books.page-size.default=2", "library.books.page-size.max=3"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(roles = "LIBRARIAN")
+class BookPagingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        created.forEach(bookService::deleteBook);
+    }
+
+    @Test
+    void searchPagesOnTitleThenIdAcrossDuplicateTitles() throws Exception {
+        // Ba cuốn trùng title nằm vắt qua ranh giới trang đầu tiên (size = 2)
+        long alpha1 = save("Zpaging Alpha", true);
+        long beta1 = save("Zpaging Beta", true);
+        long alpha2 = save("Zpaging Alpha", false);
+        long alpha3 = save("Zpaging Alpha", true);
+        long beta2 = save("Zpaging Beta", true);
+
+        List<List<Long>> pages = walk("/api/books/search", "title", "zpaging");
+
+        assertThat(pages).containsExactly(
+                List.of(alpha1, alpha2),
+                List.of(alpha3, beta1),
+                List.of(beta2));
+        // Tiêu chí lọc vẫn áp dụng cùng cursor
+        assertThat(walk("/api/books/search", "title", "zpaging", "available", "true"))
+                .containsExactly(List.of(alpha1, alpha3), List.of(beta1, beta2));
+    }
+
+    @Test
+    void listingAndAvailableFollowTheNextCursorToTheLastPage() throws Exception {
+        long first = save("Zpaging Gamma", true);
+        long second = save("Zpaging Gamma", false);
+        long third = save("Zpaging Gamma", true);
+
+        List<Long> all = walk("/api/books").stream().flatMap(List::stream).toList();
+        assertThat(all).doesNotHaveDuplicates();
+        assertThat(all.stream().filter(id -> id == first || id == second || id == third))
+                .containsExactly(first, second, third);
+        assertThat((long) all.size()).isEqualTo(bookService.countBooks());
+
+        List<Long> available = walk("/api/books/available").stream().flatMap(List::stream).toList();
+        assertThat(available).doesNotHaveDuplicates().contains(first, third).doesNotContain(second);
+    }
+
+    @Test
+    void pageSizeIsClampedToTheConfiguredRange() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            save("Zpaging Delta", true);
+        }
+
+        assertThat(page(get("/api/books/search").param("title", "zpaging delta"))).hasSize(2);
+        assertThat(page(get("/api/books/search").param("title", "zpaging delta").param("size", "100"))).hasSize(3);
+        assertThat(page(get("/api/books/search").param("title", "zpaging delta").param("size", "0"))).hasSize(1);
+        assertThat(page(get("/api/books").param("size", "100"))).hasSize(3);
+    }
+
+    @Test
+    void malformedCursorIsRejected() throws Exception {
+        for (String url : List.of("/api/books", "/api/books/available", "/api/books/search")) {
+            mockMvc.perform(get(url).param("cursor", "not a cursor!"))
+                    .andExpect(status().isBadRequest());
+        }
+        // Base64 hợp lệ nhưng thiếu phần id
+        String noId = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("Zpaging".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(get("/api/books").param("cursor", noId))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void malformedCursorIsRejectedEvenWhenTheETagMatches() throws Exception {
+        for (String url : List.of("/api/books", "/api/books/available", "/api/books/search")) {
+            String etag = perform(get(url)).getHeader(HttpHeaders.ETAG);
+            assertThat(etag).isNotNull();
+            mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get(url).param("cursor", "not a cursor!").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void cursorRoundTripsTitleAndId() {
+        BookCursor cursor = BookCursor.decode(new BookCursor("Vang bóng, một thời / tập 1", 42L).encode());
+        assertThat(cursor.getTitle()).isEqualTo("Vang bóng, một thời / tập 1");
+        assertThat(cursor.getId()).isEqualTo(42L);
+        assertThat(BookCursor.decode(null)).isSameAs(BookCursor.START);
+        assertThat(BookCursor.decode("")).isSameAs(BookCursor.START);
+    }
+
+    // Đọc lần lượt các trang theo X-Next-Cursor; trang cuối không có header. params là các cặp tên, giá trị
+    private List<List<Long>> walk(String url, String... params) throws Exception {
+        List<List<Long>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get(url);
+            for (int i = 0; i < params.length; i += 2) {
+                request.param(params[i], params[i + 1]);
+            }
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            MockHttpServletResponse response = perform(request);
+            pages.add(ids(response));
+            cursor = response.getHeader(BookController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        return pages;
+    }
+
+    private List<Long> page(MockHttpServletRequestBuilder request) throws Exception {
+        return ids(perform(request));
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse();
+    }
+
+    private List<Long> ids(MockHttpServletResponse response) throws Exception {
+        List<Map<String, Object>> books = objectMapper.readValue(response.getContentAsString(StandardCharsets.UTF_8),
+                new TypeReference<>() {
+                });
+        return books.stream().map(book -> ((Number) book.get("id")).longValue()).toList();
+    }
+
+    private long save(String title, boolean available) {
+        Book book = bookService.saveBook(new Book(title, "Tác giả phân trang", "Kiểm thử", 2000, available));
+        created.add(book.getId());
+        return book.getId();
+    }
+}
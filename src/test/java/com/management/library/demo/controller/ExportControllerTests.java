@@ -0,0 +1,104 @@
+package com.management.library.demo.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.service.BookService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(roles = "LIBRARIAN")
+class ExportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void booksAreStreamedAsNdjson() throws Exception {
+        Book book = bookService.saveBook(new Book("Tắt đèn", "Ngô Tất Tố", "Tiểu thuyết", 1939, true));
+
+        MockHttpServletResponse response = stream("/api/export/books", "ndjson", false);
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).contains("books.ndjson");
+
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : response.getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            rows.add(objectMapper.readTree(line));
+        }
+        assertThat(rows).anySatisfy(row -> {
+            assertThat(row.get("id").asLong()).isEqualTo(book.getId());
+            assertThat(row.get("title").asText()).isEqualTo("Tắt đèn");
+            assertThat(row.get("available").asBoolean()).isTrue();
+        });
+
+        bookService.deleteBook(book.getId());
+    }
+
+    @Test
+    void gzippedCsvDecompressesToHeaderAndEscapedRows() throws Exception {
+        Book book = bookService.saveBook(new Book("Vang bóng, một thời", "Nguyễn Tuân", "Tùy bút", 1940, true));
+
+        MockHttpServletResponse response = stream("/api/export/books", "csv", true);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getContentType()).startsWith("text/csv");
+
+        String csv = gunzip(response.getContentAsByteArray());
+        assertThat(csv).startsWith("id,title,author,genre,publishedYear,available\n");
+        assertThat(csv).contains(book.getId() + ",\"Vang bóng, một thời\",Nguyễn Tuân,Tùy bút,1940,true\n");
+
+        bookService.deleteBook(book.getId());
+    }
+
+    @Test
+    void unknownFormatIsRejected() throws Exception {
+        mockMvc.perform(get("/api/export/books").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MockHttpServletResponse stream(String url, String format, boolean gzip) throws Exception {
+        MvcResult started = mockMvc.perform(get(url).param("format", format).param("gzip", String.valueOf(gzip)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.CONTENT_DISPOSITION))
+                .andReturn().getResponse();
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
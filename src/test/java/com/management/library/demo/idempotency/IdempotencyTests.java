@@ -0,0 +1,121 @@
+package com.management.library.demo.idempotency;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotencyTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void retriedCheckoutAndReturnAreReplayedInsteadOfWrittenTwice() throws Exception {
+        Book book = bookRepository.save(new Book("Chí Phèo", "Nam Cao", "Truyện ngắn", 1941, true));
+        Member member = memberRepository.save(new Member("Kiosk A", "kiosk-a@example.com", "secret"));
+        String body = loanBody(book, member);
+
+        MockHttpServletResponse first = perform("/api/loans", "checkout-1", body);
+        MockHttpServletResponse retry = perform("/api/loans", "checkout-1", body);
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getHeader(IdempotencyInterceptor.REPLAYED_HEADER)).isNull();
+        assertThat(retry.getStatus()).isEqualTo(200);
+        assertThat(retry.getHeader(IdempotencyInterceptor.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(loanRepository.findByBook(book)).hasSize(1);
+
+        // Cache trong bộ nhớ bị xóa (hoặc request sang instance khác): vẫn phát lại từ database
+        idempotencyStore.evictAll();
+        assertThat(perform("/api/loans", "checkout-1", body).getContentAsString()).isEqualTo(first.getContentAsString());
+
+        // Cùng key nhưng khác body; key khác thì xử lý như request mới (sách đã được mượn nên 400)
+        assertThat(perform("/api/loans", "checkout-1", body + " ").getStatus()).isEqualTo(422);
+        assertThat(perform("/api/loans", "checkout-2", body).getStatus()).isEqualTo(400);
+
+        String returnBody = "{\"bookIds\":[" + book.getId() + "]}";
+        MockHttpServletResponse returned = perform("/api/loans/batch/return", "return-1", returnBody);
+        MockHttpServletResponse returnRetry = perform("/api/loans/batch/return", "return-1", returnBody);
+        assertThat(returned.getContentAsString()).contains("\"succeeded\":1");
+        assertThat(returnRetry.getContentAsString()).isEqualTo(returned.getContentAsString());
+    }
+
+    @Test
+    void concurrentDuplicatesCollapseIntoOneLoan() throws Exception {
+        Book book = bookRepository.save(new Book("Lão Hạc", "Nam Cao", "Truyện ngắn", 1943, true));
+        Member member = memberRepository.save(new Member("Kiosk B", "kiosk-b@example.com", "secret"));
+        String body = loanBody(book, member);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<MockHttpServletResponse>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Callable<MockHttpServletResponse> request = () -> {
+                start.await();
+                return perform("/api/loans", "concurrent-1", body);
+            };
+            results.add(executor.submit(request));
+        }
+        start.countDown();
+        executor.shutdown();
+
+        String expected = null;
+        for (Future<MockHttpServletResponse> result : results) {
+            MockHttpServletResponse response = result.get();
+            assertThat(response.getStatus()).isEqualTo(200);
+            expected = expected == null ? response.getContentAsString() : expected;
+            assertThat(response.getContentAsString()).isEqualTo(expected);
+        }
+        assertThat(loanRepository.findByBook(book)).hasSize(1);
+    }
+
+    private MockHttpServletResponse perform(String path, String key, String body) throws Exception {
+        return mockMvc.perform(post(path)
+                        .with(user("kiosk").roles("LIBRARIAN"))
+                        .header(IdempotencyInterceptor.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+    }
+
+    private static String loanBody(Book book, Member member) {
+        return "{\"book\":{\"id\":" + book.getId() + "},\"member\":{\"id\":" + member.getId() + "}}";
+    }
+}
@@ -0,0 +1,120 @@
+package com.management.library.demo.outbox;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.repository.OutboxEventRepository;
+import com.management.library.demo.search.BookDocument;
+import com.management.library.demo.search.LoanDocument;
+import com.management.library.demo.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OutboxRelayTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private InMemoryDocumentPublisher publisher;
+
+    @BeforeEach
+    void drainOutbox() {
+        publisher.failing = false;
+        outboxRelay.relayBatch();
+        publisher.books.clear();
+    }
+
+    @Test
+    void bookWritesAreRecordedInOutboxAndPublished() {
+        Book book = bookService.saveBook(new Book("Dế Mèn phiêu lưu ký", "Tô Hoài", "Thiếu nhi", 1941, true));
+        assertThat(outboxEventRepository.countByPublishedAtIsNull()).isEqualTo(1);
+
+        assertThat(outboxRelay.relayBatch()).isEqualTo(1);
+        assertThat(publisher.books).containsKey(book.getId());
+        assertThat(outboxEventRepository.countByPublishedAtIsNull()).isZero();
+
+        bookService.deleteBook(book.getId());
+        outboxRelay.relayBatch();
+        assertThat(publisher.books).doesNotContainKey(book.getId());
+    }
+
+    @Test
+    void failedPublishKeepsEventsPendingForRetry() {
+        Book book = bookService.saveBook(new Book("Số đỏ", "Vũ Trọng Phụng", "Tiểu thuyết", 1936, true));
+        publisher.failing = true;
+
+        assertThatThrownBy(() -> outboxRelay.relayBatch()).isInstanceOf(IllegalStateException.class);
+        assertThat(outboxEventRepository.countByPublishedAtIsNull()).isEqualTo(1);
+
+        publisher.failing = false;
+        assertThat(outboxRelay.relayBatch()).isEqualTo(1);
+        assertThat(publisher.books).containsKey(book.getId());
+    }
+
+    @TestConfiguration
+    static class FakePublisherConfig {
+
+        @Bean
+        @Primary
+        InMemoryDocumentPublisher inMemoryDocumentPublisher() {
+            return new InMemoryDocumentPublisher();
+        }
+    }
+
+    static class InMemoryDocumentPublisher implements SearchDocumentPublisher {
+
+        final Map<Long, BookDocument> books = new ConcurrentHashMap<>();
+        final Map<Long, LoanDocument> loans = new ConcurrentHashMap<>();
+        volatile boolean failing;
+
+        @Override
+        public void upsertBooks(Collection<BookDocument> documents) {
+            checkAvailable();
+            documents.forEach(document -> books.put(document.getId(), document));
+        }
+
+        @Override
+        public void deleteBooks(Collection<Long> bookIds) {
+            checkAvailable();
+            bookIds.forEach(books::remove);
+        }
+
+        @Override
+        public void upsertLoans(Collection<LoanDocument> documents) {
+            checkAvailable();
+            documents.forEach(document -> loans.put(document.getId(), document));
+        }
+
+        @Override
+        public void deleteLoans(Collection<Long> loanIds) {
+            checkAvailable();
+            loanIds.forEach(loans::remove);
+        }
+
+        private void checkAvailable() {
+            if (failing) {
+                throw new IllegalStateException("Elasticsearch unavailable");
+            }
+        }
+    }
+}
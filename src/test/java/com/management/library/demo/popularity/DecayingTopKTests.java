@@ -0,0 +1,54 @@
+package com.management.library.demo.popularity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class DecayingTopKTests {
+
+    @Test
+    void heavyHittersSurviveAndEstimatesBoundTheTrueCount() {
+        // 5 cuốn "hot" chiếm phần lớn lượt mượn, 10.000 cuốn còn lại mỗi cuốn vài lượt; sketch chỉ có 50 counter
+        DecayingTopK sketch = new DecayingTopK(50, null, 0);
+        Map<Long, Integer> truth = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long book = random.nextInt(4) == 0 ? 1000 + random.nextInt(10_000) : 1 + random.nextInt(5);
+            sketch.add(book, 1, i);
+            truth.merge(book, 1, Integer::sum);
+        }
+
+        List<DecayingTopK.Entry> top = sketch.top(5, 100_000);
+        assertThat(top).extracting(DecayingTopK.Entry::itemId).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+        for (DecayingTopK.Entry entry : sketch.top(50, 100_000)) {
+            int count = truth.get(entry.itemId());
+            assertThat(entry.score()).isGreaterThanOrEqualTo(count);
+            assertThat(entry.score() - entry.error()).isLessThanOrEqualTo(count);
+        }
+        assertThat(sketch.size()).isEqualTo(50);
+    }
+
+    @Test
+    void recentBorrowsOutrankOlderOnesAndScoresDecay() {
+        long day = 24 * 3600 * 1000L;
+        DecayingTopK sketch = new DecayingTopK(10, day, 0);
+        sketch.add(1, 20, 0);
+        sketch.add(2, 5, 5 * day);
+
+        // 20 lượt cách đây 5 ngày (20·e^-5 ≈ 0.13) thua 5 lượt hôm nay
+        List<DecayingTopK.Entry> top = sketch.top(2, 5 * day);
+        assertThat(top).extracting(DecayingTopK.Entry::itemId).containsExactly(2L, 1L);
+        assertThat(top.get(0).score()).isCloseTo(5, offset(1e-9));
+        assertThat(top.get(1).score()).isCloseTo(20 * Math.exp(-5), offset(1e-9));
+
+        // Landmark được dời khi hệ số quá lớn, điểm vẫn hữu hạn và đúng tỉ lệ
+        sketch.add(3, 1, 400 * day);
+        assertThat(sketch.top(1, 400 * day).get(0).score()).isCloseTo(1, offset(1e-9));
+    }
+}
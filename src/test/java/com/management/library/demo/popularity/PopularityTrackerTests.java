@@ -0,0 +1,118 @@
+package com.management.library.demo.popularity;
+
+import com.management.library.demo.dto.PopularBook;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.repository.PopularityRepository;
+import com.management.library.demo.service.LoanService;
+import com.management.library.demo.service.PopularityService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PopularityTrackerTests {
+
+    @Autowired
+    private PopularityTracker popularityTracker;
+
+    @Autowired
+    private PopularityService popularityService;
+
+    @Autowired
+    private PopularityRepository popularityRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void borrowsFeedTheLeaderboardAndSurviveACheckpointRestart() {
+        Book hot = bookRepository.save(new Book("Dế Mèn phiêu lưu ký", "Tô Hoài", "Thiếu nhi", 1941, true));
+        Book cold = bookRepository.save(new Book("Vang bóng một thời", "Nguyễn Tuân", "Tùy bút", 1940, true));
+        Member member = memberRepository.save(new Member("Bảng xếp hạng", "popular@example.com", "secret"));
+        borrowAndReturn(hot, member, 3);
+        borrowAndReturn(cold, member, 1);
+
+        List<PopularBook> day = popularityService.getPopularBooks("day", 100);
+        assertThat(indexOf(day, hot)).isLessThan(indexOf(day, cold)).isNotNegative();
+        assertThat(score(popularityTracker, PopularityTracker.Window.ALL_TIME, hot)).isEqualTo(3);
+        assertThat(day.get(indexOf(day, hot)).getTitle()).isEqualTo("Dế Mèn phiêu lưu ký");
+        assertThatThrownBy(() -> popularityService.getPopularBooks("month", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Loan commit muộn: id nhỏ hơn mốc checkpoint nhưng sự kiện chưa tới trước khi checkpoint
+        Loan late = loanRepository.save(new Loan(hot, member, LocalDate.now(), LoanService.LOAN_STATUS_RETURNED));
+        borrowAndReturn(cold, member, 1);
+
+        // Checkpoint rồi mượn thêm: bản khởi động lại = checkpoint + loan commit muộn + các loan sau checkpoint
+        popularityTracker.checkpoint();
+        borrowAndReturn(hot, member, 1);
+        PopularityTracker restarted = new PopularityTracker(popularityRepository, transactionManager, 1000, 10000);
+        restarted.load();
+        assertThat(score(restarted, PopularityTracker.Window.ALL_TIME, hot)).isEqualTo(5);
+        assertThat(score(restarted, PopularityTracker.Window.ALL_TIME, cold)).isEqualTo(2);
+
+        // Sự kiện của loan muộn tới sau checkpoint vẫn được tính, đúng một lần
+        popularityTracker.onLoanChanged(LoanChangedEvent.borrowed(late));
+        popularityTracker.onLoanChanged(LoanChangedEvent.borrowed(late));
+        assertThat(score(popularityTracker, PopularityTracker.Window.ALL_TIME, hot)).isEqualTo(5);
+        assertThat(score(restarted, PopularityTracker.Window.DAY, hot))
+                .isCloseTo(score(popularityTracker, PopularityTracker.Window.DAY, hot), offset(1.0));
+
+        // Checkpoint mới đã chứa loan muộn: khởi động lại không tính trùng
+        popularityTracker.checkpoint();
+        PopularityTracker again = new PopularityTracker(popularityRepository, transactionManager, 1000, 10000);
+        again.load();
+        assertThat(score(again, PopularityTracker.Window.ALL_TIME, hot)).isEqualTo(5);
+    }
+
+    private void borrowAndReturn(Book book, Member member, int times) {
+        for (int i = 0; i < times; i++) {
+            Loan loan = loanService.borrowBook(book.getId(), member.getId());
+            loanService.returnBook(loan.getId());
+        }
+    }
+
+    private static int indexOf(List<PopularBook> books, Book book) {
+        for (int i = 0; i < books.size(); i++) {
+            if (books.get(i).getBookId().equals(book.getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static double score(PopularityTracker tracker, PopularityTracker.Window window, Book book) {
+        return tracker.top(window, 1000).stream()
+                .filter(entry -> entry.itemId() == book.getId())
+                .mapToDouble(DecayingTopK.Entry::score)
+                .findFirst().orElse(0);
+    }
+}
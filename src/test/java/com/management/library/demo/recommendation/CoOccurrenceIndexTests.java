@@ -0,0 +1,75 @@
+package com.management.library.demo.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoOccurrenceIndexTests {
+
+    @Test
+    void countsBooksBorrowedByTheSameMemberAndIgnoresRepeatBorrows() {
+        CoOccurrenceIndex index = new CoOccurrenceIndex(2, 10, 4);
+        // Hai member cùng mượn 1 và 2, một member mượn 1 và 3; mượn lại 2 không tạo cặp mới
+        index.recordBorrow(100, 1);
+        index.recordBorrow(100, 2);
+        index.recordBorrow(100, 2);
+        index.recordBorrow(200, 2);
+        index.recordBorrow(200, 1);
+        index.recordBorrow(300, 1);
+        index.recordBorrow(300, 3);
+
+        assertThat(index.related(1, 10)).containsExactly(2, 3);
+        assertThat(index.related(2, 10)).containsExactly(1);
+        assertThat(index.related(1, 1)).containsExactly(2);
+        assertThat(index.related(99, 10)).isEmpty();
+    }
+
+    @Test
+    void parallelBuildMatchesIncrementalUpdates() throws InterruptedException {
+        Random random = new Random(42);
+        List<long[]> borrows = new ArrayList<>();
+        for (long member = 1; member <= 300; member++) {
+            int count = random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                // Vài cuốn rất phổ biến để danh sách hàng xóm bị cắt
+                long book = random.nextInt(4) == 0 ? 1 + random.nextInt(5) : 1 + random.nextInt(500);
+                borrows.add(new long[]{member, book});
+            }
+        }
+
+        CoOccurrenceIndex incremental = new CoOccurrenceIndex(5, 8, 4);
+        for (long[] borrow : borrows) {
+            incremental.recordBorrow(borrow[0], borrow[1]);
+        }
+
+        CoOccurrenceIndex built = new CoOccurrenceIndex(5, 8, 4);
+        List<CoOccurrenceIndex.SequenceBuilder> sequences = new ArrayList<>();
+        for (long[] borrow : borrows) {
+            if (sequences.isEmpty() || sequences.get(sequences.size() - 1).memberId() != borrow[0]) {
+                sequences.add(built.newSequenceBuilder(borrow[0]));
+            }
+            sequences.get(sequences.size() - 1).add(borrow[1]);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            built.build(sequences, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(built.bookCount()).isEqualTo(incremental.bookCount());
+        for (long book = 1; book <= 500; book++) {
+            assertThat(built.related(book, 5)).as("book %d", book).containsExactly(incremental.related(book, 5));
+        }
+        // Sau khi dựng, cửa sổ của member được giữ nên lượt mượn tiếp theo vẫn ghép như nhau
+        incremental.recordBorrow(1, 499);
+        built.recordBorrow(1, 499);
+        assertThat(built.related(499, 5)).containsExactly(incremental.related(499, 5));
+    }
+}
@@ -0,0 +1,101 @@
+package com.management.library.demo.recommendation;
+
+import com.management.library.demo.dto.RelatedBook;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.BorrowHistoryRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.service.LoanService;
+import com.management.library.demo.service.RecommendationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RecommendationTrackerTests {
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private BorrowHistoryRepository borrowHistoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void borrowsFeedRelatedBooksAndAreRebuiltOnRestart() throws InterruptedException {
+        Book kieu = bookRepository.save(new Book("Truyện Kiều", "Nguyễn Du", "Thơ", 1820, true));
+        Book luc = bookRepository.save(new Book("Lục Vân Tiên", "Nguyễn Đình Chiểu", "Thơ", 1864, true));
+        Book chi = bookRepository.save(new Book("Chí Phèo", "Nam Cao", "Truyện ngắn", 1941, true));
+        Member first = memberRepository.save(new Member("Gợi ý 1", "related1@example.com", "secret"));
+        Member second = memberRepository.save(new Member("Gợi ý 2", "related2@example.com", "secret"));
+        borrowAndReturn(first, kieu, luc, chi);
+        borrowAndReturn(second, luc, kieu);
+
+        // Các test khác trong cùng context cũng tạo loan: chỉ kiểm tra phần của test này
+        List<RelatedBook> related = recommendationService.getRelatedBooks(kieu.getId(), 10);
+        assertThat(related).extracting(RelatedBook::getBookId).startsWith(luc.getId()).contains(chi.getId());
+        assertThat(related.get(0).getTitle()).isEqualTo("Lục Vân Tiên");
+
+        RecommendationTracker restarted = new RecommendationTracker(borrowHistoryRepository, transactionManager,
+                20, 20, 2, 10_000);
+        restarted.load();
+        assertThat(restarted.related(kieu.getId(), 10)).startsWith(luc.getId()).contains(chi.getId());
+        assertThat(restarted.related(chi.getId(), 10)).contains(kieu.getId(), luc.getId());
+    }
+
+    @Test
+    void lateCommitWithLowerIdIsCountedOnce() throws InterruptedException {
+        Book first = bookRepository.save(new Book("Vợ chồng A Phủ", "Tô Hoài", "Truyện ngắn", 1952, true));
+        Book late = bookRepository.save(new Book("Dế Mèn phiêu lưu ký", "Tô Hoài", "Truyện dài", 1941, true));
+        Book last = bookRepository.save(new Book("Miền Tây", "Tô Hoài", "Truyện ngắn", 1953, true));
+        Member member = memberRepository.save(new Member("Commit muộn", "related-late@example.com", "secret"));
+        loanRepository.save(new Loan(first, member, LocalDate.now(), LoanService.LOAN_STATUS_RETURNED));
+        // Loan này có id nhỏ hơn loan sau nhưng chưa commit khi dựng chỉ mục: xóa đi để lần quét không thấy
+        Loan lateLoan = loanRepository.save(new Loan(late, member, LocalDate.now(), LoanService.LOAN_STATUS_RETURNED));
+        loanRepository.save(new Loan(last, member, LocalDate.now(), LoanService.LOAN_STATUS_RETURNED));
+        loanRepository.deleteById(lateLoan.getId());
+
+        RecommendationTracker restarted = new RecommendationTracker(borrowHistoryRepository, transactionManager,
+                20, 20, 2, 10_000);
+        restarted.load();
+        assertThat(restarted.related(first.getId(), 10)).contains(last.getId()).doesNotContain(late.getId());
+
+        // Sự kiện commit muộn tới sau khi nạp, id nhỏ hơn watermark vẫn được cộng; gửi lại lần hai thì bỏ qua
+        restarted.onLoanChanged(LoanChangedEvent.borrowed(lateLoan));
+        restarted.onLoanChanged(LoanChangedEvent.borrowed(lateLoan));
+        assertThat(restarted.related(late.getId(), 10)).containsExactlyInAnyOrder(first.getId(), last.getId());
+    }
+
+    private void borrowAndReturn(Member member, Book... books) {
+        for (Book book : books) {
+            Loan loan = loanService.borrowBook(book.getId(), member.getId());
+            loanService.returnBook(loan.getId());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.management.library.demo.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTests {
+
+    @Test
+    void timersFireExactlyAtTheirTickAcrossLevels() {
+        // 3 tầng: tầm 64^3 = 262144 tick, mốc cuối nằm ngoài tầm và phải được xếp lại
+        HierarchicalTimingWheel<Long, Long> wheel = new HierarchicalTimingWheel<>(1, 3, 0);
+        long[] deadlines = {1, 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 300000, 1000000};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline, deadline);
+        }
+
+        List<Long> firedAt = new ArrayList<>();
+        for (long now = 1; now <= 1000000; now++) {
+            for (Long deadline : wheel.advance(now)) {
+                assertThat(deadline).isEqualTo(now);
+                firedAt.add(now);
+            }
+        }
+
+        assertThat(firedAt).containsExactly(1L, 63L, 64L, 65L, 4095L, 4096L, 4097L, 262143L, 262144L, 300000L, 1000000L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelledAndRescheduledTimersFollowTheLatestDeadline() {
+        HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(1000, 5, 0);
+        wheel.schedule("loan:1", 10_000, "first");
+        wheel.schedule("loan:2", 10_000, "second");
+        wheel.schedule("loan:1", 5_000_000, "first-extended");
+        assertThat(wheel.cancel("loan:2")).isTrue();
+        assertThat(wheel.cancel("loan:2")).isFalse();
+
+        assertThat(wheel.advance(4_999_999)).isEmpty();
+        assertThat(wheel.advance(5_000_000)).containsExactly("first-extended");
+        assertThat(wheel.contains("loan:1")).isFalse();
+    }
+
+    @Test
+    void deadlinesInThePastFireOnTheNextAdvanceAndLongGapsCatchUp() {
+        HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(1000, 5, 1_000_000);
+        wheel.schedule("missed", 0, "missed");
+        wheel.schedule("later", 90_000_000, "later");
+
+        assertThat(wheel.advance(1_000_000)).containsExactly("missed");
+        // Tick bị trễ rất lâu (ví dụ GC pause): một lần advance bắn bù mọi mốc đã qua
+        assertThat(wheel.advance(100_000_000)).containsExactly("later");
+    }
+}
@@ -0,0 +1,66 @@
+package com.management.library.demo.reminder;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.entity.ReminderDelivery;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.repository.ReminderDeliveryRepository;
+import com.management.library.demo.service.LoanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReminderSchedulerTests {
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private ReminderDeliveryRepository reminderDeliveryRepository;
+
+    @Test
+    void remindersFireOnceAndAreNotRepeatedAfterReseeding() {
+        Book book = bookRepository.save(new Book("Dế Mèn phiêu lưu ký", "Tô Hoài", "Thiếu nhi", 1941, true));
+        Member member = memberRepository.save(new Member("Phạm Văn D", "d@example.com", "secret"));
+        // Mượn từ 13 ngày trước: mốc nhắc trước hạn đã qua, mốc đúng hạn là ngày mai
+        Loan loan = loanService.borrowBook(book.getId(), member.getId(), LocalDate.now().minusDays(13));
+
+        reminderScheduler.fireDue(System.currentTimeMillis());
+        assertThat(reminderDeliveryRepository.findAll())
+                .filteredOn(delivery -> delivery.getSubjectId().equals(loan.getId()))
+                .extracting(ReminderDelivery::getKind)
+                .containsExactly(ReminderDelivery.Kind.LOAN_DUE_SOON);
+
+        // Khởi động lại: mốc đã ghi nhận không được bắn lần nữa
+        reminderScheduler.seed();
+        reminderScheduler.fireDue(System.currentTimeMillis());
+        assertThat(reminderDeliveryRepository.findAll())
+                .filteredOn(delivery -> delivery.getSubjectId().equals(loan.getId()))
+                .hasSize(1);
+
+        // Trả sách thì mốc đúng hạn bị hủy
+        loanService.returnBook(loan.getId());
+        reminderScheduler.fireDue(System.currentTimeMillis() + 3 * 24 * 3600 * 1000L);
+        assertThat(reminderDeliveryRepository.findAll())
+                .filteredOn(delivery -> delivery.getSubjectId().equals(loan.getId()))
+                .hasSize(1);
+    }
+}
@@ -0,0 +1,90 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.dto.BookCursor;
+import com.management.library.demo.dto.BookSearchCriteria;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookSearchQueryPlanTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void combinesAllCriteriaInOneQuery() {
+        bookRepository.saveAll(List.of(
+                new Book("Truyện Kiều", "Nguyễn Du", "Thơ", 1820, true),
+                new Book("Truyện Lục Vân Tiên", "Nguyễn Đình Chiểu", "Thơ", 1864, false),
+                new Book("Truyện ngắn Nam Cao", "Nam Cao", "Truyện ngắn", 1941, true)));
+
+        List<Book> result = bookService.searchBooks(
+                new BookSearchCriteria("truyện", "nguyễn", "THƠ", 1800, 1900, true), BookCursor.START, 10).getItems();
+
+        assertThat(result).extracting(Book::getTitle).containsExactly("Truyện Kiều");
+    }
+
+    @Test
+    void availabilityFilterUsesCompositeIndex() {
+        String plan = explainSearch(new BookSearchCriteria(null, null, null, null, null, true));
+
+        assertThat(plan).containsIgnoringCase("IDX_BOOKS_AVAILABLE_TITLE_ID");
+    }
+
+    @Test
+    void yearRangeFilterUsesCompositeIndex() {
+        String plan = explainSearch(new BookSearchCriteria(null, null, null, 1900, 1950, null));
+
+        assertThat(plan).containsIgnoringCase("IDX_BOOKS_YEAR_TITLE_ID");
+    }
+
+    // EXPLAIN đúng câu SQL Hibernate sinh ra từ BookSpecifications, với tham số bind null (H2 chọn index theo chi phí)
+    private String explainSearch(BookSearchCriteria criteria) {
+        List<String> statements = CapturingStatementInspector.capture(
+                () -> bookService.searchBooks(criteria, BookCursor.START, 50));
+        assertThat(statements).hasSize(1);
+        String sql = statements.get(0);
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                ParameterMetaData parameters = explain.getParameterMetaData();
+                for (int i = 1; i <= parameters.getParameterCount(); i++) {
+                    explain.setNull(i, parameters.getParameterType(i));
+                }
+                List<String> plan = new ArrayList<>();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.add(rows.getString(1));
+                    }
+                }
+                return String.join("\n", plan);
+            }
+        });
+    }
+}
@@ -0,0 +1,154 @@
+package com.management.library.demo.repository;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.LoanStatus;
+import com.management.library.demo.entity.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * status của loan lưu dạng SMALLINT có CHECK constraint.
+ *
+ * Benchmark so sánh tra cứu loan chưa trả theo member giữa cột chuỗi và cột SMALLINT có partial index
+ * được gắn tag "benchmark" và chỉ chạy với: mvn test -Pbenchmark -Dbenchmark.loans=...
+ * (muốn đo trên PostgreSQL thì trỏ spring.datasource.* tới database thật).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanStatusTests {
+
+    private static final int BENCHMARK_LOANS = Integer.getInteger("benchmark.loans", 500_000);
+    private static final int BENCHMARK_MEMBERS = Math.max(1, BENCHMARK_LOANS / 50);
+    private static final int BENCHMARK_LOOKUPS = 5_000;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        memberRepository.deleteAll();
+    }
+
+    @Test
+    void statusIsStoredAsConstrainedCode() {
+        Book book = bookRepository.save(new Book("Số đỏ", "Vũ Trọng Phụng", "Tiểu thuyết", 1936, false));
+        Member member = memberRepository.save(new Member("Lê Văn C", "c@example.com", "secret"));
+        Loan loan = loanRepository.save(new Loan(book, member, LocalDate.now(), LoanStatus.OVERDUE));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM loans WHERE id = ?", Short.class, loan.getId()))
+                .isEqualTo(LoanStatus.OVERDUE.getCode());
+        assertThat(loanRepository.findByMemberAndStatus(member, LoanStatus.OVERDUE)).hasSize(1);
+        assertThat(loanRepository.findByMemberAndStatus(member, LoanStatus.BORROWED)).isEmpty();
+
+        assertThatThrownBy(() -> jdbcTemplate.update(
+                "INSERT INTO loans (book_id, member_id, status, version) VALUES (?, ?, 9, 0)",
+                book.getId(), member.getId()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> jdbcTemplate.update(
+                "INSERT INTO loans (book_id, member_id, status, version) VALUES (?, ?, NULL, 0)",
+                book.getId(), member.getId()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void smallintStatusWithPartialIndexOutperformsVarchar() {
+        boolean postgres = Boolean.TRUE.equals(
+                jdbcTemplate.execute((Connection connection) -> connection.isWrapperFor(PGConnection.class)));
+        try {
+            // Cách lưu cũ: chuỗi tự do, index thường trên (member_id, status, id)
+            jdbcTemplate.execute("CREATE TABLE bench_loans_text (id BIGINT PRIMARY KEY, member_id BIGINT NOT NULL,"
+                    + " book_id BIGINT NOT NULL, status VARCHAR(255))");
+            jdbcTemplate.execute("CREATE TABLE bench_loans_code (id BIGINT PRIMARY KEY, member_id BIGINT NOT NULL,"
+                    + " book_id BIGINT NOT NULL, status SMALLINT NOT NULL CHECK (status IN (1, 2, 3)))");
+            fill();
+            jdbcTemplate.execute("CREATE INDEX bench_text_member ON bench_loans_text (member_id, status, id)");
+            // H2 không có partial index: chỉ đo được phần lợi của khóa index nhỏ hơn
+            jdbcTemplate.execute("CREATE INDEX bench_code_member ON bench_loans_code (member_id, status, id)"
+                    + (postgres ? " WHERE status IN (1, 3)" : ""));
+            if (postgres) {
+                jdbcTemplate.execute("ANALYZE bench_loans_text");
+                jdbcTemplate.execute("ANALYZE bench_loans_code");
+            }
+
+            String textLookup = "SELECT id FROM bench_loans_text WHERE member_id = ? AND status IN ('BORROWED', 'OVERDUE')";
+            String codeLookup = "SELECT id FROM bench_loans_code WHERE member_id = ? AND status IN (1, 3)";
+            // Làm nóng JIT và cache trước khi đo
+            lookup(textLookup, 500);
+            lookup(codeLookup, 500);
+            long textNanos = lookup(textLookup, BENCHMARK_LOOKUPS);
+            long codeNanos = lookup(codeLookup, BENCHMARK_LOOKUPS);
+
+            System.out.printf("[benchmark] %d loans on %s, active loans per member: varchar %.1f us, smallint %.1f us%n",
+                    BENCHMARK_LOANS, postgres ? "PostgreSQL" : "H2",
+                    textNanos / 1000.0 / BENCHMARK_LOOKUPS, codeNanos / 1000.0 / BENCHMARK_LOOKUPS);
+            assertThat(count("bench_loans_code", "status IN (1, 3)"))
+                    .isEqualTo(count("bench_loans_text", "status IN ('BORROWED', 'OVERDUE')"));
+        } finally {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS bench_loans_text");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS bench_loans_code");
+        }
+    }
+
+    // Phân bố gần với bảng thật: phần lớn loan đã trả, khoảng 5% đang mượn và 1% quá hạn
+    private void fill() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int batchSize = 10_000;
+        for (int start = 0; start < BENCHMARK_LOANS; start += batchSize) {
+            List<Object[]> text = new ArrayList<>();
+            List<Object[]> code = new ArrayList<>();
+            for (int id = start; id < Math.min(start + batchSize, BENCHMARK_LOANS); id++) {
+                int roll = random.nextInt(100);
+                LoanStatus status = roll < 94 ? LoanStatus.RETURNED : roll < 99 ? LoanStatus.BORROWED : LoanStatus.OVERDUE;
+                long memberId = random.nextInt(BENCHMARK_MEMBERS);
+                long bookId = random.nextInt(BENCHMARK_LOANS / 10 + 1);
+                text.add(new Object[]{id, memberId, bookId, status.name()});
+                code.add(new Object[]{id, memberId, bookId, status.getCode()});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO bench_loans_text VALUES (?, ?, ?, ?)", text);
+            jdbcTemplate.batchUpdate("INSERT INTO bench_loans_code VALUES (?, ?, ?, ?)", code);
+        }
+    }
+
+    private long lookup(String sql, int lookups) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long started = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            jdbcTemplate.queryForList(sql, Long.class, (long) random.nextInt(BENCHMARK_MEMBERS));
+        }
+        return System.nanoTime() - started;
+    }
+
+    private long count(String table, String predicate) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE " + predicate, Long.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,92 @@
+package com.management.library.demo.search;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookAvailabilityIndexTests {
+
+    private BookRepository bookRepository;
+    private BookAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        index = new BookAvailabilityIndex(bookRepository);
+    }
+
+    @Test
+    void rebuildScansEveryBatchByKeyset() {
+        // Batch đầy (50.000 id) thì đọc tiếp từ id cuối cùng
+        List<Long> full = LongStream.rangeClosed(1, 50_000).boxed().toList();
+        when(bookRepository.findAvailableIdsAfter(eq(0L), any())).thenReturn(full);
+        when(bookRepository.findAvailableIdsAfter(eq(50_000L), any())).thenReturn(List.of(60_000L, 60_001L));
+
+        assertThat(index.isReady()).isFalse();
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.countAvailable()).isEqualTo(50_002);
+        assertThat(index.isAvailable(1)).isTrue();
+        assertThat(index.isAvailable(60_001)).isTrue();
+        assertThat(index.isAvailable(55_000)).isFalse();
+        assertThat(index.retainAvailable(List.of(60_000L, 55_000L, 7L))).containsExactly(60_000L, 7L);
+    }
+
+    @Test
+    void eventsCommittedDuringTheScanAreReplayedOnTheNewBitmap() {
+        // Batch được đọc trước khi các thay đổi này commit: 5 vừa được mượn, 6 bị xóa, 9 vừa được trả
+        when(bookRepository.findAvailableIdsAfter(eq(0L), any())).thenAnswer(call -> {
+            index.onBookChanged(BookChangedEvent.saved(book(5, false)));
+            index.onBookChanged(BookChangedEvent.deleted(6L));
+            index.onBookChanged(BookChangedEvent.saved(book(9, true)));
+            return List.of(4L, 5L, 6L);
+        });
+
+        index.rebuild();
+
+        assertThat(index.retainAvailable(List.of(4L, 5L, 6L, 9L))).containsExactly(4L, 9L);
+        assertThat(index.countAvailable()).isEqualTo(2);
+
+        // Sau rebuild, event được áp dụng trực tiếp và không còn bị giữ lại để replay
+        index.onBookChanged(BookChangedEvent.saved(book(4, false)));
+        assertThat(index.isAvailable(4)).isFalse();
+        when(bookRepository.findAvailableIdsAfter(eq(0L), any())).thenReturn(List.of(4L, 5L));
+        index.rebuild();
+        assertThat(index.retainAvailable(List.of(4L, 5L, 9L))).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void failedRebuildKeepsTheCurrentBitmapUpToDate() {
+        when(bookRepository.findAvailableIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        index.rebuild();
+
+        when(bookRepository.findAvailableIdsAfter(eq(0L), any())).thenAnswer(call -> {
+            index.onBookChanged(BookChangedEvent.saved(book(2, false)));
+            throw new IllegalStateException("connection lost");
+        });
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.retainAvailable(List.of(1L, 2L))).containsExactly(1L);
+        index.onBookChanged(BookChangedEvent.saved(book(3, true)));
+        assertThat(index.countAvailable()).isEqualTo(2);
+    }
+
+    private static Book book(long id, boolean available) {
+        Book book = new Book("Sách " + id, "Tác giả", "Văn học", 1950, available);
+        book.setId(id);
+        return book;
+    }
+}
@@ -0,0 +1,133 @@
+package com.management.library.demo.search;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.event.BookChangedEvent;
+import com.management.library.demo.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSearchIndexTests {
+
+    private BookRepository bookRepository;
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bookRepository = mock(BookRepository.class);
+        index = new BookSearchIndex(bookRepository, "", 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.destroy();
+    }
+
+    @Test
+    void rebuildIndexesEveryBatchAndRanksTitleAboveAuthor() {
+        List<Book> first = List.of(book(1, "Truyện Kiều", "Nguyễn Du"), book(2, "Lục Vân Tiên", "Nguyễn Đình Chiểu"));
+        List<Book> second = List.of(book(3, "Du ký Nguyễn", "Khuyết danh"));
+        when(bookRepository.findSliceAfter(any(), any(), any()))
+                .thenAnswer(call -> new SliceImpl<>(first, call.getArgument(2, Pageable.class), true))
+                .thenAnswer(call -> new SliceImpl<>(second, call.getArgument(2, Pageable.class), false));
+
+        assertThat(index.isReady()).isFalse();
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        // Không phân biệt dấu; khớp ở title (id 3) được boost hơn khớp ở author (id 1, 2)
+        assertThat(index.search("nguyen", 10)).hasSize(3).first().isEqualTo(3L);
+        assertThat(index.search("kieu", 10)).containsExactly(1L);
+        assertThat(index.search(null, "dinh chieu", null, 10)).containsExactly(2L);
+    }
+
+    @Test
+    void changesAfterCommitBecomeSearchableWithoutRebuild() {
+        when(bookRepository.findSliceAfter(any(), any(), any()))
+                .thenAnswer(call -> new SliceImpl<>(List.of(), call.getArgument(2, Pageable.class), false));
+        index.rebuild();
+
+        Book book = book(10, "Số đỏ", "Vũ Trọng Phụng");
+        index.onBookChanged(BookChangedEvent.saved(book));
+        assertThat(awaitSearch(() -> index.search("so do", 10), List.of(10L))).containsExactly(10L);
+
+        book.setTitle("Giông tố");
+        index.onBookChanged(BookChangedEvent.saved(book));
+        assertThat(awaitSearch(() -> index.search("giong to", 10), List.of(10L))).containsExactly(10L);
+        assertThat(index.search("so do", 10)).isEmpty();
+
+        index.onBookChanged(BookChangedEvent.deleted(10L));
+        assertThat(awaitSearch(() -> index.search("giong to", 10), List.of())).isEmpty();
+    }
+
+    @Test
+    void changesCommittedWhileABatchIsBeingIndexedAreNotOverwritten() {
+        Book kept = book(20, "Vợ nhặt", "Kim Lân");
+        Book deleted = book(21, "Lão Hạc", "Nam Cao");
+        // Batch được đọc từ database trước khi các thay đổi dưới đây commit, nên chứa bản cũ
+        List<Book> staleBatch = List.of(book(20, "Vợ nhặt", "Kim Lân"), book(21, "Lão Hạc", "Nam Cao"));
+        when(bookRepository.findSliceAfter(any(), any(), any())).thenAnswer(call -> {
+            kept.setTitle("Làng");
+            index.onBookChanged(BookChangedEvent.saved(kept));
+            index.onBookChanged(BookChangedEvent.deleted(deleted.getId()));
+            return new SliceImpl<>(staleBatch, call.getArgument(2, Pageable.class), false);
+        });
+
+        index.rebuild();
+
+        assertThat(index.search("lang", 10)).containsExactly(20L);
+        assertThat(index.search("vo nhat", 10)).isEmpty();
+        assertThat(index.search("lao hac", 10)).isEmpty();
+        assertThat(index.search("nam cao", 10)).isEmpty();
+    }
+
+    @Test
+    void changesBeforeARebuildAreReadBackFromTheDatabase() {
+        Book book = book(30, "Tắt đèn", "Ngô Tất Tố");
+        index.onBookChanged(BookChangedEvent.saved(book));
+        when(bookRepository.findSliceAfter(any(), any(), any()))
+                .thenAnswer(call -> new SliceImpl<>(List.of(book), call.getArgument(2, Pageable.class), false));
+
+        index.rebuild();
+        assertThat(index.search("tat den", 10)).containsExactly(30L);
+
+        // Rebuild tiếp theo không còn bị chặn bởi thay đổi của lần trước
+        book.setTitle("Lều chõng");
+        index.rebuild();
+        assertThat(index.search("leu chong", 10)).containsExactly(30L);
+    }
+
+    // Reopen near-real-time chạy nền (tối đa ~1 giây), nên chờ tới khi kết quả đổi
+    private static List<Long> awaitSearch(Supplier<List<Long>> search, List<Long> expected) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        List<Long> result = search.get();
+        while (!result.equals(expected) && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            result = search.get();
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static Book book(long id, String title, String author) {
+        Book book = new Book(title, author, "Văn học", 1940, true);
+        book.setId(id);
+        return book;
+    }
+}
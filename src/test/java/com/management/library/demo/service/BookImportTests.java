@@ -0,0 +1,87 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.BookImportReport;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// H2: staging được nạp bằng JDBC batch (batchIntoStaging), MERGE giống PostgreSQL
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookImportTests {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void mergesDeduplicatedRowsAndKeepsAvailabilityOfExistingBooks() {
+        Book onLoan = bookRepository.save(new Book("Import Chí Phèo", "Nam Cao", null, 1941, false));
+        Book onShelf = bookRepository.save(new Book("Import Lão Hạc", "Nam Cao", "Truyện ngắn", 1943, true));
+        String csv = """
+                title,author,genre,published_year,available
+                Import Chí Phèo,Nam Cao,Truyện ngắn,1941,true
+                Import Lão Hạc,Nam Cao,,1943,false
+                Import Vợ nhặt,Kim Lân,Cũ,1962,true
+                "Import Vợ nhặt",Kim Lân,Truyện ngắn,1962,false
+                ,Vô danh,,2000,true
+                Import Sai năm,Vô danh,,abc,true
+                """;
+
+        BookImportReport report = bookImportService.importBooks(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), BookImportReader.Format.CSV);
+
+        assertThat(report.getRowsRead()).isEqualTo(6);
+        assertThat(report.getRowsRejected()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(BookImportReport.RowError::getLine).containsExactly(6L, 7L);
+        assertThat(report.getUpdated()).isEqualTo(2);
+        assertThat(report.getInserted()).isEqualTo(1);
+
+        // Sách đang được mượn không trở lại available, sách trên kệ không bị đánh dấu mất
+        Book reloadedOnLoan = bookRepository.findById(onLoan.getId()).orElseThrow();
+        assertThat(reloadedOnLoan.isAvailable()).isFalse();
+        assertThat(reloadedOnLoan.getGenre()).isEqualTo("Truyện ngắn");
+        Book reloadedOnShelf = bookRepository.findById(onShelf.getId()).orElseThrow();
+        assertThat(reloadedOnShelf.isAvailable()).isTrue();
+        assertThat(reloadedOnShelf.getGenre()).isEqualTo("Truyện ngắn");
+
+        // Dòng trùng khóa: dòng sau cùng thắng, available của file áp dụng cho sách mới
+        Book inserted = bookRepository.findByTitleFoldedContaining("import vo nhat").get(0);
+        assertThat(inserted.getGenre()).isEqualTo("Truyện ngắn");
+        assertThat(inserted.isAvailable()).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT author_folded FROM books WHERE id = ?", String.class,
+                inserted.getId())).isEqualTo("kim lan");
+    }
+
+    @Test
+    @WithMockUser(roles = "LIBRARIAN")
+    void rejectsFileWithoutRequiredHeaderWithReason() throws Exception {
+        mockMvc.perform(post("/api/books/import").contentType("text/csv").content("name,writer\nA,B\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("CSV header must contain title, author and publishedYear"));
+    }
+}
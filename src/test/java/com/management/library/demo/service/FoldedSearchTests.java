@@ -0,0 +1,77 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.config.SearchFoldingBackfill;
+import com.management.library.demo.dto.BookCursor;
+import com.management.library.demo.dto.BookSearchCriteria;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.search.TextFolding;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class FoldedSearchTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private SearchFoldingBackfill searchFoldingBackfill;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void foldsVietnameseDiacriticsAndCase() {
+        assertThat(TextFolding.fold("Đoạn Trường Tân Thanh")).isEqualTo("doan truong tan thanh");
+        assertThat(TextFolding.fold("NGUYỄN Thị Ánh")).isEqualTo("nguyen thi anh");
+    }
+
+    @Test
+    void findsEverySpellingWithOneQuery() {
+        Book accented = bookRepository.save(new Book("Đoạn Trường Tân Thanh", "Nguyễn Du", "Thơ", 1820, true));
+        Book plain = bookRepository.save(new Book("Doan truong tan thanh", "Nguyen Du", "Thơ", 1999, true));
+        Member member = memberRepository.save(new Member("Nguyễn Thị Đào", "dao.folded@example.com", "secret"));
+
+        for (String query : new String[] {"đoạn trường", "doan TRUONG"}) {
+            assertThat(bookService.findBooksByTitle(query)).extracting(Book::getId)
+                    .contains(accented.getId(), plain.getId());
+            assertThat(bookService.searchBooks(new BookSearchCriteria(query, "nguyen du", null, null, null, null),
+                    BookCursor.START, 10).getItems()).extracting(Book::getId)
+                    .containsExactlyInAnyOrder(accented.getId(), plain.getId());
+        }
+        assertThat(bookService.findBooksByAuthor("NGUYỄN DU")).extracting(Book::getId)
+                .contains(accented.getId(), plain.getId());
+        assertThat(memberService.searchMembers("nguyen thi dao", null, 10).getItems())
+                .extracting(Member::getId).containsExactly(member.getId());
+    }
+
+    @Test
+    void backfillsRowsWrittenWithoutFoldedColumns() {
+        Book book = bookRepository.save(new Book("Số Đỏ", "Vũ Trọng Phụng", "Tiểu thuyết", 1936, true));
+        jdbcTemplate.update("UPDATE books SET title_folded = NULL, author_folded = NULL WHERE id = ?", book.getId());
+
+        searchFoldingBackfill.backfill();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT title_folded FROM books WHERE id = ?", String.class,
+                book.getId())).isEqualTo("so do");
+        assertThat(bookService.findBooksByAuthor("vu trong phung")).extracting(Book::getId).contains(book.getId());
+    }
+}
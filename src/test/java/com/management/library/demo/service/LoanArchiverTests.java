@@ -0,0 +1,67 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.LoanView;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanArchiverTests {
+
+    @Autowired
+    private LoanArchiver loanArchiver;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void oldReturnedLoansMoveToHistoryAndStayVisibleWithHistory() {
+        Book book = bookRepository.save(new Book("Chí Phèo", "Nam Cao", "Truyện ngắn", 1941, true));
+        Member member = memberRepository.save(new Member("Hoàng Thị E", "e@example.com", "secret"));
+        Loan old = returnedLoan(book, member, LocalDate.now().minusDays(200));
+        Loan recent = returnedLoan(book, member, LocalDate.now().minusDays(10));
+        Loan active = loanService.borrowBook(book.getId(), member.getId());
+
+        loanArchiver.archive(LocalDate.now());
+
+        assertThat(loanRepository.existsById(old.getId())).isFalse();
+        assertThat(loanService.findLoansByMember(member.getId(), false))
+                .extracting(LoanView::getId).containsExactly(recent.getId(), active.getId());
+        assertThat(loanService.findLoansByMember(member.getId(), true))
+                .extracting(LoanView::getId).containsExactly(old.getId(), recent.getId(), active.getId());
+        LoanView archived = loanService.findLoansByBook(book.getId(), true).get(0);
+        assertThat(archived.getStatus()).isEqualTo(LoanService.LOAN_STATUS_RETURNED);
+        assertThat(archived.getBook().getTitle()).isEqualTo("Chí Phèo");
+        assertThat(archived.getMember().getName()).isEqualTo("Hoàng Thị E");
+
+        // Chạy lại không chuyển thêm gì
+        assertThat(loanArchiver.archive(LocalDate.now())).isZero();
+    }
+
+    private Loan returnedLoan(Book book, Member member, LocalDate returnDate) {
+        Loan loan = new Loan(book, member, returnDate.minusDays(7), LoanService.LOAN_STATUS_RETURNED);
+        loan.setReturnDate(returnDate);
+        return loanRepository.save(loan);
+    }
+}
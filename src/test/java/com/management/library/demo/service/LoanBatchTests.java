@@ -0,0 +1,79 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.LoanBatchResult;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanBatchTests {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void batchCheckoutAndReturnReportEachItemWithoutAbortingTheBatch() {
+        Book first = bookRepository.save(new Book("Vợ nhặt", "Kim Lân", "Truyện ngắn", 1962, true));
+        Book second = bookRepository.save(new Book("Tắt đèn", "Ngô Tất Tố", "Tiểu thuyết", 1939, true));
+        Book onLoan = bookRepository.save(new Book("Bỉ vỏ", "Nguyên Hồng", "Tiểu thuyết", 1938, false));
+        Member member = memberRepository.save(new Member("Phạm Văn G", "g@example.com", "secret"));
+        long missing = second.getId() + 1000;
+
+        LoanBatchResult checkout = loanService.borrowBooks(member.getId(),
+                List.of(second.getId(), onLoan.getId(), first.getId(), missing, second.getId()));
+
+        assertThat(checkout.getSucceeded()).isEqualTo(2);
+        assertThat(checkout.getFailed()).isEqualTo(3);
+        assertThat(checkout.getItems()).extracting(LoanBatchResult.Item::getBookId)
+                .containsExactly(second.getId(), onLoan.getId(), first.getId(), missing, second.getId());
+        assertThat(checkout.getItems()).extracting(LoanBatchResult.Item::isSuccess)
+                .containsExactly(true, false, true, false, false);
+        assertThat(checkout.getItems().get(1).getError()).contains("not available");
+        assertThat(checkout.getItems().get(3).getError()).contains("not found");
+        assertThat(checkout.getItems().get(4).getError()).contains("Duplicate");
+        assertThat(checkout.getItems().get(0).getDueDate()).isNotNull();
+        assertThat(bookRepository.findById(first.getId())).get().extracting(Book::isAvailable).isEqualTo(false);
+        assertThat(loanRepository.findByMemberAndStatus(member, LoanService.LOAN_STATUS_BORROWED)).hasSize(2);
+
+        Long firstLoan = checkout.getItems().get(2).getLoanId();
+        LoanBatchResult returned = loanService.returnBooks(
+                Arrays.asList(firstLoan, missing), List.of(second.getId(), onLoan.getId()));
+
+        assertThat(returned.getItems()).extracting(LoanBatchResult.Item::isSuccess)
+                .containsExactly(true, false, true, false);
+        assertThat(returned.getItems().get(2).getLoanId()).isEqualTo(checkout.getItems().get(0).getLoanId());
+        assertThat(bookRepository.findById(first.getId())).get().extracting(Book::isAvailable).isEqualTo(true);
+        assertThat(bookRepository.findById(second.getId())).get().extracting(Book::isAvailable).isEqualTo(true);
+        assertThat(loanRepository.findByMemberAndStatus(member, LoanService.LOAN_STATUS_RETURNED)).hasSize(2);
+
+        // Trả lại lần nữa: báo lỗi theo item, không ném exception
+        LoanBatchResult again = loanService.returnBooks(List.of(firstLoan), null);
+        assertThat(again.getItems().get(0).getError()).contains("already returned");
+
+        assertThatThrownBy(() -> loanService.borrowBooks(member.getId() + 1000, List.of(first.getId())))
+                .hasMessageContaining("Member not found");
+        assertThat(bookRepository.findById(first.getId())).get().extracting(Book::isAvailable).isEqualTo(true);
+    }
+}
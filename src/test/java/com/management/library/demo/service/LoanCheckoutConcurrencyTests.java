@@ -0,0 +1,179 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Borrow/return đồng thời: không bao giờ có hai loan cùng giữ một cuốn sách.
+ *
+ * Benchmark so sánh với cách đọc-rồi-ghi cũ được gắn tag "benchmark" và chỉ chạy với: mvn test -Pbenchmark
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class LoanCheckoutConcurrencyTests {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 8);
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentBorrowsOfOneCopySucceedExactlyOnce() throws Exception {
+        Book book = bookRepository.save(new Book("Truyện Kiều", "Nguyễn Du", "Thơ", 1820, true));
+        Member member = memberRepository.save(new Member("Trần Văn B", "b@example.com", "secret"));
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    loanService.borrowBook(book.getId(), member.getId());
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(succeeded.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(THREADS - 1);
+        assertThat(bookRepository.findById(book.getId())).get().extracting(Book::isAvailable).isEqualTo(false);
+        List<Loan> active = loanRepository.findByBookAndStatus(book, LoanService.LOAN_STATUS_BORROWED);
+        assertThat(active).hasSize(1);
+
+        Loan returned = loanService.returnBook(active.get(0).getId());
+        assertThat(returned.getStatus()).isEqualTo(LoanService.LOAN_STATUS_RETURNED);
+        assertThat(returned.getBook().isAvailable()).isTrue();
+        assertThatThrownBy(() -> loanService.returnBook(active.get(0).getId()))
+                .hasMessageContaining("already returned");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void conditionalUpdateOutperformsReadModifyWrite() throws Exception {
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            bookIds.add(bookRepository.save(new Book("Benchmark " + i, "Tác giả", "Test", 2000, true)).getId());
+        }
+        Long memberId = memberRepository.save(new Member("Benchmark", "bench@example.com", "secret")).getId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Checkout conditional = (bookId) -> loanService.borrowBook(bookId, memberId).getId();
+        Checkout readModifyWrite = (bookId) -> transaction.execute(status -> {
+            // Cách làm trước đây: đọc book, kiểm tra available rồi mới ghi
+            Book book = bookRepository.findById(bookId).orElseThrow();
+            Member member = memberRepository.findById(memberId).orElseThrow();
+            if (!book.isAvailable()) {
+                throw new RuntimeException("Book is not available for loan: " + bookId);
+            }
+            book.setAvailable(false);
+            bookRepository.save(book);
+            return loanRepository.save(new Loan(book, member, LocalDate.now(), LoanService.LOAN_STATUS_BORROWED)).getId();
+        });
+
+        // Làm nóng JIT và connection pool trước khi đo
+        run(bookIds, conditional, 1_000);
+        run(bookIds, readModifyWrite, 1_000);
+
+        Result legacy = run(bookIds, readModifyWrite, 5_000);
+        Result atomic = run(bookIds, conditional, 5_000);
+        System.out.printf("read-modify-write: %.0f checkouts/s, %d rejected, %d double loans%n",
+                legacy.checkoutsPerSecond(), legacy.rejected, legacy.doubleLoans);
+        System.out.printf("conditional update: %.0f checkouts/s, %d rejected, %d double loans%n",
+                atomic.checkoutsPerSecond(), atomic.rejected, atomic.doubleLoans);
+
+        assertThat(atomic.doubleLoans).isZero();
+        assertThat(atomic.checkoutsPerSecond()).isGreaterThan(legacy.checkoutsPerSecond());
+    }
+
+    private Result run(List<Long> bookIds, Checkout checkout, long durationMs) throws InterruptedException {
+        Map<Long, AtomicInteger> holders = new ConcurrentHashMap<>();
+        AtomicLong checkouts = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong doubleLoans = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    Long bookId = bookIds.get(ThreadLocalRandom.current().nextInt(bookIds.size()));
+                    Long loanId;
+                    try {
+                        loanId = checkout.borrow(bookId);
+                    } catch (RuntimeException e) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    checkouts.incrementAndGet();
+                    AtomicInteger held = holders.computeIfAbsent(bookId, id -> new AtomicInteger());
+                    if (held.incrementAndGet() > 1) {
+                        doubleLoans.incrementAndGet();
+                    }
+                    held.decrementAndGet();
+                    loanService.returnBook(loanId);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(durationMs + 30_000, TimeUnit.MILLISECONDS);
+        return new Result(checkouts.get(), rejected.get(), doubleLoans.get(), durationMs);
+    }
+
+    @FunctionalInterface
+    private interface Checkout {
+        Long borrow(Long bookId);
+    }
+
+    private record Result(long checkouts, long rejected, long doubleLoans, long durationMs) {
+        double checkoutsPerSecond() {
+            return checkouts * 1000.0 / durationMs;
+        }
+    }
+}
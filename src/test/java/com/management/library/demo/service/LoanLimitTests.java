@@ -0,0 +1,89 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.LoanBatchResult;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.limit.ActiveLoanLimiter;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanLimitRepository;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Giới hạn mặc định cho member không có user: library.loans.limit.member=5
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanLimitTests {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ActiveLoanLimiter activeLoanLimiter;
+
+    @Autowired
+    private LoanLimitRepository loanLimitRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Test
+    void borrowingStopsAtTheLimitAndFailedOrReturnedLoansFreeTheSlot() {
+        Member member = memberRepository.save(new Member("Giới hạn", "limit@example.com", "secret"));
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            books.add(bookRepository.save(new Book("Giới hạn " + i, "Tác giả", "Thể loại", 2000 + i, true)));
+        }
+        Book unavailable = bookRepository.save(new Book("Đang mượn", "Tác giả", "Thể loại", 1999, false));
+
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            loans.add(loanService.borrowBook(books.get(i).getId(), member.getId()));
+        }
+        // Lượt mượn thất bại bị rollback nên không chiếm chỗ
+        assertThatThrownBy(() -> loanService.borrowBook(unavailable.getId(), member.getId()))
+                .hasMessageContaining("not available");
+        assertThat(activeLoanLimiter.activeLoans(member.getId())).isEqualTo(4);
+
+        // Còn một chỗ: batch chỉ thử cuốn đầu tiên, các cuốn sau hỏng vì giới hạn
+        LoanBatchResult batch = loanService.borrowBooks(member.getId(),
+                List.of(books.get(4).getId(), books.get(5).getId(), books.get(6).getId()));
+        assertThat(batch.getItems()).extracting(LoanBatchResult.Item::isSuccess).containsExactly(true, false, false);
+        assertThat(batch.getItems().get(1).getError()).contains("Loan limit");
+        assertThatThrownBy(() -> loanService.borrowBook(books.get(7).getId(), member.getId()))
+                .hasMessageContaining("Loan limit");
+        assertThat(bookRepository.findById(books.get(7).getId())).get().extracting(Book::isAvailable).isEqualTo(true);
+
+        loanService.returnBook(loans.get(0).getId());
+        assertThat(activeLoanLimiter.activeLoans(member.getId())).isEqualTo(4);
+        loanService.borrowBook(books.get(7).getId(), member.getId());
+
+        // Sửa loan trực tiếp: bộ đếm được đọc lại từ database ở lượt mượn kế tiếp
+        Loan edited = loans.get(1);
+        edited.setStatus(LoanService.LOAN_STATUS_RETURNED);
+        loanService.updateLoan(edited.getId(), edited);
+        loanService.borrowBook(loans.get(0).getBook().getId(), member.getId());
+        assertThat(activeLoanLimiter.activeLoans(member.getId())).isEqualTo(5);
+
+        // Khởi động lại: bộ đếm dựng lại từ loans
+        ActiveLoanLimiter restarted = new ActiveLoanLimiter(loanLimitRepository, transactionManager, 5, 5, 10, 0);
+        restarted.load();
+        assertThat(restarted.activeLoans(member.getId())).isEqualTo(5);
+    }
+}
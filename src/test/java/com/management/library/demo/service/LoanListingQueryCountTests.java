@@ -0,0 +1,109 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.LoanView;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanListingQueryCountTests {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private OverdueLoanSweeper overdueLoanSweeper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Member member;
+    private Book book;
+
+    @BeforeEach
+    void createLoans() {
+        member = memberRepository.save(new Member("Lê Thị C", "c@example.com", "secret"));
+        for (int i = 0; i < 5; i++) {
+            Book saved = bookRepository.save(new Book("Sách " + i, "Tác giả " + i, "Test", 2000 + i, false));
+            Loan loan = new Loan(saved, member, LocalDate.now().minusDays(10), LoanService.LOAN_STATUS_BORROWED);
+            // Ba loan đầu đã quá hạn, hai loan sau còn hạn
+            loan.setDueDate(LocalDate.now().plusDays(i < 3 ? i - 3 : i));
+            loanRepository.save(loan);
+            book = saved;
+        }
+    }
+
+    @Test
+    void everyListingIsOneStatement() {
+        overdueLoanSweeper.sweep(LocalDate.now());
+
+        assertSingleStatement(() -> loanService.getAllLoanViews());
+        assertSingleStatement(() -> loanService.getLoanViewsByStatus(LoanService.LOAN_STATUS_BORROWED));
+        assertSingleStatement(() -> loanService.getOverdueLoanViews());
+        assertSingleStatement(() -> loanService.getLoanViewsByMemberId(member.getId()));
+        assertSingleStatement(() -> loanService.getLoanViewsByBookId(book.getId()));
+    }
+
+    @Test
+    void loanViewCarriesBookAndMemberSummaries() {
+        List<LoanView> loans = loanService.getLoanViewsByMemberId(member.getId());
+
+        assertThat(loans).hasSize(5);
+        assertThat(loans.get(0).getMember().getName()).isEqualTo("Lê Thị C");
+        assertThat(loans.get(0).getBook().getTitle()).isEqualTo("Sách 0");
+        assertThat(loans.get(0).getBookId()).isEqualTo(loans.get(0).getBook().getId());
+    }
+
+    @Test
+    void sweeperBuildsOverdueWorklistSortedByDaysOverdue() {
+        overdueLoanSweeper.sweep(LocalDate.now());
+        assertThat(overdueLoanSweeper.sweep(LocalDate.now())).isZero();
+
+        List<LoanView> mine = loanService.getOverdueLoanViews().stream()
+                .filter(loan -> loan.getMemberId().equals(member.getId()))
+                .toList();
+        assertThat(mine).extracting(LoanView::getDaysOverdue).containsExactly(3L, 2L, 1L);
+        assertThat(mine).extracting(LoanView::getStatus).containsOnly(LoanService.LOAN_STATUS_OVERDUE);
+        assertThat(loanService.getLoanViewsByMemberId(member.getId()))
+                .filteredOn(loan -> LoanService.LOAN_STATUS_BORROWED.equals(loan.getStatus()))
+                .hasSize(2);
+    }
+
+    private void assertSingleStatement(Supplier<List<LoanView>> listing) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<LoanView> loans = listing.get();
+
+        assertThat(loans).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
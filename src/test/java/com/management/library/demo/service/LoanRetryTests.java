@@ -0,0 +1,80 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.event.LoanChangedEvent;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.LoanRepository;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Lỗi lock/deadlock giữa chừng: lần thử đầu bị rollback, borrowBook chạy lại trong transaction mới
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanRetryTests {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private FailingLoanListener failingLoanListener;
+
+    @Test
+    void borrowIsRetriedAfterLockFailure() {
+        Book book = bookRepository.save(new Book("Tuổi thơ dữ dội", "Phùng Quán", "Tiểu thuyết", 1988, true));
+        Member member = memberRepository.save(new Member("Retry Member", "retry@example.com", "secret"));
+        failingLoanListener.remainingFailures.set(1);
+
+        Loan loan = loanService.borrowBook(book.getId(), member.getId());
+
+        assertThat(failingLoanListener.attempts.get()).isEqualTo(2);
+        assertThat(loan.getBook().getId()).isEqualTo(book.getId());
+        // Sách và loan của lần thử đầu đã bị rollback, nên chỉ còn đúng một loan
+        assertThat(loanRepository.findByBookAndStatus(book, LoanService.LOAN_STATUS_BORROWED)).hasSize(1);
+    }
+
+    @TestConfiguration
+    static class FailingListenerConfig {
+
+        @Bean
+        FailingLoanListener failingLoanListener() {
+            return new FailingLoanListener();
+        }
+    }
+
+    // Chạy đồng bộ trong transaction của borrowBook, sau khi sách đã được giành và loan đã được insert
+    static class FailingLoanListener {
+
+        final AtomicInteger remainingFailures = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        @EventListener
+        public void onLoanChanged(LoanChangedEvent event) {
+            attempts.incrementAndGet();
+            if (remainingFailures.getAndDecrement() > 0) {
+                throw new CannotAcquireLockException("Simulated lock timeout");
+            }
+        }
+    }
+}
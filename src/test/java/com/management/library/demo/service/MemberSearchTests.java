@@ -0,0 +1,53 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.CursorPage;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// H2: xếp hạng theo bậc khớp đúng > khớp đầu chuỗi > chứa (PostgreSQL dùng similarity của pg_trgm)
+@SpringBootTest
+@ActiveProfiles("test")
+class MemberSearchTests {
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Test
+    void searchesNameOrEmailBestMatchFirstWithKeysetPaging() {
+        Member contains = memberRepository.save(new Member("Trần Quầy Thị", "tran.quay@example.com", "secret"));
+        Member exactEmail = memberRepository.save(new Member("Lê Văn Quầy", "quaydesk", "secret"));
+        Member prefix = memberRepository.save(new Member("Quầydesk Nguyễn", "nguyen.qd@example.com", "secret"));
+        memberRepository.save(new Member("Không liên quan", "other@example.com", "secret"));
+
+        // Tên được so không dấu nên "Quầydesk Nguyễn" cũng khớp đầu chuỗi
+        List<Member> all = memberService.searchMembers("QUAYDESK", null, 10).getItems();
+        assertThat(all).extracting(Member::getId).containsExactly(exactEmail.getId(), prefix.getId());
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Member> page = memberService.searchMembers("quầy", cursor, 1);
+            page.getItems().forEach(member -> ids.add(member.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertThat(ids).containsExactly(exactEmail.getId(), prefix.getId(), contains.getId());
+
+        // Ký tự đại diện của LIKE được hiểu theo nghĩa đen
+        assertThat(memberService.searchMembers("%", null, 10).getItems()).isEmpty();
+        assertThatThrownBy(() -> memberService.searchMembers("quầy", "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,143 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.dto.ReservationView;
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.entity.Reservation;
+import com.management.library.demo.reminder.ReminderScheduler;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.repository.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservationServiceTests {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Test
+    void returnedCopyIsHeldForQueueHeadInOrderAndPassedOnWhenHoldExpires() {
+        Book book = bookRepository.save(new Book("Nỗi buồn chiến tranh", "Bảo Ninh", "Tiểu thuyết", 1987, true));
+        Member holder = member("Giữ sách", "hold-a@example.com");
+        Member first = member("Chờ thứ nhất", "hold-b@example.com");
+        Member second = member("Chờ thứ hai", "hold-c@example.com");
+        Member other = member("Người khác", "hold-d@example.com");
+
+        assertThatThrownBy(() -> reservationService.reserve(book.getId(), first.getId()))
+                .hasMessageContaining("available");
+        Loan loan = loanService.borrowBook(book.getId(), holder.getId());
+        ReservationView firstReservation = reservationService.reserve(book.getId(), first.getId());
+        ReservationView secondReservation = reservationService.reserve(book.getId(), second.getId());
+        assertThat(firstReservation.getPosition()).isEqualTo(1);
+        assertThat(secondReservation.getPosition()).isEqualTo(2);
+        assertThatThrownBy(() -> reservationService.reserve(book.getId(), first.getId()))
+                .hasMessageContaining("already has a reservation");
+
+        // Trả sách: sách được giữ cho người đầu hàng đợi, người khác không mượn được
+        loanService.returnBook(loan.getId());
+        assertThat(bookRepository.findById(book.getId())).get().extracting(Book::isAvailable).isEqualTo(false);
+        assertThat(reservationService.getQueue(book.getId()))
+                .extracting(ReservationView::getMemberId, ReservationView::getStatus, ReservationView::getPosition)
+                .containsExactly(
+                        tuple(first.getId(), Reservation.Status.READY, null),
+                        tuple(second.getId(), Reservation.Status.WAITING, 1));
+        assertThatThrownBy(() -> loanService.borrowBook(book.getId(), other.getId()))
+                .hasMessageContaining("not available");
+        assertThatThrownBy(() -> loanService.borrowBook(book.getId(), second.getId()))
+                .hasMessageContaining("not available");
+
+        Loan held = loanService.borrowBook(book.getId(), first.getId());
+        assertThat(held.getMember().getId()).isEqualTo(first.getId());
+        assertThat(reservationRepository.findStatusById(firstReservation.getId())).contains(Reservation.Status.FULFILLED);
+
+        // Người kế tiếp không đến lấy: hết hạn giữ thì sách về kho
+        loanService.returnBook(held.getId());
+        assertThat(reservationRepository.findStatusById(secondReservation.getId())).contains(Reservation.Status.READY);
+        reminderScheduler.fireDue(System.currentTimeMillis() + 4 * 24 * 3600 * 1000L);
+        assertThat(reservationRepository.findStatusById(secondReservation.getId())).contains(Reservation.Status.EXPIRED);
+        assertThat(bookRepository.findById(book.getId())).get().extracting(Book::isAvailable).isEqualTo(true);
+    }
+
+    @Test
+    void concurrentReservationsAndReturnNeverStrandAWaitingPatron() throws Exception {
+        for (int round = 0; round < 5; round++) {
+            Book book = bookRepository.save(new Book("Đất rừng phương Nam " + round, "Đoàn Giỏi", "Thiếu nhi", 1957, true));
+            Loan loan = loanService.borrowBook(book.getId(), member("Mượn " + round, "r" + round + "@example.com").getId());
+            List<Long> waiting = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                waiting.add(member("Chờ " + round + "-" + i, "w" + round + "-" + i + "@example.com").getId());
+            }
+
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(waiting.size() + 1);
+            for (Long memberId : waiting) {
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        reservationService.reserve(book.getId(), memberId);
+                    } catch (RuntimeException e) {
+                        // Sách đã về kho trước lượt đặt chỗ này
+                    }
+                    return null;
+                });
+            }
+            executor.submit(() -> {
+                start.await();
+                loanService.returnBook(loan.getId());
+                return null;
+            });
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+            List<ReservationView> queue = reservationService.getQueue(book.getId());
+            boolean available = bookRepository.findById(book.getId()).orElseThrow().isAvailable();
+            if (queue.isEmpty()) {
+                assertThat(available).isTrue();
+            } else {
+                // Có người chờ thì sách phải đang được giữ cho đúng người đầu hàng đợi
+                assertThat(available).isFalse();
+                assertThat(queue.get(0).getStatus()).isEqualTo(Reservation.Status.READY);
+                assertThat(queue).filteredOn(view -> view.getStatus() == Reservation.Status.READY).hasSize(1);
+                // FIFO: lượt được giữ sách là lượt đặt sớm nhất
+                assertThat(queue).extracting(ReservationView::getId).isSorted();
+            }
+        }
+    }
+
+    private Member member(String name, String email) {
+        return memberRepository.save(new Member(name, email, "secret"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.management.library.demo.service;
+
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.entity.User;
+import com.management.library.demo.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserMemberLinkTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Test
+    void registrationNeverClaimsExistingMemberByEmail() {
+        Member patron = memberRepository.save(new Member("Bạn đọc cũ", "patron.link@example.com", "secret"));
+
+        User impostor = userService.createUser(newUser("impostor.link", "patron.link@example.com"));
+
+        assertThat(impostor.getMemberId()).isNotNull().isNotEqualTo(patron.getId());
+        assertThat(userService.findMemberId(impostor)).contains(impostor.getMemberId());
+    }
+
+    @Test
+    void adminLinksVerifiedMemberOnlyOnce() {
+        Member patron = memberRepository.save(new Member("Bạn đọc quầy", "desk.link@example.com", "secret"));
+        User owner = userService.createUser(newUser("owner.link", "owner.link@example.com"));
+        User other = userService.createUser(newUser("other.link", "other.link@example.com"));
+
+        assertThat(userService.linkMember(owner.getId(), patron.getId()).getMemberId()).isEqualTo(patron.getId());
+        assertThatThrownBy(() -> userService.linkMember(other.getId(), patron.getId()))
+                .hasMessageContaining("already linked");
+        assertThatThrownBy(() -> userService.linkMember(other.getId(), Long.MAX_VALUE))
+                .hasMessageContaining("Member not found");
+    }
+
+    private static User newUser(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("password123");
+        return user;
+    }
+}
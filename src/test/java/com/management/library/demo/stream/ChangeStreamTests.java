@@ -0,0 +1,87 @@
+package com.management.library.demo.stream;
+
+import com.management.library.demo.entity.Book;
+import com.management.library.demo.entity.Loan;
+import com.management.library.demo.entity.Member;
+import com.management.library.demo.repository.BookRepository;
+import com.management.library.demo.repository.MemberRepository;
+import com.management.library.demo.service.LoanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChangeStreamTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Test
+    void committedChangesArePushedAndResumedFromLastEventId() throws Exception {
+        MockHttpServletResponse librarian = open("LIBRARIAN", null);
+        MockHttpServletResponse reader = open("USER", null);
+        Book book = bookRepository.save(new Book("Truyện Kiều", "Nguyễn Du", "Thơ", 1820, true));
+        Member member = memberRepository.save(new Member("Dashboard", "dashboard@example.com", "secret"));
+
+        Loan loan = loanService.borrowBook(book.getId(), member.getId());
+        String loanFrame = "event:loan\ndata:{\"type\":\"BORROWED\",\"bookId\":" + book.getId()
+                + ",\"loanId\":" + loan.getId() + ",\"memberId\":" + member.getId() + ",\"status\":\"BORROWED\"";
+        String bookFrame = "event:book\ndata:{\"type\":\"SAVED\",\"bookId\":" + book.getId() + ",\"available\":false}";
+        awaitContent(librarian, loanFrame);
+        awaitContent(reader, bookFrame);
+        assertThat(librarian.getContentAsString()).contains(bookFrame);
+        // USER chỉ nhận availability của sách, không thấy loan của người khác
+        assertThat(reader.getContentAsString()).doesNotContain("event:loan");
+
+        // Kết nối lại với id của event book: chỉ nhận phần bị lỡ (event loan), không nhận lại event book
+        Matcher bookId = Pattern.compile("id:(\\S+)\n" + Pattern.quote(bookFrame)).matcher(librarian.getContentAsString());
+        assertThat(bookId.find()).isTrue();
+        MockHttpServletResponse resumed = open("LIBRARIAN", bookId.group(1));
+        awaitContent(resumed, loanFrame);
+        assertThat(resumed.getContentAsString()).doesNotContain(bookFrame);
+
+        // Id của lần khởi động khác: client phải tải lại toàn bộ
+        awaitContent(open("LIBRARIAN", "0-42"), "event:reset");
+    }
+
+    private MockHttpServletResponse open(String role, String lastEventId) throws Exception {
+        var request = get("/api/stream").with(user("dashboard").roles(role));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        MvcResult result = mockMvc.perform(request).andReturn();
+        assertThat(result.getRequest().isAsyncStarted()).isTrue();
+        return result.getResponse();
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(response.getContentAsString()).contains(expected);
+    }
+}